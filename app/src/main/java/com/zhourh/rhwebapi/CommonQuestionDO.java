@@ -1,10 +1,13 @@
 package com.zhourh.rhwebapi;
 
+import com.zhourh.webapi.json.JsonModel;
+
 import java.io.Serializable;
 
 /**
  * @author hugu
  */
+@JsonModel
 public class CommonQuestionDO implements Serializable {
     private static final long serialVersionUID = 1L;
 
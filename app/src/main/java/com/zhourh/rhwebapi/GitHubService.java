@@ -1,8 +1,11 @@
 package com.zhourh.rhwebapi;
 
+import com.zhourh.webapi.service.WebApiService;
+
 import io.reactivex.Flowable;
 import retrofit2.http.GET;
 
+@WebApiService
 public interface GitHubService {
 
     @GET("orgs/octokit/repos")
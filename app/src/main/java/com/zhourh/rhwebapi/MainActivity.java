@@ -23,6 +23,7 @@ public class MainActivity extends AppCompatActivity {
                 .logLevel(HttpLoggingInterceptor.Level.BODY)
                 .addService(0, UkeeService.class)
                 .addTrustDomain("www.ybadminton.com")
+                .jsonBinders(true)
                 .build(getApplication());
 
         UkeeService ukeeService = (UkeeService) webApi.getService(0);
@@ -1,6 +1,7 @@
 package com.zhourh.rhwebapi;
 
 
+import com.zhourh.webapi.json.JsonModel;
 import com.zhourh.webapi.response.ApiResult;
 
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Map;
  * Created by Huolongguo on 17/2/5.
  */
 
+@JsonModel
 public class UApiResult<T> implements ApiResult<T> {
 
     private boolean success;
@@ -1,10 +1,13 @@
 package com.zhourh.rhwebapi;
 
+import com.zhourh.webapi.service.WebApiService;
+
 import java.util.List;
 
 import io.reactivex.Flowable;
 import retrofit2.http.GET;
 
+@WebApiService
 public interface UkeeService {
 
     @GET("help/questions")
@@ -0,0 +1,362 @@
+package com.zhourh.webapi.compiler;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Generate the json binder of a model, such as
+ * <pre>{@code
+ * public final class UApiResult_JsonBinder extends JsonBinder<UApiResult> {
+ *     public UApiResult_JsonBinder() {
+ *         super(Map.class);
+ *     }
+ *
+ *     protected UApiResult newModel() {
+ *         return new UApiResult();
+ *     }
+ *
+ *     protected boolean readField(UApiResult model, String key, DefaultJSONParser parser, Type[] typeArguments) {
+ *         switch (key) {
+ *             case "success":
+ *                 model.setSuccess(readBoolean(parser));
+ *                 return true;
+ *             case "data":
+ *                 model.setData(parser.<Object>parseObject(typeArgument(typeArguments, 0)));
+ *                 return true;
+ *             ...
+ *             default:
+ *                 return false;
+ *         }
+ *     }
+ * }
+ * }</pre>
+ */
+final class BinderGenerator {
+
+    static final String SUFFIX = "_JsonBinder";
+
+    private static final ClassName JSON_BINDER = ClassName.get("com.zhourh.webapi.json", "JsonBinder");
+
+    private static final ClassName PARSER = ClassName.get("com.alibaba.fastjson.parser", "DefaultJSONParser");
+
+    private static final String JSON_FIELD = "com.alibaba.fastjson.annotation.JSONField";
+
+    private final Elements elements;
+
+    private final Types types;
+
+    private final TypeElement model;
+
+    private final ClassName modelName;
+
+    private final Set<TypeName> dependencies = new LinkedHashSet<>();
+
+    private TypeSpec.Builder type;
+
+    private int typeFieldCount;
+
+    BinderGenerator(Elements elements, Types types, TypeElement model) {
+        this.elements = elements;
+        this.types = types;
+        this.model = model;
+        this.modelName = ClassName.get(model);
+    }
+
+    JavaFile generate() throws UnsupportedModelException {
+        if (model.getKind() != ElementKind.CLASS || model.getModifiers().contains(Modifier.ABSTRACT)) {
+            throw new UnsupportedModelException(model, "not a concrete class");
+        }
+        if (model.getModifiers().contains(Modifier.PRIVATE)
+                || (model.getNestingKind() == NestingKind.MEMBER && !model.getModifiers().contains(Modifier.STATIC))) {
+            throw new UnsupportedModelException(model, "private or inner class");
+        }
+        TypeMirror superclass = model.getSuperclass();
+        if (!(superclass instanceof DeclaredType)
+                || !((TypeElement) types.asElement(superclass)).getQualifiedName().contentEquals(Object.class.getName())) {
+            throw new UnsupportedModelException(model, "extends " + superclass);
+        }
+        if (!hasConstructor()) {
+            throw new UnsupportedModelException(model, "no accessible constructor without arguments");
+        }
+
+        String packageName = elements.getPackageOf(model).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(model).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+
+        type = TypeSpec.classBuilder(simpleName)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .superclass(ParameterizedTypeName.get(JSON_BINDER, modelName))
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "{$S, $S}", "unchecked", "rawtypes").build())
+                .addJavadoc("Generated by webapi-compiler from {@link $T}, do not edit\n", modelName);
+
+        MethodSpec.Builder readField = MethodSpec.methodBuilder("readField")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(boolean.class)
+                .addParameter(modelName, "model")
+                .addParameter(String.class, "key")
+                .addParameter(PARSER, "parser")
+                .addParameter(Type[].class, "typeArguments")
+                .beginControlFlow("switch (key)");
+
+        Set<String> keys = new HashSet<>();
+        for (Element element : model.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.FIELD) {
+                continue;
+            }
+            VariableElement field = (VariableElement) element;
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) || !deserialize(field)) {
+                continue;
+            }
+            if (modifiers.contains(Modifier.FINAL)) {
+                throw new UnsupportedModelException(field, "final field");
+            }
+            String key = key(field);
+            if (!keys.add(key)) {
+                throw new UnsupportedModelException(field, "duplicate key " + key);
+            }
+            CodeBlock value = value(field, field.asType());
+            readField.addCode("case $S:\n", key).addCode("$>");
+            if (modifiers.contains(Modifier.PRIVATE)) {
+                readField.addStatement("model.$N($L)", setter(field), value);
+            } else {
+                readField.addStatement("model.$N = $L", field.getSimpleName().toString(), value);
+            }
+            readField.addStatement("return true").addCode("$<");
+        }
+        readField.addCode("default:\n$>")
+                .addStatement("return false")
+                .addCode("$<")
+                .endControlFlow();
+
+        CodeBlock.Builder superArguments = CodeBlock.builder();
+        boolean first = true;
+        for (TypeName dependency : dependencies) {
+            superArguments.add(first ? "$T.class" : ", $T.class", dependency);
+            first = false;
+        }
+        type.addMethod(MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addStatement("super($L)", superArguments.build())
+                .build());
+        type.addMethod(MethodSpec.methodBuilder("newModel")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PROTECTED)
+                .returns(modelName)
+                .addStatement("return new $T()", modelName)
+                .build());
+        type.addMethod(readField.build());
+        return JavaFile.builder(packageName, type.build()).skipJavaLangImports(true).build();
+    }
+
+    private boolean hasConstructor() {
+        for (Element element : model.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) element).getParameters().isEmpty()
+                    && !element.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The expression reading the value of the field
+     */
+    private CodeBlock value(VariableElement field, TypeMirror fieldType) throws UnsupportedModelException {
+        switch (fieldType.getKind()) {
+            case BOOLEAN:
+                return CodeBlock.of("readBoolean(parser)");
+            case BYTE:
+                return CodeBlock.of("readByte(parser)");
+            case SHORT:
+                return CodeBlock.of("readShort(parser)");
+            case INT:
+                return CodeBlock.of("readInt(parser)");
+            case LONG:
+                return CodeBlock.of("readLong(parser)");
+            case CHAR:
+                return CodeBlock.of("readChar(parser)");
+            case FLOAT:
+                return CodeBlock.of("readFloat(parser)");
+            case DOUBLE:
+                return CodeBlock.of("readDouble(parser)");
+            default:
+                break;
+        }
+        if (fieldType.getKind() == TypeKind.DECLARED
+                && ((TypeElement) types.asElement(fieldType)).getQualifiedName().contentEquals(String.class.getName())) {
+            return CodeBlock.of("readString(parser)");
+        }
+        CodeBlock typeExpression = typeExpression(field, fieldType);
+        if (fieldType.getKind() == TypeKind.DECLARED && !((DeclaredType) fieldType).getTypeArguments().isEmpty()
+                && !hasTypeVariable(fieldType)) {
+            // the type without type variables is created once
+            String name = "TYPE_" + typeFieldCount++;
+            type.addField(FieldSpec.builder(Type.class, name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer(typeExpression)
+                    .build());
+            typeExpression = CodeBlock.of("$N", name);
+        }
+        return CodeBlock.of("parser.<$T>parseObject($L)", TypeName.get(types.erasure(fieldType)), typeExpression);
+    }
+
+    /**
+     * The expression of the {@linkplain Type} of the field, and collect the classes in it as the dependencies
+     */
+    private CodeBlock typeExpression(VariableElement field, TypeMirror typeMirror) throws UnsupportedModelException {
+        switch (typeMirror.getKind()) {
+            case TYPEVAR:
+                List<? extends TypeParameterElement> parameters = model.getTypeParameters();
+                Element variable = ((TypeVariable) typeMirror).asElement();
+                for (int i = 0; i < parameters.size(); i++) {
+                    if (parameters.get(i).equals(variable)) {
+                        return CodeBlock.of("typeArgument(typeArguments, $L)", i);
+                    }
+                }
+                throw new UnsupportedModelException(field, "type variable " + typeMirror);
+            case DECLARED:
+                TypeName rawType = TypeName.get(types.erasure(typeMirror));
+                if (!rawType.toString().startsWith("java.")) {
+                    dependencies.add(rawType);
+                }
+                List<? extends TypeMirror> arguments = ((DeclaredType) typeMirror).getTypeArguments();
+                if (arguments.isEmpty()) {
+                    return CodeBlock.of("$T.class", rawType);
+                }
+                CodeBlock.Builder block = CodeBlock.builder().add("parameterized($T.class", rawType);
+                for (TypeMirror argument : arguments) {
+                    block.add(", $L", typeExpression(field, argument));
+                }
+                return block.add(")").build();
+            case WILDCARD:
+                TypeMirror bound = ((WildcardType) typeMirror).getExtendsBound();
+                return bound == null ? CodeBlock.of("$T.class", Object.class) : typeExpression(field, bound);
+            case ARRAY:
+                if (hasTypeVariable(typeMirror) || hasTypeArguments(((ArrayType) typeMirror).getComponentType())) {
+                    throw new UnsupportedModelException(field, "generic array " + typeMirror);
+                }
+                return CodeBlock.of("$T.class", TypeName.get(typeMirror));
+            default:
+                if (typeMirror.getKind().isPrimitive()) {
+                    return CodeBlock.of("$T.class", TypeName.get(typeMirror));
+                }
+                throw new UnsupportedModelException(field, "type " + typeMirror);
+        }
+    }
+
+    private boolean hasTypeArguments(TypeMirror typeMirror) {
+        if (typeMirror.getKind() == TypeKind.ARRAY) {
+            return hasTypeArguments(((ArrayType) typeMirror).getComponentType());
+        }
+        return typeMirror.getKind() == TypeKind.DECLARED && !((DeclaredType) typeMirror).getTypeArguments().isEmpty();
+    }
+
+    private static boolean hasTypeVariable(TypeMirror typeMirror) {
+        switch (typeMirror.getKind()) {
+            case TYPEVAR:
+                return true;
+            case DECLARED:
+                for (TypeMirror argument : ((DeclaredType) typeMirror).getTypeArguments()) {
+                    if (hasTypeVariable(argument)) {
+                        return true;
+                    }
+                }
+                return false;
+            case WILDCARD:
+                TypeMirror bound = ((WildcardType) typeMirror).getExtendsBound();
+                return bound != null && hasTypeVariable(bound);
+            case ARRAY:
+                return hasTypeVariable(((ArrayType) typeMirror).getComponentType());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the name of the setter of the private field
+     */
+    private String setter(VariableElement field) throws UnsupportedModelException {
+        String name = field.getSimpleName().toString();
+        String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Element element : model.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD || !element.getSimpleName().contentEquals(setterName)
+                    || element.getModifiers().contains(Modifier.PRIVATE)
+                    || element.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            List<? extends VariableElement> parameters = ((ExecutableElement) element).getParameters();
+            if (parameters.size() == 1
+                    && types.isSameType(types.erasure(parameters.get(0).asType()), types.erasure(field.asType()))) {
+                return setterName;
+            }
+        }
+        throw new UnsupportedModelException(field, "private field without the setter " + setterName);
+    }
+
+    /**
+     * @return the json key of the field, the name of {@code @JSONField} if declared
+     */
+    private static String key(VariableElement field) {
+        AnnotationValue name = jsonFieldValue(field, "name");
+        if (name != null && !name.getValue().toString().isEmpty()) {
+            return name.getValue().toString();
+        }
+        return field.getSimpleName().toString();
+    }
+
+    private static boolean deserialize(VariableElement field) {
+        AnnotationValue deserialize = jsonFieldValue(field, "deserialize");
+        return deserialize == null || Boolean.TRUE.equals(deserialize.getValue());
+    }
+
+    private static AnnotationValue jsonFieldValue(VariableElement field, String name) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if (!((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(JSON_FIELD)) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals(name)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zhourh.webapi.compiler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * Generate the json binders of the models annotated with {@code com.zhourh.webapi.json.JsonModel},
+ * the model the compiler can't bind is skipped with a warning, it is still decoded by fastjson
+ */
+public final class JsonModelProcessor extends AbstractProcessor {
+
+    private static final String JSON_MODEL = "com.zhourh.webapi.json.JsonModel";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(JSON_MODEL);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(JSON_MODEL);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            TypeElement model = (TypeElement) element;
+            try {
+                new BinderGenerator(processingEnv.getElementUtils(), processingEnv.getTypeUtils(), model)
+                        .generate()
+                        .writeTo(processingEnv.getFiler());
+            } catch (UnsupportedModelException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        model.getQualifiedName() + " is decoded by fastjson, unsupported: " + e.getMessage(),
+                        e.getElement());
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to write the json binder of " + model.getQualifiedName() + ": " + e.getMessage(),
+                        model);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,177 @@
+package com.zhourh.webapi.compiler;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Generate the implementation of a service interface, such as
+ * <pre>{@code
+ * public final class UkeeService_WebApiService implements UkeeService, RequestBinder {
+ *     private final GeneratedMethod method0;
+ *
+ *     public UkeeService_WebApiService(Retrofit retrofit) {
+ *         method0 = new GeneratedMethod(retrofit, this, 0, UkeeService.class, "getQuestions", new Class<?>[] {},
+ *                 "GET", "help/questions", false, false, -1);
+ *     }
+ *
+ *     public Flowable<UApiResult<List<CommonQuestionDO>>> getQuestions() {
+ *         return (Flowable<UApiResult<List<CommonQuestionDO>>>) method0.invoke(new Object[] {});
+ *     }
+ *
+ *     public void bind(int methodId, Object[] args, GeneratedRequest request) throws IOException {
+ *         switch (methodId) {
+ *             case 0:
+ *                 break;
+ *             default:
+ *                 throw new IllegalArgumentException("methodId = " + methodId);
+ *         }
+ *     }
+ * }
+ * }</pre>
+ */
+final class ServiceGenerator {
+
+    static final String SUFFIX = "_WebApiService";
+
+    private static final String SERVICE_PACKAGE = "com.zhourh.webapi.service";
+
+    private static final ClassName RETROFIT = ClassName.get("retrofit2", "Retrofit");
+
+    private static final ClassName REQUEST_BINDER = ClassName.get(SERVICE_PACKAGE, "RequestBinder");
+
+    private static final ClassName GENERATED_METHOD = ClassName.get(SERVICE_PACKAGE, "GeneratedMethod");
+
+    private static final ClassName GENERATED_REQUEST = ClassName.get(SERVICE_PACKAGE, "GeneratedRequest");
+
+    private final Elements elements;
+
+    private final Types types;
+
+    private final TypeElement service;
+
+    ServiceGenerator(Elements elements, Types types, TypeElement service) {
+        this.elements = elements;
+        this.types = types;
+        this.service = service;
+    }
+
+    JavaFile generate() throws UnsupportedServiceException {
+        if (service.getKind() != ElementKind.INTERFACE) {
+            throw new UnsupportedServiceException(service, "not an interface");
+        }
+        if (!service.getInterfaces().isEmpty() || !service.getTypeParameters().isEmpty()) {
+            throw new UnsupportedServiceException(service, "extended or generic interface");
+        }
+        List<ServiceMethod> methods = new ArrayList<>();
+        for (Element element : service.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.METHOD) {
+                methods.add(ServiceMethod.parse(elements, (ExecutableElement) element));
+            }
+        }
+
+        String packageName = elements.getPackageOf(service).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(service).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        ClassName serviceName = ClassName.get(service);
+
+        TypeSpec.Builder type = TypeSpec.classBuilder(simpleName)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(serviceName)
+                .addSuperinterface(REQUEST_BINDER)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+                .addJavadoc("Generated by webapi-compiler from {@link $T}, do not edit\n", serviceName);
+
+        MethodSpec.Builder constructor = MethodSpec.constructorBuilder()
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(RETROFIT, "retrofit");
+
+        MethodSpec.Builder bind = MethodSpec.methodBuilder("bind")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(int.class, "methodId")
+                .addParameter(Object[].class, "args")
+                .addParameter(GENERATED_REQUEST, "request")
+                .addException(IOException.class)
+                .beginControlFlow("switch (methodId)");
+
+        for (int id = 0; id < methods.size(); id++) {
+            ServiceMethod method = methods.get(id);
+            String field = "method" + id;
+            type.addField(FieldSpec.builder(GENERATED_METHOD, field, Modifier.PRIVATE, Modifier.FINAL).build());
+            constructor.addStatement("this.$N = new $T(retrofit, this, $L, $T.class, $S, $L, $S, $S, $L, $L, $L$L)",
+                    field, GENERATED_METHOD, id, serviceName, method.element.getSimpleName().toString(),
+                    parameterTypes(method.element), method.httpMethod, method.relativeUrl,
+                    method.hasBody, method.formEncoded, method.bodyIndex, headers(method.headers));
+
+            TypeName returnType = TypeName.get(method.element.getReturnType());
+            type.addMethod(MethodSpec.overriding(method.element)
+                    .addStatement("return ($T) this.$N.invoke($L)", returnType, field, arguments(method.element))
+                    .build());
+
+            bind.addCode("case $L:\n", id).addCode("$>");
+            for (ServiceMethod.Parameter parameter : method.parameters) {
+                if (ServiceMethod.Parameter.BODY.equals(parameter.kind)) {
+                    bind.addStatement("request.body(args[$L])", parameter.index);
+                } else if (ServiceMethod.Parameter.HEADER.equals(parameter.kind)) {
+                    bind.addStatement("request.header($S, args[$L])", parameter.name, parameter.index);
+                } else {
+                    bind.addStatement("request.$L($S, args[$L], $L)", parameter.kind, parameter.name,
+                            parameter.index, parameter.encoded);
+                }
+            }
+            bind.addStatement("break").addCode("$<");
+        }
+        bind.addCode("default:\n$>")
+                .addStatement("throw new $T($S + methodId)", IllegalArgumentException.class, "methodId = ")
+                .addCode("$<")
+                .endControlFlow();
+
+        type.addMethod(constructor.build()).addMethod(bind.build());
+        return JavaFile.builder(packageName, type.build()).skipJavaLangImports(true).build();
+    }
+
+    private CodeBlock parameterTypes(ExecutableElement method) {
+        CodeBlock.Builder block = CodeBlock.builder().add("new $T<?>[] {", Class.class);
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            block.add(i == 0 ? "$T.class" : ", $T.class", TypeName.get(types.erasure(parameters.get(i).asType())));
+        }
+        return block.add("}").build();
+    }
+
+    private static CodeBlock arguments(ExecutableElement method) {
+        CodeBlock.Builder block = CodeBlock.builder().add("new $T[] {", Object.class);
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            block.add(i == 0 ? "$N" : ", $N", parameters.get(i).getSimpleName().toString());
+        }
+        return block.add("}").build();
+    }
+
+    private static CodeBlock headers(List<String> headers) {
+        CodeBlock.Builder block = CodeBlock.builder();
+        for (String header : headers) {
+            block.add(", $S", header);
+        }
+        return block.build();
+    }
+}
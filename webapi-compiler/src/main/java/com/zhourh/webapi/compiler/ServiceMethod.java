@@ -0,0 +1,203 @@
+package com.zhourh.webapi.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+
+/**
+ * The http method, url and parameters of a service method, read from the Retrofit annotations
+ */
+final class ServiceMethod {
+
+    private static final String HTTP_PACKAGE = "retrofit2.http.";
+
+    final ExecutableElement element;
+
+    String httpMethod;
+
+    String relativeUrl;
+
+    boolean hasBody;
+
+    boolean formEncoded;
+
+    final List<String> headers = new ArrayList<>();
+
+    final List<Parameter> parameters = new ArrayList<>();
+
+    int bodyIndex = -1;
+
+    private ServiceMethod(ExecutableElement element) {
+        this.element = element;
+    }
+
+    static ServiceMethod parse(Elements elements, ExecutableElement element) throws UnsupportedServiceException {
+        if (!element.getTypeParameters().isEmpty()) {
+            throw new UnsupportedServiceException(element, "generic method");
+        }
+        if (element.getReturnType().getKind() == TypeKind.VOID) {
+            throw new UnsupportedServiceException(element, "void method");
+        }
+        if (element.getModifiers().contains(Modifier.DEFAULT) || element.getModifiers().contains(Modifier.STATIC)) {
+            throw new UnsupportedServiceException(element, "non abstract method");
+        }
+        ServiceMethod method = new ServiceMethod(element);
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            method.parseMethodAnnotation(elements, mirror);
+        }
+        if (method.httpMethod == null) {
+            throw new UnsupportedServiceException(element, "no http method annotation");
+        }
+        List<? extends VariableElement> parameters = element.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            method.parseParameter(elements, i, parameters.get(i));
+        }
+        return method;
+    }
+
+    private void parseMethodAnnotation(Elements elements, AnnotationMirror mirror) throws UnsupportedServiceException {
+        String name = annotationName(mirror);
+        if (!name.startsWith(HTTP_PACKAGE)) {
+            return;
+        }
+        Map<String, Object> values = values(elements, mirror);
+        String simpleName = name.substring(HTTP_PACKAGE.length());
+        switch (simpleName) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "DELETE":
+                setHttpMethod(simpleName, (String) values.get("value"), false);
+                break;
+            case "POST":
+            case "PUT":
+            case "PATCH":
+                setHttpMethod(simpleName, (String) values.get("value"), true);
+                break;
+            case "HTTP":
+                setHttpMethod((String) values.get("method"), (String) values.get("path"), (Boolean) values.get("hasBody"));
+                break;
+            case "FormUrlEncoded":
+                formEncoded = true;
+                break;
+            case "Headers":
+                for (Object header : (List<?>) values.get("value")) {
+                    headers.add((String) ((AnnotationValue) header).getValue());
+                }
+                break;
+            case "Streaming":
+                // read by the converters at runtime
+                break;
+            default:
+                throw new UnsupportedServiceException(element, "@" + simpleName);
+        }
+    }
+
+    private void setHttpMethod(String httpMethod, String relativeUrl, boolean hasBody) throws UnsupportedServiceException {
+        if (this.httpMethod != null) {
+            throw new UnsupportedServiceException(element, "multiple http methods");
+        }
+        if (relativeUrl.isEmpty()) {
+            throw new UnsupportedServiceException(element, "@Url");
+        }
+        this.httpMethod = httpMethod;
+        this.relativeUrl = relativeUrl;
+        this.hasBody = hasBody;
+    }
+
+    private void parseParameter(Elements elements, int index, VariableElement variable) throws UnsupportedServiceException {
+        Parameter parameter = null;
+        for (AnnotationMirror mirror : variable.getAnnotationMirrors()) {
+            String name = annotationName(mirror);
+            if (!name.startsWith(HTTP_PACKAGE)) {
+                continue;
+            }
+            if (parameter != null) {
+                throw new UnsupportedServiceException(variable, "multiple annotations");
+            }
+            Map<String, Object> values = values(elements, mirror);
+            String simpleName = name.substring(HTTP_PACKAGE.length());
+            switch (simpleName) {
+                case "Path":
+                    parameter = new Parameter(index, Parameter.PATH, (String) values.get("value"), (Boolean) values.get("encoded"));
+                    break;
+                case "Query":
+                    parameter = new Parameter(index, Parameter.QUERY, (String) values.get("value"), (Boolean) values.get("encoded"));
+                    break;
+                case "Header":
+                    parameter = new Parameter(index, Parameter.HEADER, (String) values.get("value"), false);
+                    break;
+                case "Field":
+                    if (!formEncoded) {
+                        throw new UnsupportedServiceException(variable, "@Field without @FormUrlEncoded");
+                    }
+                    parameter = new Parameter(index, Parameter.FIELD, (String) values.get("value"), (Boolean) values.get("encoded"));
+                    break;
+                case "Body":
+                    if (!hasBody || formEncoded || bodyIndex >= 0) {
+                        throw new UnsupportedServiceException(variable, "@Body");
+                    }
+                    bodyIndex = index;
+                    parameter = new Parameter(index, Parameter.BODY, null, false);
+                    break;
+                default:
+                    throw new UnsupportedServiceException(variable, "@" + simpleName);
+            }
+        }
+        if (parameter == null) {
+            throw new UnsupportedServiceException(variable, "parameter without annotation");
+        }
+        parameters.add(parameter);
+    }
+
+    private static String annotationName(AnnotationMirror mirror) {
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private static Map<String, Object> values(Elements elements, AnnotationMirror mirror) {
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+        }
+        return values;
+    }
+
+    static final class Parameter {
+
+        static final String PATH = "path";
+
+        static final String QUERY = "query";
+
+        static final String HEADER = "header";
+
+        static final String FIELD = "field";
+
+        static final String BODY = "body";
+
+        final int index;
+
+        final String kind;
+
+        final String name;
+
+        final boolean encoded;
+
+        Parameter(int index, String kind, String name, boolean encoded) {
+            this.index = index;
+            this.kind = kind;
+            this.name = name;
+            this.encoded = encoded;
+        }
+    }
+}
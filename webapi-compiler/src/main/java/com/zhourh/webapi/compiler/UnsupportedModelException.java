@@ -0,0 +1,20 @@
+package com.zhourh.webapi.compiler;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Thrown when a model uses what the compiler doesn't bind, the model is left to fastjson
+ */
+final class UnsupportedModelException extends Exception {
+
+    private final Element element;
+
+    UnsupportedModelException(Element element, String message) {
+        super(message);
+        this.element = element;
+    }
+
+    Element getElement() {
+        return element;
+    }
+}
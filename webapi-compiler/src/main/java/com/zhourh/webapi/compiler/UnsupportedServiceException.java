@@ -0,0 +1,20 @@
+package com.zhourh.webapi.compiler;
+
+import javax.lang.model.element.Element;
+
+/**
+ * Thrown when a service uses what the compiler doesn't generate, the service is left to the Retrofit proxy
+ */
+final class UnsupportedServiceException extends Exception {
+
+    private final Element element;
+
+    UnsupportedServiceException(Element element, String message) {
+        super(message);
+        this.element = element;
+    }
+
+    Element getElement() {
+        return element;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zhourh.webapi.compiler;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+
+/**
+ * Generate the implementations of the service interfaces annotated with {@code com.zhourh.webapi.service.WebApiService},
+ * the interface using the annotations not supported is skipped with a warning, it is still served by the Retrofit proxy
+ */
+public final class WebApiServiceProcessor extends AbstractProcessor {
+
+    private static final String WEB_API_SERVICE = "com.zhourh.webapi.service.WebApiService";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(WEB_API_SERVICE);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(WEB_API_SERVICE);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            TypeElement service = (TypeElement) element;
+            try {
+                new ServiceGenerator(processingEnv.getElementUtils(), processingEnv.getTypeUtils(), service)
+                        .generate()
+                        .writeTo(processingEnv.getFiler());
+            } catch (UnsupportedServiceException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        service.getQualifiedName() + " is served by the Retrofit proxy, unsupported: " + e.getMessage(),
+                        e.getElement());
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to write the generated service of " + service.getQualifiedName() + ": " + e.getMessage(),
+                        service);
+            }
+        }
+        return true;
+    }
+}
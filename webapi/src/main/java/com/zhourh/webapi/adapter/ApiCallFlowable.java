@@ -0,0 +1,62 @@
+package com.zhourh.webapi.adapter;
+
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Type;
+
+import io.reactivex.Flowable;
+import org.reactivestreams.Subscriber;
+import retrofit2.Call;
+
+/**
+ * The {@linkplain Flowable} returned by the service methods,
+ * it keeps the retrofit call and the response type so that {@linkplain com.zhourh.webapi.core.WebApi}
+ * is able to send the call in other ways, such as batching
+ * @param <T> the response type
+ */
+public final class ApiCallFlowable<T> extends Flowable<T> {
+
+    private final Flowable<T> source;
+
+    private final Call<?> call;
+
+    private final Type responseType;
+
+    private final String endpoint;
+
+    ApiCallFlowable(Flowable<T> source, Call<?> call, Type responseType, String endpoint) {
+        this.source = source;
+        this.call = call;
+        this.responseType = responseType;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * @return the retrofit call, clone it before executing
+     */
+    @NonNull
+    public Call<?> call() {
+        return call;
+    }
+
+    /**
+     * @return the response body type of the service method, such as {@code UApiResult<List<CommonQuestionDO>>}
+     */
+    @NonNull
+    public Type responseType() {
+        return responseType;
+    }
+
+    /**
+     * @return the http method and the relative path of the service method, such as {@code GET help/questions}
+     */
+    @NonNull
+    public String endpoint() {
+        return endpoint;
+    }
+
+    @Override
+    protected void subscribeActual(Subscriber<? super T> s) {
+        source.subscribe(s);
+    }
+}
@@ -0,0 +1,131 @@
+package com.zhourh.webapi.adapter;
+
+import android.support.annotation.NonNull;
+
+import com.zhourh.webapi.cache.RequestKey;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import okhttp3.Request;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Single-flight layer for identical GET/HEAD requests.
+ * <p>
+ * While a request is in flight, every other subscription with the same {@linkplain RequestKey},
+ * the method, url, response type and headers, joins the same upstream call, so the response is only downloaded and decoded once and the decoded
+ * {@linkplain com.zhourh.webapi.response.ApiResult} is fanned out to every subscriber.
+ * Each subscriber keeps its own subscription, so cancelling one request does not affect the others,
+ * the upstream call is only cancelled when the last subscriber goes away.
+ */
+public final class RequestCoalescer {
+
+    /**
+     * The shared upstream of the requests in flight, keyed by {@linkplain RequestKey#of(Request, Type)}
+     */
+    private final ConcurrentHashMap<String, Flowable<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final RequestKey requestKey;
+
+    public RequestCoalescer() {
+        this(RequestKey.DEFAULT);
+    }
+
+    /**
+     * @param requestKey the key of the identical requests, the same as the memory cache
+     */
+    public RequestCoalescer(@NonNull RequestKey requestKey) {
+        this.requestKey = checkNotNull(requestKey, "requestKey == null");
+    }
+
+    /**
+     * Wrap the upstream of a call, the key is computed when subscribed,
+     * so building the request never happens on the caller thread
+     * @param call the retrofit call the upstream created from
+     * @param responseType the response type of the service method
+     * @param upstream the flowable created by the delegate call adapter
+     * @param <T>
+     * @return a flowable share the in flight upstream with the identical requests
+     */
+    @NonNull
+    public <T> Flowable<T> coalesce(@NonNull final Call<?> call, @NonNull final Type responseType,
+                                    @NonNull final Flowable<T> upstream) {
+        return Flowable.defer(new Callable<Publisher<T>>() {
+            @Override
+            public Publisher<T> call() throws Exception {
+                Request request = call.request();
+                if (!isCoalescible(request)) {
+                    return upstream;
+                }
+                return join(requestKey.of(request, responseType), upstream);
+            }
+        });
+    }
+
+    /**
+     * @return the count of distinct requests in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Flowable<T> join(String key, Flowable<T> upstream) {
+        Flowable<?> shared = inFlight.get(key);
+        if (shared != null) {
+            return (Flowable<T>) shared;
+        }
+        Release release = new Release(key);
+        Flowable<T> created = upstream.doOnNext(release)
+                .doOnError(release)
+                .doOnCancel(release)
+                // a subscriber got the shared upstream before the release may subscribe after the value,
+                // it gets the value replayed rather than only the completion
+                .replay(1)
+                .refCount();
+        release.shared = created;
+        shared = inFlight.putIfAbsent(key, created);
+        return shared == null ? created : (Flowable<T>) shared;
+    }
+
+    private static boolean isCoalescible(Request request) {
+        String method = request.method();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    /**
+     * Remove the shared upstream as soon as it emits or terminates,
+     * so the subscribers coming later start a new request and never miss the response
+     */
+    private final class Release implements Consumer<Object>, Action {
+
+        private final String key;
+
+        private volatile Flowable<?> shared;
+
+        Release(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void accept(Object o) throws Exception {
+            run();
+        }
+
+        @Override
+        public void run() throws Exception {
+            Flowable<?> flowable = shared;
+            if (flowable != null) {
+                inFlight.remove(key, flowable);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.zhourh.webapi.adapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zhourh.webapi.breaker.CircuitBreaker;
+import com.zhourh.webapi.cache.MemoryCache;
+import com.zhourh.webapi.retry.RequestRetrier;
+import com.zhourh.webapi.retry.Retry;
+import com.zhourh.webapi.retry.RetryPolicy;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.ResponseBody;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Retrofit;
+import retrofit2.http.DELETE;
+import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.HTTP;
+import retrofit2.http.OPTIONS;
+import retrofit2.http.PATCH;
+import retrofit2.http.POST;
+import retrofit2.http.PUT;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A {@linkplain CallAdapter.Factory} decorate the {@linkplain Flowable} created by the delegate factory
+ * (usually the RxJava2CallAdapterFactory) with the features configured on {@linkplain com.zhourh.webapi.core.WebApi.Builder}.
+ * <p>
+ * All the features are optional, the factory must be configured before it is added to the {@linkplain Retrofit}
+ */
+public final class WebApiCallAdapterFactory extends CallAdapter.Factory {
+
+    private final CallAdapter.Factory delegate;
+
+    private RequestCoalescer coalescer;
+
+    private MemoryCache memoryCache;
+
+    private RequestRetrier retrier;
+
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+    private CircuitBreaker circuitBreaker;
+
+    private long callTimeoutNanos;
+
+    public WebApiCallAdapterFactory(@NonNull CallAdapter.Factory delegate) {
+        this.delegate = checkNotNull(delegate, "delegate == null");
+    }
+
+    /**
+     * Share the in flight upstream between identical requests, see {@linkplain RequestCoalescer}
+     * @param coalescer null to disable
+     * @return
+     */
+    @NonNull
+    public WebApiCallAdapterFactory coalescer(@Nullable RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+        return this;
+    }
+
+    /**
+     * Serve the GET calls from the decoded results in memory, see {@linkplain MemoryCache}
+     * @param memoryCache null to disable
+     * @return
+     */
+    @NonNull
+    public WebApiCallAdapterFactory memoryCache(@Nullable MemoryCache memoryCache) {
+        this.memoryCache = memoryCache;
+        return this;
+    }
+
+    /**
+     * Retry the failed calls, see {@linkplain RequestRetrier}
+     * @param retrier null to disable
+     * @param retryPolicy the policy of the service methods not annotated with {@linkplain Retry}
+     * @return
+     */
+    @NonNull
+    public WebApiCallAdapterFactory retrier(@Nullable RequestRetrier retrier, @NonNull RetryPolicy retryPolicy) {
+        this.retrier = retrier;
+        this.retryPolicy = checkNotNull(retryPolicy, "retryPolicy == null");
+        return this;
+    }
+
+    /**
+     * Fail the calls fast while their host or service method is failing, see {@linkplain CircuitBreaker}
+     * @param circuitBreaker null to disable
+     * @return
+     */
+    @NonNull
+    public WebApiCallAdapterFactory circuitBreaker(@Nullable CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Limit the time of a whole call, including the retries and the redirects, until the response is received
+     * @param timeout 0 for no limit
+     * @param unit the unit of timeout
+     * @return
+     */
+    @NonNull
+    public WebApiCallAdapterFactory callTimeout(long timeout, @NonNull TimeUnit unit) {
+        checkNotNull(unit, "unit == null");
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout < 0");
+        }
+        this.callTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    @Override
+    public CallAdapter<?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        CallAdapter<?> adapter = delegate.get(returnType, annotations, retrofit);
+        if (adapter == null || getRawType(returnType) != Flowable.class) {
+            return adapter;
+        }
+        // a raw body can be consumed only once, it can be neither shared nor cached
+        boolean rawBody = adapter.responseType() == ResponseBody.class;
+        return new WebApiCallAdapter(adapter, endpoint(annotations), rawBody, retryPolicy(annotations));
+    }
+
+    private RetryPolicy retryPolicy(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Retry) {
+                return RetryPolicy.from((Retry) annotation);
+            }
+        }
+        return retryPolicy;
+    }
+
+    /**
+     * @return the http method and the relative path of the service method, such as {@code GET help/questions}
+     */
+    private static String endpoint(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof GET) {
+                return "GET " + ((GET) annotation).value();
+            } else if (annotation instanceof POST) {
+                return "POST " + ((POST) annotation).value();
+            } else if (annotation instanceof PUT) {
+                return "PUT " + ((PUT) annotation).value();
+            } else if (annotation instanceof DELETE) {
+                return "DELETE " + ((DELETE) annotation).value();
+            } else if (annotation instanceof PATCH) {
+                return "PATCH " + ((PATCH) annotation).value();
+            } else if (annotation instanceof HEAD) {
+                return "HEAD " + ((HEAD) annotation).value();
+            } else if (annotation instanceof OPTIONS) {
+                return "OPTIONS " + ((OPTIONS) annotation).value();
+            } else if (annotation instanceof HTTP) {
+                return ((HTTP) annotation).method() + " " + ((HTTP) annotation).path();
+            }
+        }
+        return "UNKNOWN";
+    }
+
+    /**
+     * Report the call timeout as the {@linkplain SocketTimeoutException} like the other timeouts of OkHttp
+     */
+    private static final Function<Throwable, Publisher<Object>> CALL_TIMEOUT = new Function<Throwable, Publisher<Object>>() {
+        @Override
+        public Publisher<Object> apply(Throwable e) throws Exception {
+            if (e instanceof TimeoutException) {
+                SocketTimeoutException timeout = new SocketTimeoutException("call timeout");
+                timeout.initCause(e);
+                return Flowable.error(timeout);
+            }
+            return Flowable.error(e);
+        }
+    };
+
+    private final class WebApiCallAdapter implements CallAdapter<Flowable<?>> {
+
+        private final CallAdapter<?> delegate;
+
+        private final String endpoint;
+
+        private final boolean rawBody;
+
+        private final RetryPolicy retryPolicy;
+
+        WebApiCallAdapter(CallAdapter<?> delegate, String endpoint, boolean rawBody, RetryPolicy retryPolicy) {
+            this.delegate = delegate;
+            this.endpoint = endpoint;
+            this.rawBody = rawBody;
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public Type responseType() {
+            return delegate.responseType();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <R> Flowable<?> adapt(Call<R> call) {
+            Flowable<Object> flowable = (Flowable<Object>) delegate.adapt(call);
+            if (circuitBreaker != null) {
+                flowable = circuitBreaker.protect(call, endpoint, flowable);
+            }
+            if (retrier != null) {
+                flowable = retrier.retry(call, retryPolicy, flowable);
+            }
+            if (callTimeoutNanos > 0) {
+                flowable = flowable.timeout(callTimeoutNanos, TimeUnit.NANOSECONDS, Schedulers.io())
+                        .onErrorResumeNext(CALL_TIMEOUT);
+            }
+            if (rawBody) {
+                return new ApiCallFlowable<>(flowable, call, responseType(), endpoint);
+            }
+            if (coalescer != null) {
+                flowable = coalescer.coalesce(call, responseType(), flowable);
+            }
+            if (memoryCache != null) {
+                flowable = memoryCache.cache(call, responseType(), flowable);
+            }
+            return new ApiCallFlowable<>(flowable, call, responseType(), endpoint);
+        }
+    }
+}
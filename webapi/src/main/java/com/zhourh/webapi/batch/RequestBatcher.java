@@ -0,0 +1,334 @@
+package com.zhourh.webapi.batch;
+
+import android.support.annotation.NonNull;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import retrofit2.Call;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Collect the calls issued within a short window, or up to a max count, and send them to the batch endpoint
+ * of the server in one http request.
+ * <p>
+ * The batch request is a json array of the calls:
+ * <pre>{@code
+ * [{"method": "POST", "url": "https://host/users", "headers": {"name": "value"},
+ *   "contentType": "application/x-www-form-urlencoded", "body": "..."}, ...]
+ * }</pre>
+ * and the server must reply a json array of the response bodies in the same order,
+ * each of them is decoded to the response type of its own call.
+ * A call cancelled before the batch is sent is removed from the batch, the batch request is cancelled
+ * when none of its calls is waiting, all of them are cancelled or delivered.
+ */
+public final class RequestBatcher {
+
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final okhttp3.Call.Factory callFactory;
+
+    private final HttpUrl endpoint;
+
+    private final long windowNanos;
+
+    private final int maxSize;
+
+    private final Object lock = new Object();
+
+    private List<Pending> pendings = new ArrayList<>();
+
+    /**
+     * The window flush of the pendings, guarded by lock
+     */
+    private Disposable windowFlush;
+
+    /**
+     * @param callFactory the http client
+     * @param endpoint the batch endpoint of the server
+     * @param window the calls issued within the window after the first one are sent together
+     * @param unit the unit of window
+     * @param maxSize the batch is sent at once when the count of calls reach it
+     */
+    public RequestBatcher(@NonNull okhttp3.Call.Factory callFactory, @NonNull HttpUrl endpoint,
+                          long window, @NonNull TimeUnit unit, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.callFactory = checkNotNull(callFactory, "callFactory == null");
+        this.endpoint = checkNotNull(endpoint, "endpoint == null");
+        this.windowNanos = checkNotNull(unit, "unit == null").toNanos(window);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param call the retrofit call of a service method
+     * @param responseType the response type of the service method
+     * @param <T>
+     * @return a flowable emit the decoded response when subscribed and the batch replied
+     */
+    @NonNull
+    public <T> Flowable<T> enqueue(@NonNull final Call<?> call, @NonNull final Type responseType) {
+        return Flowable.create(new FlowableOnSubscribe<T>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public void subscribe(FlowableEmitter<T> emitter) throws Exception {
+                // the result is decoded to the response type of the call
+                final Pending pending = new Pending(call.request(), responseType, (FlowableEmitter<Object>) emitter);
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        Batch batch;
+                        synchronized (lock) {
+                            if (pendings.remove(pending)) {
+                                return;
+                            }
+                            batch = pending.batch;
+                        }
+                        // also called when the call is delivered
+                        if (batch != null) {
+                            batch.released();
+                        }
+                    }
+                });
+                add(pending);
+            }
+        }, BackpressureStrategy.LATEST);
+    }
+
+    private void add(Pending pending) {
+        synchronized (lock) {
+            pendings.add(pending);
+            if (pendings.size() >= maxSize) {
+                Schedulers.io().scheduleDirect(new Flush(pendings, true));
+            } else if (pendings.size() == 1) {
+                windowFlush = Schedulers.io().scheduleDirect(new Flush(pendings, false), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * @param expected the pendings the flush is scheduled for
+     * @param full true if the batch is full, the window flush is cancelled then,
+     *             false if it is the window flush itself, which must not interrupt its own thread
+     * @return null if they are flushed already, such as the window flush after the batch is full
+     */
+    private Batch drain(List<Pending> expected, boolean full) {
+        synchronized (lock) {
+            if (pendings != expected || pendings.isEmpty()) {
+                return null;
+            }
+            if (full && windowFlush != null) {
+                windowFlush.dispose();
+            }
+            windowFlush = null;
+            Batch batch = new Batch(pendings);
+            for (Pending pending : pendings) {
+                pending.batch = batch;
+            }
+            pendings = new ArrayList<>();
+            return batch;
+        }
+    }
+
+    private void send(Batch sending) {
+        List<Pending> batch = sending.pendings;
+        Response response;
+        try {
+            okhttp3.Call call = callFactory.newCall(batchRequest(batch));
+            sending.sent(call);
+            response = call.execute();
+        } catch (IOException e) {
+            fail(batch, 0, e);
+            return;
+        }
+        ResponseBody body = response.body();
+        if (!response.isSuccessful()) {
+            fail(batch, 0, new HttpException(retrofit2.Response.error(body, response)));
+            return;
+        }
+        int delivered = 0;
+        JSONReader reader = new JSONReader(new InputStreamReader(body.byteStream(), charset(body)));
+        try {
+            reader.startArray();
+            while (delivered < batch.size() && reader.hasNext()) {
+                Pending pending = batch.get(delivered);
+                Object result = reader.readObject(pending.responseType);
+                delivered++;
+                if (!pending.emitter.isCancelled()) {
+                    pending.emitter.onNext(result);
+                    pending.emitter.onComplete();
+                }
+            }
+            reader.endArray();
+            if (delivered < batch.size()) {
+                fail(batch, delivered, new IOException("The batch replied " + delivered + " of " + batch.size() + " responses"));
+            }
+        } catch (Exception e) {
+            fail(batch, delivered, e);
+        } finally {
+            try {
+                // throws if the array is not read to the end
+                reader.close();
+            } catch (Exception ignored) {
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    private Request batchRequest(List<Pending> batch) throws IOException {
+        JSONArray calls = new JSONArray(batch.size());
+        for (Pending pending : batch) {
+            Request request = pending.request;
+            JSONObject call = new JSONObject();
+            call.put("method", request.method());
+            call.put("url", request.url().toString());
+            Headers headers = request.headers();
+            if (headers.size() > 0) {
+                JSONObject headerObject = new JSONObject();
+                for (int i = 0; i < headers.size(); i++) {
+                    headerObject.put(headers.name(i), headers.value(i));
+                }
+                call.put("headers", headerObject);
+            }
+            RequestBody body = request.body();
+            if (body != null) {
+                Buffer buffer = new Buffer();
+                body.writeTo(buffer);
+                if (body.contentType() != null) {
+                    call.put("contentType", body.contentType().toString());
+                }
+                call.put("body", buffer.readUtf8());
+            }
+            calls.add(call);
+        }
+        // the batch reply is read as json, even if the calls of the batch prefer MessagePack
+        return new Request.Builder().url(endpoint)
+                .header("Accept", "application/json")
+                .post(RequestBody.create(JSON_TYPE, JSON.toJSONString(calls)))
+                .build();
+    }
+
+    private static void fail(List<Pending> batch, int from, Throwable e) {
+        for (int i = from; i < batch.size(); i++) {
+            FlowableEmitter<Object> emitter = batch.get(i).emitter;
+            if (!emitter.isCancelled()) {
+                emitter.onError(e);
+            }
+        }
+    }
+
+    private static Charset charset(ResponseBody body) {
+        MediaType contentType = body.contentType();
+        return contentType != null ? contentType.charset(UTF_8) : UTF_8;
+    }
+
+    private static final class Pending {
+
+        final Request request;
+
+        final Type responseType;
+
+        final FlowableEmitter<Object> emitter;
+
+        /**
+         * The batch sending it, guarded by lock
+         */
+        Batch batch;
+
+        Pending(Request request, Type responseType, FlowableEmitter<Object> emitter) {
+            this.request = request;
+            this.responseType = responseType;
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * The calls sent in one batch request, it is cancelled when all of them are released
+     */
+    private static final class Batch {
+
+        final List<Pending> pendings;
+
+        private final AtomicInteger live;
+
+        private volatile okhttp3.Call call;
+
+        private volatile boolean cancelled;
+
+        Batch(List<Pending> pendings) {
+            this.pendings = pendings;
+            this.live = new AtomicInteger(pendings.size());
+        }
+
+        void sent(okhttp3.Call call) {
+            this.call = call;
+            // all the calls are released before the request is created
+            if (cancelled) {
+                call.cancel();
+            }
+        }
+
+        void released() {
+            if (live.decrementAndGet() != 0) {
+                return;
+            }
+            cancelled = true;
+            okhttp3.Call c = call;
+            if (c != null) {
+                c.cancel();
+            }
+        }
+    }
+
+    private final class Flush implements Runnable {
+
+        private final List<Pending> expected;
+
+        private final boolean full;
+
+        Flush(List<Pending> expected, boolean full) {
+            this.expected = expected;
+            this.full = full;
+        }
+
+        @Override
+        public void run() {
+            Batch batch = drain(expected, full);
+            if (batch != null) {
+                send(batch);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.zhourh.webapi.breaker;
+
+import android.support.annotation.NonNull;
+
+/**
+ * The state of a host or a service method, driven by the outcomes of the recent requests
+ */
+public final class Circuit {
+
+    private final String key;
+
+    private final CircuitBreaker.Config config;
+
+    /**
+     * The sliding window of the recent outcomes, the bit 1 means failed or slow
+     */
+    private final boolean[] failures;
+
+    private final boolean[] slows;
+
+    private int recorded;
+
+    private int next;
+
+    private CircuitState state = CircuitState.CLOSED;
+
+    private long openedNanos;
+
+    private int probesInFlight;
+
+    private int probesSucceeded;
+
+    private int openCount;
+
+    Circuit(String key, CircuitBreaker.Config config) {
+        this.key = key;
+        this.config = config;
+        this.failures = new boolean[config.windowSize];
+        this.slows = new boolean[config.windowSize];
+    }
+
+    /**
+     * @return whether the request is allowed, a probe is counted if half open
+     */
+    synchronized boolean tryAcquire() {
+        if (state == CircuitState.OPEN) {
+            if (System.nanoTime() - openedNanos < config.openNanos) {
+                return false;
+            }
+            state = CircuitState.HALF_OPEN;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (probesInFlight + probesSucceeded >= config.probes) {
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Release the probe of a cancelled request without an outcome
+     */
+    synchronized void release() {
+        if (state == CircuitState.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    synchronized void record(boolean failed, long nanos) {
+        boolean slow = nanos >= config.slowCallNanos;
+        if (state == CircuitState.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (failed || slow) {
+                open();
+            } else if (++probesSucceeded >= config.probes) {
+                close();
+            }
+            return;
+        }
+        if (state == CircuitState.OPEN) {
+            // the outcome of a request sent before the circuit opened
+            return;
+        }
+        failures[next] = failed;
+        slows[next] = slow;
+        next = (next + 1) % failures.length;
+        recorded = Math.min(recorded + 1, failures.length);
+        if (recorded >= config.minimumCalls
+                && (getFailureRate() >= config.failureRateThreshold || getSlowCallRate() >= config.slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = CircuitState.OPEN;
+        openedNanos = System.nanoTime();
+        openCount++;
+    }
+
+    private void close() {
+        state = CircuitState.CLOSED;
+        recorded = 0;
+        next = 0;
+    }
+
+    /**
+     * @return the host or the service method
+     */
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    @NonNull
+    public synchronized CircuitState getState() {
+        if (state == CircuitState.OPEN && System.nanoTime() - openedNanos >= config.openNanos) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return the rate of failed requests in the sliding window
+     */
+    public synchronized float getFailureRate() {
+        return rate(failures);
+    }
+
+    /**
+     * @return the rate of slow requests in the sliding window
+     */
+    public synchronized float getSlowCallRate() {
+        return rate(slows);
+    }
+
+    /**
+     * @return how many times the circuit opened
+     */
+    public synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    private float rate(boolean[] outcomes) {
+        if (recorded == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < recorded; i++) {
+            if (outcomes[i]) {
+                count++;
+            }
+        }
+        return (float) count / recorded;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Circuit[" + key + ',' + getState() + ",failureRate=" + rate(failures)
+                + ",slowCallRate=" + rate(slows) + ",opened=" + openCount + ']';
+    }
+}
@@ -0,0 +1,279 @@
+package com.zhourh.webapi.breaker;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+import com.zhourh.webapi.exception.CircuitOpenException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Fail the requests fast with {@linkplain CircuitOpenException} while their host or service method is failing.
+ * <p>
+ * Every host and every service method has its own {@linkplain Circuit}, a request is sent only if both of them allow.
+ * A circuit opens when the rate of failed or slow requests in its sliding window exceeds the threshold,
+ * after the open duration a few probe requests are sent, the circuit is closed if all of them succeed.
+ * The io errors and the http status 5xx are failures, the {@linkplain com.zhourh.webapi.exception.ApiException}
+ * replied by a working server is not.
+ */
+public final class CircuitBreaker {
+
+    private final Config config;
+
+    private final ConcurrentHashMap<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    private CircuitBreaker(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * @param call the retrofit call the upstream created from, used to find the host
+     * @param endpoint the service method, such as {@code GET help/questions}
+     * @param upstream the flowable created by the delegate call adapter
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    public <T> Flowable<T> protect(@NonNull final Call<?> call, @NonNull final String endpoint,
+                                   @NonNull final Flowable<T> upstream) {
+        checkNotNull(call, "call == null");
+        checkNotNull(endpoint, "endpoint == null");
+        checkNotNull(upstream, "upstream == null");
+        return Flowable.defer(new Callable<Publisher<T>>() {
+            @Override
+            public Publisher<T> call() throws Exception {
+                String host = call.request().url().host();
+                Circuit hostCircuit = circuit(host);
+                if (!hostCircuit.tryAcquire()) {
+                    return Flowable.error(new CircuitOpenException(host));
+                }
+                Circuit endpointCircuit = circuit(host + ' ' + endpoint);
+                if (!endpointCircuit.tryAcquire()) {
+                    hostCircuit.release();
+                    return Flowable.error(new CircuitOpenException(endpointCircuit.getKey()));
+                }
+                Outcome<T> outcome = new Outcome<>(hostCircuit, endpointCircuit);
+                return upstream.doOnNext(outcome)
+                        .doOnError(outcome.error)
+                        .doOnCancel(outcome);
+            }
+        });
+    }
+
+    /**
+     * @param key the host, or the host and the service method, such as {@code www.example.com GET help/questions}
+     * @return null if no request sent to it
+     */
+    @Nullable
+    public Circuit get(@NonNull String key) {
+        return circuits.get(key);
+    }
+
+    /**
+     * @return a snapshot of all the circuits, to export their states
+     */
+    @NonNull
+    public Collection<Circuit> getCircuits() {
+        return new ArrayList<>(circuits.values());
+    }
+
+    private Circuit circuit(String key) {
+        Circuit circuit = circuits.get(key);
+        if (circuit == null) {
+            Circuit newCircuit = new Circuit(key, config);
+            circuit = circuits.putIfAbsent(key, newCircuit);
+            if (circuit == null) {
+                circuit = newCircuit;
+            }
+        }
+        return circuit;
+    }
+
+    private static boolean isFailure(Throwable e) {
+        if (e instanceof HttpException) {
+            return ((HttpException) e).code() >= 500;
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * Record the outcome of a request once, on the first item or the error, release the probe if cancelled before
+     */
+    private static final class Outcome<T> implements Consumer<T>, Action {
+
+        private final Circuit hostCircuit;
+
+        private final Circuit endpointCircuit;
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        final Consumer<Throwable> error = new Consumer<Throwable>() {
+            @Override
+            public void accept(Throwable e) throws Exception {
+                record(isFailure(e));
+            }
+        };
+
+        Outcome(Circuit hostCircuit, Circuit endpointCircuit) {
+            this.hostCircuit = hostCircuit;
+            this.endpointCircuit = endpointCircuit;
+        }
+
+        @Override
+        public void accept(T t) throws Exception {
+            record(false);
+        }
+
+        @Override
+        public void run() throws Exception {
+            if (done.compareAndSet(false, true)) {
+                hostCircuit.release();
+                endpointCircuit.release();
+            }
+        }
+
+        private void record(boolean failed) {
+            if (done.compareAndSet(false, true)) {
+                long nanos = System.nanoTime() - startNanos;
+                hostCircuit.record(failed, nanos);
+                endpointCircuit.record(failed, nanos);
+            }
+        }
+    }
+
+    static final class Config {
+
+        final int windowSize;
+
+        final int minimumCalls;
+
+        final float failureRateThreshold;
+
+        final float slowCallRateThreshold;
+
+        final long slowCallNanos;
+
+        final long openNanos;
+
+        final int probes;
+
+        Config(Builder builder) {
+            this.windowSize = builder.windowSize;
+            this.minimumCalls = builder.minimumCalls;
+            this.failureRateThreshold = builder.failureRateThreshold;
+            this.slowCallRateThreshold = builder.slowCallRateThreshold;
+            this.slowCallNanos = builder.slowCallNanos;
+            this.openNanos = builder.openNanos;
+            this.probes = builder.probes;
+        }
+    }
+
+    public static final class Builder {
+
+        private int windowSize = 20;
+
+        private int minimumCalls = 10;
+
+        private float failureRateThreshold = 0.5f;
+
+        private float slowCallRateThreshold = 0.8f;
+
+        private long slowCallNanos = TimeUnit.SECONDS.toNanos(5);
+
+        private long openNanos = TimeUnit.SECONDS.toNanos(30);
+
+        private int probes = 3;
+
+        /**
+         * @param windowSize the count of the recent outcomes kept, 20 by default
+         * @param minimumCalls the circuit never opens before so many outcomes recorded, 10 by default
+         * @return
+         */
+        @NonNull
+        public Builder window(int windowSize, int minimumCalls) {
+            if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+                throw new IllegalArgumentException("windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize");
+            }
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        /**
+         * @param failureRateThreshold the circuit opens when the rate of failures reach it, 0.5 by default
+         * @return
+         */
+        @NonNull
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("failureRateThreshold <= 0 || failureRateThreshold > 1");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param slowCallDuration the requests take longer are slow, 5 seconds by default
+         * @param unit the unit of slowCallDuration
+         * @param slowCallRateThreshold the circuit opens when the rate of slow requests reach it, 0.8 by default
+         * @return
+         */
+        @NonNull
+        public Builder slowCall(long slowCallDuration, @NonNull TimeUnit unit, float slowCallRateThreshold) {
+            checkNotNull(unit, "unit == null");
+            if (slowCallRateThreshold <= 0 || slowCallRateThreshold > 1) {
+                throw new IllegalArgumentException("slowCallRateThreshold <= 0 || slowCallRateThreshold > 1");
+            }
+            this.slowCallNanos = unit.toNanos(slowCallDuration);
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * @param openDuration how long the requests fail fast before probing, 30 seconds by default
+         * @param unit the unit of openDuration
+         * @return
+         */
+        @NonNull
+        public Builder openDuration(long openDuration, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            this.openNanos = unit.toNanos(openDuration);
+            return this;
+        }
+
+        /**
+         * @param probes the count of the requests sent when half open, 3 by default
+         * @return
+         */
+        @NonNull
+        public Builder probes(int probes) {
+            if (probes <= 0) {
+                throw new IllegalArgumentException("probes <= 0");
+            }
+            this.probes = probes;
+            return this;
+        }
+
+        @NonNull
+        public CircuitBreaker build() {
+            return new CircuitBreaker(new Config(this));
+        }
+    }
+}
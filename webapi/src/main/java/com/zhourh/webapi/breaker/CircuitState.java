@@ -0,0 +1,22 @@
+package com.zhourh.webapi.breaker;
+
+/**
+ * The state of a {@linkplain Circuit}
+ */
+public enum CircuitState {
+
+    /**
+     * The requests are sent, the outcomes are recorded in the sliding window
+     */
+    CLOSED,
+
+    /**
+     * The requests fail fast, until the open duration elapsed
+     */
+    OPEN,
+
+    /**
+     * A few probe requests are sent, the circuit is closed if all of them succeed, otherwise opened again
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,347 @@
+package com.zhourh.webapi.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+import com.zhourh.webapi.exception.CacheMissException;
+import com.zhourh.webapi.response.ApiResult;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.FlowableOnSubscribe;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import okhttp3.CacheControl;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Read the GET requests by a {@linkplain ReadPolicy}, from the decoded results in the {@linkplain MemoryCache},
+ * the OkHttp disk cache, or the network.
+ * <p>
+ * The results are stored in memory with the ETag and Last-Modified of the response, keyed by the {@linkplain RequestKey}
+ * of the memory cache, so a result is never revalidated for the request of another user. The next request of them
+ * is sent with If-None-Match and If-Modified-Since, and a 304 reply reuses the result in memory,
+ * neither the body is downloaded nor the json is decoded. When the result is not in memory,
+ * it is read from the disk cache if enabled by {@linkplain com.zhourh.webapi.core.WebApi.Builder#cache(boolean)},
+ * so the results are still served when the network is down after the app restarts.
+ * <p>
+ * The network request of a policy is sent by the call factory of the retrofit directly,
+ * it is neither retried nor protected by the circuit breaker
+ */
+public final class CacheReader {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Retrofit retrofit;
+
+    private final MemoryCache memoryCache;
+
+    private final boolean diskCache;
+
+    private final ConcurrentHashMap<Type, Converter<ResponseBody, ?>> converters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+    private final AtomicInteger fallbackCount = new AtomicInteger();
+
+    /**
+     * @param retrofit the retrofit of the call factory and the converters
+     * @param memoryCache the memory tier, null to read the disk cache and the network only
+     * @param diskCache whether the http client has a disk cache
+     */
+    public CacheReader(@NonNull Retrofit retrofit, @Nullable MemoryCache memoryCache, boolean diskCache) {
+        this.retrofit = checkNotNull(retrofit, "retrofit == null");
+        this.memoryCache = memoryCache;
+        this.diskCache = diskCache;
+    }
+
+    /**
+     * @param call the retrofit call the upstream created from
+     * @param responseType the response type of the service method
+     * @param policy
+     * @param upstream the service call, returned as it is for {@linkplain ReadPolicy#DEFAULT} or the other methods than GET
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public <T> Flowable<T> read(@NonNull Call<?> call, @NonNull Type responseType, @NonNull ReadPolicy policy,
+                                @NonNull Flowable<T> upstream) {
+        checkNotNull(policy, "policy == null");
+        final Request request = call.request();
+        if (policy == ReadPolicy.DEFAULT || !"GET".equals(request.method())) {
+            return upstream;
+        }
+        final String key = memoryCache != null ? memoryCache.key(request, responseType) : null;
+        Flowable<Fetched> fetched;
+        switch (policy) {
+            case CACHE_ONLY:
+                fetched = cached(request, key, responseType).switchIfEmpty(Flowable.<Fetched>error(
+                        new CacheMissException("Not cached: " + request.url())));
+                break;
+            case NETWORK_FIRST:
+                fetched = networkFirst(request, key, responseType);
+                break;
+            case CACHE_THEN_NETWORK:
+                fetched = cacheThenNetwork(request, key, responseType);
+                break;
+            default:
+                throw new AssertionError(policy);
+        }
+        return (Flowable<T>) fetched.map(RESULT);
+    }
+
+    /**
+     * @return the count of the requests the server replied 304, the result in memory is reused
+     */
+    public int notModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * @return the count of the {@linkplain ReadPolicy#NETWORK_FIRST} requests served from the cache because the network failed
+     */
+    public int fallbackCount() {
+        return fallbackCount.get();
+    }
+
+    private Flowable<Fetched> networkFirst(final Request request, final String key, final Type responseType) {
+        return network(request, key, responseType).onErrorResumeNext(new Function<Throwable, Publisher<Fetched>>() {
+            @Override
+            public Publisher<Fetched> apply(final Throwable e) throws Exception {
+                if (!isUnavailable(e)) {
+                    return Flowable.error(e);
+                }
+                return cached(request, key, responseType)
+                        .doOnNext(new Consumer<Fetched>() {
+                            @Override
+                            public void accept(Fetched fetched) throws Exception {
+                                fallbackCount.incrementAndGet();
+                            }
+                        })
+                        .switchIfEmpty(Flowable.<Fetched>error(e));
+            }
+        });
+    }
+
+    private Flowable<Fetched> cacheThenNetwork(final Request request, final String key, final Type responseType) {
+        return Flowable.defer(new Callable<Publisher<Fetched>>() {
+            @Override
+            public Publisher<Fetched> call() throws Exception {
+                // per subscription, whether the cached result is delivered
+                final boolean[] delivered = new boolean[1];
+                Flowable<Fetched> cached = cached(request, key, responseType)
+                        .doOnNext(new Consumer<Fetched>() {
+                            @Override
+                            public void accept(Fetched fetched) throws Exception {
+                                delivered[0] = true;
+                            }
+                        });
+                return cached.concatWith(network(request, key, responseType).filter(new Predicate<Fetched>() {
+                    @Override
+                    public boolean test(Fetched fetched) throws Exception {
+                        return !(fetched.notModified && delivered[0]);
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * @return the result in memory, otherwise in the disk cache, empty if not cached
+     */
+    private Flowable<Fetched> cached(final Request request, final String key, final Type responseType) {
+        return Flowable.defer(new Callable<Publisher<Fetched>>() {
+            @Override
+            public Publisher<Fetched> call() throws Exception {
+                MemoryCache.Entry entry = memoryCache != null ? memoryCache.get(key) : null;
+                if (entry != null) {
+                    return Flowable.just(new Fetched(entry.result, false));
+                }
+                if (!diskCache) {
+                    return Flowable.empty();
+                }
+                return execute(request.newBuilder().cacheControl(CacheControl.FORCE_CACHE).build(),
+                        new DiskCacheHandler(key, responseType));
+            }
+        });
+    }
+
+    /**
+     * Send the request, conditionally if the result in memory has the validators
+     */
+    private Flowable<Fetched> network(final Request request, final String key, final Type responseType) {
+        return Flowable.defer(new Callable<Publisher<Fetched>>() {
+            @Override
+            public Publisher<Fetched> call() throws Exception {
+                // the validators only, the request is counted by the cached lookup if any
+                MemoryCache.Entry entry = memoryCache != null ? memoryCache.peek(key) : null;
+                if (entry == null || !entry.hasValidators()) {
+                    return execute(request, new ResponseHandler(key, responseType, null));
+                }
+                Request.Builder conditional = request.newBuilder();
+                if (entry.etag != null) {
+                    conditional.header("If-None-Match", entry.etag);
+                }
+                if (entry.lastModified != null) {
+                    conditional.header("If-Modified-Since", entry.lastModified);
+                }
+                return execute(conditional.build(), new ResponseHandler(key, responseType, entry));
+            }
+        });
+    }
+
+    /**
+     * Execute the request on the subscribing thread, the http call is cancelled when the subscription is cancelled
+     */
+    private Flowable<Fetched> execute(final Request request, final ResponseHandler handler) {
+        return Flowable.create(new FlowableOnSubscribe<Fetched>() {
+            @Override
+            public void subscribe(FlowableEmitter<Fetched> emitter) throws Exception {
+                final okhttp3.Call httpCall = retrofit.callFactory().newCall(request);
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        httpCall.cancel();
+                    }
+                });
+                Fetched fetched;
+                try {
+                    fetched = handler.handle(httpCall.execute());
+                } catch (Throwable e) {
+                    if (!emitter.isCancelled()) {
+                        emitter.onError(e);
+                    }
+                    return;
+                }
+                if (fetched != null) {
+                    emitter.onNext(fetched);
+                }
+                emitter.onComplete();
+            }
+        }, BackpressureStrategy.BUFFER);
+    }
+
+    /**
+     * @return whether the request failed because the network is down or the server is unavailable
+     */
+    private static boolean isUnavailable(Throwable e) {
+        return e instanceof IOException || (e instanceof HttpException && ((HttpException) e).code() >= 500);
+    }
+
+    private Converter<ResponseBody, ?> converter(Type responseType) {
+        Converter<ResponseBody, ?> converter = converters.get(responseType);
+        if (converter == null) {
+            converter = retrofit.responseBodyConverter(responseType, NO_ANNOTATIONS);
+            converters.put(responseType, converter);
+        }
+        return converter;
+    }
+
+    /**
+     * Decode the response and store the successful result in memory
+     */
+    private class ResponseHandler {
+
+        final String key;
+
+        final Type responseType;
+
+        /**
+         * The entry revalidated by the request, null if not conditional
+         */
+        final MemoryCache.Entry entry;
+
+        ResponseHandler(String key, Type responseType, MemoryCache.Entry entry) {
+            this.key = key;
+            this.responseType = responseType;
+            this.entry = entry;
+        }
+
+        /**
+         * @return null if there is nothing to deliver
+         * @throws HttpException if the server replied a status other than 2xx and 304
+         */
+        Fetched handle(Response response) throws Exception {
+            ResponseBody body = response.body();
+            try {
+                if (response.code() == 304 && entry != null) {
+                    memoryCache.revalidated(entry);
+                    notModifiedCount.incrementAndGet();
+                    return new Fetched(entry.result, true);
+                }
+                if (!response.isSuccessful()) {
+                    ResponseBody errorBody = ResponseBody.create(body.contentType(), body.bytes());
+                    throw new HttpException(retrofit2.Response.error(errorBody, response));
+                }
+                Object result = converter(responseType).convert(body);
+                if (memoryCache != null && result instanceof ApiResult && ((ApiResult) result).isSuccess()) {
+                    memoryCache.put(key, (ApiResult<?>) result, response.header("ETag"), response.header("Last-Modified"));
+                }
+                return new Fetched(result, false);
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * The disk cache replies 504 for the request forced to the cache if it is not cached
+     */
+    private final class DiskCacheHandler extends ResponseHandler {
+
+        DiskCacheHandler(String key, Type responseType) {
+            super(key, responseType, null);
+        }
+
+        @Override
+        Fetched handle(Response response) throws Exception {
+            if (response.code() == 504) {
+                response.body().close();
+                return null;
+            }
+            return super.handle(response);
+        }
+    }
+
+    private static final class Fetched {
+
+        final Object result;
+
+        /**
+         * The result is reused because the server replied 304
+         */
+        final boolean notModified;
+
+        Fetched(Object result, boolean notModified) {
+            this.result = result;
+            this.notModified = notModified;
+        }
+    }
+
+    private static final Function<Fetched, Object> RESULT = new Function<Fetched, Object>() {
+        @Override
+        public Object apply(Fetched fetched) throws Exception {
+            return fetched.result;
+        }
+    };
+}
@@ -0,0 +1,352 @@
+package com.zhourh.webapi.cache;
+
+import android.support.annotation.NonNull;
+
+import com.alibaba.fastjson.JSON;
+import com.zhourh.webapi.response.ApiResult;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Request;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A bounded LRU cache keep the decoded {@linkplain ApiResult} of the GET requests in memory,
+ * it is the first tier ahead of the OkHttp disk cache, a hit costs neither file I/O nor json decoding.
+ * <p>
+ * The entry older than the ttl is stale, it is still returned at once, and refreshed in the background
+ * (stale-while-revalidate). Only the successful results are cached.
+ * <p>
+ * The size of an entry is measured by a {@linkplain Weigher}, the least recently used entries
+ * are evicted when the total size exceeds the max size.
+ * <p>
+ * The entries stored by {@linkplain CacheReader} keep the validators of the response,
+ * so that they are revalidated by the conditional requests.
+ */
+public final class MemoryCache {
+
+    /**
+     * Measure the size of a cached result, the unit is defined by user, such as the count of items
+     */
+    public interface Weigher {
+
+        /**
+         * @param result the successful result to cache
+         * @return the size of the result, must not be negative
+         */
+        int weigh(@NonNull ApiResult<?> result);
+    }
+
+    /**
+     * The default {@linkplain Weigher}, count based, the count of items if the data is a collection or map, otherwise 1
+     */
+    public static final Weigher DEFAULT_WEIGHER = new Weigher() {
+        @Override
+        public int weigh(@NonNull ApiResult<?> result) {
+            Object data = result.getData();
+            if (data instanceof Collection) {
+                return ((Collection) data).size() + 1;
+            }
+            if (data instanceof Map) {
+                return ((Map) data).size() + 1;
+            }
+            return 1;
+        }
+    };
+
+    /**
+     * A {@linkplain Weigher} in bytes, the utf-8 length of the json of the result, about the size of the response,
+     * it costs a serialization per result stored, the maxSize of the cache is in bytes then
+     */
+    public static final Weigher JSON_BYTES_WEIGHER = new Weigher() {
+        @Override
+        public int weigh(@NonNull ApiResult<?> result) {
+            return JSON.toJSONBytes(result).length;
+        }
+    };
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final Weigher weigher;
+
+    private final RequestKey requestKey;
+
+    private int size;
+
+    private int hitCount;
+
+    private int staleHitCount;
+
+    private int missCount;
+
+    private int evictionCount;
+
+    /**
+     * @param maxSize the max total size of the entries, measured by the weigher
+     * @param ttl the time an entry is fresh after stored
+     * @param unit the unit of ttl
+     * @param weigher {@linkplain #DEFAULT_WEIGHER} if null
+     */
+    public MemoryCache(int maxSize, long ttl, @NonNull TimeUnit unit, Weigher weigher) {
+        this(maxSize, ttl, unit, weigher, RequestKey.DEFAULT);
+    }
+
+    /**
+     * @param maxSize the max total size of the entries, measured by the weigher
+     * @param ttl the time an entry is fresh after stored
+     * @param unit the unit of ttl
+     * @param weigher {@linkplain #DEFAULT_WEIGHER} if null
+     * @param requestKey the key of the entries, such as with the scope of the signed in user
+     */
+    public MemoryCache(int maxSize, long ttl, @NonNull TimeUnit unit, Weigher weigher, @NonNull RequestKey requestKey) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        checkNotNull(unit, "unit == null");
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.weigher = weigher == null ? DEFAULT_WEIGHER : weigher;
+        this.requestKey = checkNotNull(requestKey, "requestKey == null");
+    }
+
+    /**
+     * Serve the GET call from the memory if cached, otherwise store the result of the upstream
+     * @param call the retrofit call the upstream created from
+     * @param responseType the response type of the service method
+     * @param upstream
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    public <T> Flowable<T> cache(@NonNull final Call<?> call, @NonNull final Type responseType,
+                                 @NonNull final Flowable<T> upstream) {
+        return Flowable.defer(new Callable<Publisher<T>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Publisher<T> call() throws Exception {
+                Request request = call.request();
+                if (!"GET".equals(request.method())) {
+                    return upstream;
+                }
+                String key = key(request, responseType);
+                Entry entry = get(key);
+                if (entry == null) {
+                    return upstream.doOnNext(new Store(key));
+                }
+                if (entry.isStale(System.nanoTime(), ttlNanos)) {
+                    refresh(key, entry, upstream);
+                }
+                return Flowable.just((T) entry.result);
+            }
+        });
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the count of the requests served from memory, include the stale hits
+     */
+    public synchronized int hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the count of the requests served from memory but refreshed in the background
+     */
+    public synchronized int staleHitCount() {
+        return staleHitCount;
+    }
+
+    public synchronized int missCount() {
+        return missCount;
+    }
+
+    public synchronized int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        int accesses = hitCount + missCount;
+        int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return "MemoryCache[size=" + size + ",maxSize=" + maxSize + ",hits=" + hitCount
+                + ",staleHits=" + staleHitCount + ",misses=" + missCount
+                + ",evictions=" + evictionCount + ",hitRate=" + hitPercent + "%]";
+    }
+
+    /**
+     * @return the key of the request by the {@linkplain RequestKey} of the cache
+     */
+    String key(Request request, Type responseType) {
+        return requestKey.of(request, responseType);
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        if (entry.isStale(System.nanoTime(), ttlNanos)) {
+            staleHitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the entry without counting a hit or a miss, such as for its validators
+     */
+    synchronized Entry peek(String key) {
+        return entries.get(key);
+    }
+
+    void put(String key, ApiResult<?> result, String etag, String lastModified) {
+        int weight = weigher.weigh(result);
+        if (weight < 0) {
+            throw new IllegalStateException("Negative weight: " + result);
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(result, weight, System.nanoTime(), etag, lastModified));
+            size += weight;
+            if (previous != null) {
+                size -= previous.weight;
+            }
+            trimToSize();
+        }
+    }
+
+    /**
+     * The server replied 304 to the conditional request of the entry, it is fresh again
+     */
+    synchronized void revalidated(Entry entry) {
+        entry.storedAt = System.nanoTime();
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.weight;
+            evictionCount++;
+        }
+    }
+
+    private <T> void refresh(String key, final Entry entry, Flowable<T> upstream) {
+        synchronized (this) {
+            if (entry.refreshing) {
+                return;
+            }
+            entry.refreshing = true;
+        }
+        RefreshDone done = new RefreshDone(entry);
+        upstream.subscribeOn(Schedulers.io())
+                .subscribe(new Store(key), done, done);
+    }
+
+    /**
+     * Allow the entry to be refreshed again if the refresh failed or returned an unsuccessful result
+     */
+    private final class RefreshDone implements Consumer<Throwable>, Action {
+
+        private final Entry entry;
+
+        RefreshDone(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void accept(Throwable throwable) throws Exception {
+            run();
+        }
+
+        @Override
+        public void run() throws Exception {
+            synchronized (MemoryCache.this) {
+                entry.refreshing = false;
+            }
+        }
+    }
+
+    static final class Entry {
+
+        final ApiResult<?> result;
+
+        final int weight;
+
+        /**
+         * The validators of the response, null if the server sent none
+         */
+        final String etag;
+
+        final String lastModified;
+
+        volatile long storedAt;
+
+        boolean refreshing;
+
+        Entry(ApiResult<?> result, int weight, long storedAt, String etag, String lastModified) {
+            this.result = result;
+            this.weight = weight;
+            this.storedAt = storedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean isStale(long now, long ttlNanos) {
+            return now - storedAt > ttlNanos;
+        }
+    }
+
+    /**
+     * Store the successful result emitted by upstream
+     */
+    private final class Store implements Consumer<Object> {
+
+        private final String key;
+
+        Store(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void accept(Object o) throws Exception {
+            if (o instanceof ApiResult && ((ApiResult) o).isSuccess()) {
+                put(key, (ApiResult<?>) o, null, null);
+            }
+        }
+    }
+}
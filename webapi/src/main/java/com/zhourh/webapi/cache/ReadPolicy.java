@@ -0,0 +1,30 @@
+package com.zhourh.webapi.cache;
+
+/**
+ * Where the result of a GET request is read from, selected per request by
+ * {@linkplain com.zhourh.webapi.core.RequestOptions.Builder#readPolicy(ReadPolicy)}, see {@linkplain CacheReader}
+ */
+public enum ReadPolicy {
+
+    /**
+     * The service call as it is, the memory cache is used with its ttl if enabled
+     */
+    DEFAULT,
+
+    /**
+     * Deliver the cached result at once if any, then the result of the network.
+     * The network result is skipped if the server replied it is not modified
+     */
+    CACHE_THEN_NETWORK,
+
+    /**
+     * Deliver the result of the network, the cached result if the network failed or the server is unavailable
+     */
+    NETWORK_FIRST,
+
+    /**
+     * Deliver the cached result, never touch the network,
+     * fail with {@linkplain com.zhourh.webapi.exception.CacheMissException} if not cached
+     */
+    CACHE_ONLY
+}
@@ -0,0 +1,77 @@
+package com.zhourh.webapi.cache;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.Locale;
+
+import okhttp3.Headers;
+import okhttp3.Request;
+
+/**
+ * The key identify the requests which get the same response, shared by the {@linkplain MemoryCache},
+ * the {@linkplain CacheReader} and the {@linkplain com.zhourh.webapi.adapter.RequestCoalescer}.
+ * <p>
+ * It is the method, url and response type, the headers of the request, such as an {@code Authorization}
+ * or {@code Accept-Language} declared by the service method, and the {@linkplain Scope}.
+ * The headers added by the interceptors are not seen here, a {@linkplain Scope} tells the requests
+ * of different users apart when the credentials are added by an interceptor
+ */
+public final class RequestKey {
+
+    /**
+     * The part of the key not in the request, such as the id of the signed in user
+     */
+    public interface Scope {
+
+        /**
+         * @param request the request before the interceptors
+         * @return null for none
+         */
+        @Nullable
+        String scope(@NonNull Request request);
+    }
+
+    public static final RequestKey DEFAULT = new RequestKey(null);
+
+    private final Scope scope;
+
+    private RequestKey(Scope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * @param scope null for none
+     * @return
+     */
+    @NonNull
+    public static RequestKey create(@Nullable Scope scope) {
+        return scope == null ? DEFAULT : new RequestKey(scope);
+    }
+
+    /**
+     * @param request the request before the interceptors
+     * @param responseType the response type of the service method
+     * @return
+     */
+    @NonNull
+    public String of(@NonNull Request request, @NonNull Type responseType) {
+        StringBuilder key = new StringBuilder(request.method()).append(' ').append(request.url())
+                .append(' ').append(responseType);
+        Headers headers = request.headers();
+        if (headers.size() > 0) {
+            // the names are sorted case insensitively, so the order declared does not matter
+            for (String name : headers.names()) {
+                key.append('\n').append(name.toLowerCase(Locale.US)).append(':').append(headers.values(name));
+            }
+        }
+        if (scope != null) {
+            String s = scope.scope(request);
+            if (s != null) {
+                key.append("\nscope:").append(s);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.zhourh.webapi.codec;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The bytes and the cpu time of a {@linkplain ContentCodec}, read it from
+ * {@linkplain com.zhourh.webapi.core.WebApi#getContentCodecStats()}.
+ * The cpu time is the time of the thread spent in the codec only, the reading and writing of the network are excluded
+ */
+public final class CodecStats {
+
+    private final String encoding;
+
+    private final AtomicLong encodeCount = new AtomicLong();
+
+    private final AtomicLong encodePlainBytes = new AtomicLong();
+
+    private final AtomicLong encodeEncodedBytes = new AtomicLong();
+
+    private final AtomicLong encodeCpuNanos = new AtomicLong();
+
+    private final AtomicLong decodeCount = new AtomicLong();
+
+    private final AtomicLong decodeEncodedBytes = new AtomicLong();
+
+    private final AtomicLong decodePlainBytes = new AtomicLong();
+
+    private final AtomicLong decodeCpuNanos = new AtomicLong();
+
+    CodecStats(String encoding) {
+        this.encoding = encoding;
+    }
+
+    void encoded(long plainBytes, long encodedBytes, long cpuNanos) {
+        encodePlainBytes.addAndGet(plainBytes);
+        encodeEncodedBytes.addAndGet(encodedBytes);
+        encodeCpuNanos.addAndGet(cpuNanos);
+    }
+
+    void decoded(long encodedBytes, long plainBytes, long cpuNanos) {
+        decodeEncodedBytes.addAndGet(encodedBytes);
+        decodePlainBytes.addAndGet(plainBytes);
+        decodeCpuNanos.addAndGet(cpuNanos);
+    }
+
+    void encodeStarted() {
+        encodeCount.incrementAndGet();
+    }
+
+    void decodeStarted() {
+        decodeCount.incrementAndGet();
+    }
+
+    @NonNull
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * @return the count of the request bodies encoded
+     */
+    public long getEncodeCount() {
+        return encodeCount.get();
+    }
+
+    public long getEncodePlainBytes() {
+        return encodePlainBytes.get();
+    }
+
+    public long getEncodeEncodedBytes() {
+        return encodeEncodedBytes.get();
+    }
+
+    public long getEncodeCpuNanos() {
+        return encodeCpuNanos.get();
+    }
+
+    /**
+     * @return the count of the response bodies decoded
+     */
+    public long getDecodeCount() {
+        return decodeCount.get();
+    }
+
+    public long getDecodeEncodedBytes() {
+        return decodeEncodedBytes.get();
+    }
+
+    public long getDecodePlainBytes() {
+        return decodePlainBytes.get();
+    }
+
+    public long getDecodeCpuNanos() {
+        return decodeCpuNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CodecStats[" + encoding
+                + ",encode=" + encodeCount.get() + " bodies " + encodePlainBytes.get() + "B->" + encodeEncodedBytes.get()
+                + "B " + encodeCpuNanos.get() / 1000 + "us"
+                + ",decode=" + decodeCount.get() + " bodies " + decodeEncodedBytes.get() + "B->" + decodePlainBytes.get()
+                + "B " + decodeCpuNanos.get() / 1000 + "us]";
+    }
+}
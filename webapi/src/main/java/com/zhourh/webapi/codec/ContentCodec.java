@@ -0,0 +1,87 @@
+package com.zhourh.webapi.codec;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import okio.DeflaterSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.InflaterSource;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * A content encoding of the http bodies, such as gzip, added by
+ * {@linkplain com.zhourh.webapi.core.WebApi.Builder#addContentCodec(ContentCodec)}.
+ * <p>
+ * The codecs are streams, a body is never held in memory whole. gzip and deflate are built in,
+ * the stronger encodings such as br and zstd are plugged in by implementing this with their libraries
+ */
+public interface ContentCodec {
+
+    ContentCodec GZIP = new ContentCodec() {
+        @NonNull
+        @Override
+        public String encoding() {
+            return "gzip";
+        }
+
+        @NonNull
+        @Override
+        public Sink encode(@NonNull Sink sink) {
+            return new GzipSink(sink);
+        }
+
+        @NonNull
+        @Override
+        public Source decode(@NonNull Source source) {
+            return new GzipSource(source);
+        }
+    };
+
+    /**
+     * The zlib format of RFC 1950, as the http deflate encoding is defined
+     */
+    ContentCodec DEFLATE = new ContentCodec() {
+        @NonNull
+        @Override
+        public String encoding() {
+            return "deflate";
+        }
+
+        @NonNull
+        @Override
+        public Sink encode(@NonNull Sink sink) {
+            return new DeflaterSink(sink, new Deflater());
+        }
+
+        @NonNull
+        @Override
+        public Source decode(@NonNull Source source) {
+            return new InflaterSource(source, new Inflater());
+        }
+    };
+
+    /**
+     * @return the token of the Content-Encoding and Accept-Encoding headers, such as {@code gzip} or {@code br}
+     */
+    @NonNull
+    String encoding();
+
+    /**
+     * @param sink where the encoded bytes are written
+     * @return the sink the plain bytes are written to, it is closed when the body is written
+     */
+    @NonNull
+    Sink encode(@NonNull Sink sink) throws IOException;
+
+    /**
+     * @param source where the encoded bytes are read from
+     * @return the source of the plain bytes, it should read the encoded bytes on demand
+     */
+    @NonNull
+    Source decode(@NonNull Source source) throws IOException;
+}
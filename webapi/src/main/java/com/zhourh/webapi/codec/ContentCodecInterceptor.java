@@ -0,0 +1,301 @@
+package com.zhourh.webapi.codec;
+
+import android.os.Debug;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Encode the request bodies and decode the response bodies by the {@linkplain ContentCodec}s,
+ * added as the last application interceptor, so the interceptors ahead of it, such as the logging, see the plain bodies.
+ * <p>
+ * The Accept-Encoding of the requests lists the codecs in the order added, the stronger first,
+ * and gzip at last if not added, the response is decoded as a stream by the codec of its Content-Encoding.
+ * A request body is encoded by the request codec if it is longer than the threshold, or its length is unknown,
+ * enable it only for the servers accept the encoded bodies
+ */
+public final class ContentCodecInterceptor implements Interceptor {
+
+    private final Map<String, ContentCodec> codecs = new LinkedHashMap<>();
+
+    private final Map<String, CodecStats> stats = new LinkedHashMap<>();
+
+    private final String acceptEncoding;
+
+    private final ContentCodec requestCodec;
+
+    private final long requestThreshold;
+
+    /**
+     * @param codecs the codecs of the responses, the preferred first
+     * @param requestCodec the codec of the request bodies, null to send them plain
+     * @param requestThreshold the min length of the request bodies encoded
+     */
+    public ContentCodecInterceptor(@NonNull List<ContentCodec> codecs, @Nullable ContentCodec requestCodec,
+                                   long requestThreshold) {
+        checkNotNull(codecs, "codecs == null");
+        List<ContentCodec> responseCodecs = new ArrayList<>(codecs);
+        // the implicit encoding of OkHttp is still accepted
+        responseCodecs.add(ContentCodec.GZIP);
+        StringBuilder accept = new StringBuilder();
+        for (ContentCodec codec : responseCodecs) {
+            String encoding = codec.encoding().toLowerCase(Locale.US);
+            if (this.codecs.containsKey(encoding)) {
+                continue;
+            }
+            this.codecs.put(encoding, codec);
+            stats.put(encoding, new CodecStats(encoding));
+            if (accept.length() > 0) {
+                accept.append(", ");
+            }
+            accept.append(encoding);
+        }
+        if (requestCodec != null && !stats.containsKey(requestCodec.encoding().toLowerCase(Locale.US))) {
+            stats.put(requestCodec.encoding().toLowerCase(Locale.US), new CodecStats(requestCodec.encoding().toLowerCase(Locale.US)));
+        }
+        this.acceptEncoding = accept.toString();
+        this.requestCodec = requestCodec;
+        this.requestThreshold = requestThreshold;
+    }
+
+    /**
+     * @return the stats of the codecs by their encodings
+     */
+    @NonNull
+    public Map<String, CodecStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Request.Builder builder = request.newBuilder();
+        boolean negotiated = request.header("Accept-Encoding") == null && request.header("Range") == null;
+        if (negotiated) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+        RequestBody body = request.body();
+        if (requestCodec != null && body != null && request.header("Content-Encoding") == null) {
+            long length = body.contentLength();
+            if (length == -1 || length >= requestThreshold) {
+                builder.header("Content-Encoding", requestCodec.encoding())
+                        .method(request.method(), new EncodedRequestBody(body, requestCodec,
+                                stats.get(requestCodec.encoding().toLowerCase(Locale.US))));
+            }
+        }
+        Response response = chain.proceed(builder.build());
+        if (!negotiated) {
+            return response;
+        }
+        String encoding = response.header("Content-Encoding");
+        ContentCodec codec = encoding != null ? codecs.get(encoding.trim().toLowerCase(Locale.US)) : null;
+        if (codec == null || !hasBody(request, response)) {
+            return response;
+        }
+        ResponseBody encoded = response.body();
+        CodecStats codecStats = stats.get(codec.encoding().toLowerCase(Locale.US));
+        codecStats.decodeStarted();
+        Meter meter = new Meter();
+        Source plain = new PlainSource(codec.decode(new EncodedSource(encoded.source(), meter, codecStats)),
+                meter, codecStats);
+        return response.newBuilder()
+                .removeHeader("Content-Encoding")
+                .removeHeader("Content-Length")
+                .body(ResponseBody.create(encoded.contentType(), -1, Okio.buffer(plain)))
+                .build();
+    }
+
+    private static boolean hasBody(Request request, Response response) {
+        if ("HEAD".equals(request.method())) {
+            return false;
+        }
+        int code = response.code();
+        return !(code >= 100 && code < 200) && code != 204 && code != 304;
+    }
+
+    /**
+     * @return the cpu time of the thread, 0 if not supported
+     */
+    private static long cpuNanos() {
+        return Math.max(0, Debug.threadCpuTimeNanos());
+    }
+
+    /**
+     * The cpu time spent in the encoded side of a body, to be excluded from the time of the codec,
+     * a body is read or written by one thread at a time
+     */
+    private static final class Meter {
+
+        long ioNanos;
+    }
+
+    private static final class EncodedSource extends ForwardingSource {
+
+        private final Meter meter;
+
+        private final CodecStats stats;
+
+        EncodedSource(Source delegate, Meter meter, CodecStats stats) {
+            super(delegate);
+            this.meter = meter;
+            this.stats = stats;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long start = cpuNanos();
+            long read = -1;
+            try {
+                read = super.read(sink, byteCount);
+                return read;
+            } finally {
+                meter.ioNanos += cpuNanos() - start;
+                if (read > 0) {
+                    stats.decoded(read, 0, 0);
+                }
+            }
+        }
+    }
+
+    private static final class PlainSource extends ForwardingSource {
+
+        private final Meter meter;
+
+        private final CodecStats stats;
+
+        PlainSource(Source delegate, Meter meter, CodecStats stats) {
+            super(delegate);
+            this.meter = meter;
+            this.stats = stats;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long start = cpuNanos();
+            long ioStart = meter.ioNanos;
+            long read = super.read(sink, byteCount);
+            long cpu = cpuNanos() - start - (meter.ioNanos - ioStart);
+            stats.decoded(0, Math.max(read, 0), Math.max(cpu, 0));
+            return read;
+        }
+    }
+
+    private static final class EncodedRequestBody extends RequestBody {
+
+        private final RequestBody body;
+
+        private final ContentCodec codec;
+
+        private final CodecStats stats;
+
+        EncodedRequestBody(RequestBody body, ContentCodec codec, CodecStats stats) {
+            this.body = body;
+            this.codec = codec;
+            this.stats = stats;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            stats.encodeStarted();
+            Meter meter = new Meter();
+            EncodedSink encoded = new EncodedSink(sink, meter);
+            BufferedSink plain = Okio.buffer(new PlainSink(codec.encode(encoded), meter, stats));
+            body.writeTo(plain);
+            plain.close();
+            stats.encoded(0, encoded.bytes, 0);
+        }
+    }
+
+    /**
+     * The sink of the network, it is flushed but not closed by the codec, the http client closes it
+     */
+    private static final class EncodedSink extends ForwardingSink {
+
+        private final Meter meter;
+
+        long bytes;
+
+        EncodedSink(Sink delegate, Meter meter) {
+            super(delegate);
+            this.meter = meter;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            long start = cpuNanos();
+            try {
+                super.write(source, byteCount);
+                bytes += byteCount;
+            } finally {
+                meter.ioNanos += cpuNanos() - start;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static final class PlainSink extends ForwardingSink {
+
+        private final Meter meter;
+
+        private final CodecStats stats;
+
+        PlainSink(Sink delegate, Meter meter, CodecStats stats) {
+            super(delegate);
+            this.meter = meter;
+            this.stats = stats;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            long start = cpuNanos();
+            long ioStart = meter.ioNanos;
+            super.write(source, byteCount);
+            stats.encoded(byteCount, 0, Math.max(0, cpuNanos() - start - (meter.ioNanos - ioStart)));
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = cpuNanos();
+            long ioStart = meter.ioNanos;
+            super.close();
+            stats.encoded(0, 0, Math.max(0, cpuNanos() - start - (meter.ioNanos - ioStart)));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.zhourh.webapi.converter;
+
+import android.support.annotation.NonNull;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * The json field names of the {@linkplain com.zhourh.webapi.response.ApiResult} envelope,
+ * the converters read the success flag and the message before binding the data
+ */
+public final class ApiEnvelope {
+
+    /**
+     * {@code {"success": true, "message": "...", "data": ...}}
+     */
+    public static final ApiEnvelope DEFAULT = new ApiEnvelope("success", "message", "data");
+
+    private final String successField;
+
+    private final String messageField;
+
+    private final String dataField;
+
+    /**
+     * @param successField the boolean field that {@linkplain com.zhourh.webapi.response.ApiResult#isSuccess()} returns
+     * @param messageField the string field that {@linkplain com.zhourh.webapi.response.ApiResult#getError()} returns
+     * @param dataField the field that {@linkplain com.zhourh.webapi.response.ApiResult#getData()} returns,
+     *                  it must be the name of both the json field and the java field
+     */
+    public ApiEnvelope(@NonNull String successField, @NonNull String messageField, @NonNull String dataField) {
+        this.successField = checkNotNull(successField, "successField == null");
+        this.messageField = checkNotNull(messageField, "messageField == null");
+        this.dataField = checkNotNull(dataField, "dataField == null");
+    }
+
+    public String getSuccessField() {
+        return successField;
+    }
+
+    public String getMessageField() {
+        return messageField;
+    }
+
+    public String getDataField() {
+        return dataField;
+    }
+}
@@ -0,0 +1,191 @@
+package com.zhourh.webapi.converter;
+
+import android.support.annotation.NonNull;
+
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.JSONLexer;
+import com.alibaba.fastjson.parser.JSONReaderScanner;
+import com.zhourh.webapi.exception.ApiException;
+
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.functions.Consumer;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Emit the items of the data array of an {@linkplain com.zhourh.webapi.response.ApiResult} envelope one by one,
+ * while the response body is still downloading.
+ * <p>
+ * An item is only parsed when it is requested by the downstream, so a slow subscriber slows down the reading
+ * of the response instead of buffering the whole list in memory. If the success and message fields precede the data,
+ * an unsuccessful response fails into {@linkplain ApiException} before any item is emitted,
+ * otherwise the error is signaled after the items.
+ */
+public final class ApiResultItemStream {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ApiResultItemStream() {
+    }
+
+    /**
+     * The items are read on the scheduler, whatever thread requests them, such as the main thread
+     * requesting the items after the first prefetch window of an {@code observeOn}
+     * @param body the response body, it should be declared with {@linkplain retrofit2.http.Streaming}
+     *             so that it is not buffered by Retrofit
+     * @param itemType the type of the items in the data array
+     * @param envelope the json field names of the envelope
+     * @param scheduler the scheduler reading the body, such as {@linkplain io.reactivex.schedulers.Schedulers#io()}
+     * @param <T>
+     * @return a cold flowable read the body when subscribed, the body is closed when terminated or cancelled
+     */
+    @NonNull
+    public static <T> Flowable<T> items(@NonNull ResponseBody body, @NonNull Type itemType,
+                                        @NonNull ApiEnvelope envelope, @NonNull Scheduler scheduler) {
+        checkNotNull(scheduler, "scheduler == null");
+        return ApiResultItemStream.<T>items(body, itemType, envelope).subscribeOn(scheduler);
+    }
+
+    /**
+     * The items are read on the thread requesting them, see {@linkplain #items(ResponseBody, Type, ApiEnvelope, Scheduler)}
+     * @param body the response body, it should be declared with {@linkplain retrofit2.http.Streaming}
+     *             so that it is not buffered by Retrofit
+     * @param itemType the type of the items in the data array
+     * @param envelope the json field names of the envelope
+     * @param <T>
+     * @return a cold flowable read the body when subscribed, the body is closed when terminated or cancelled
+     */
+    @NonNull
+    public static <T> Flowable<T> items(@NonNull final ResponseBody body, @NonNull final Type itemType,
+                                        @NonNull final ApiEnvelope envelope) {
+        checkNotNull(body, "body == null");
+        checkNotNull(itemType, "itemType == null");
+        checkNotNull(envelope, "envelope == null");
+        return Flowable.generate(new Callable<Cursor>() {
+            @Override
+            public Cursor call() throws Exception {
+                return new Cursor(body, envelope);
+            }
+        }, new BiFunction<Cursor, Emitter<T>, Cursor>() {
+            @Override
+            public Cursor apply(Cursor cursor, Emitter<T> emitter) throws Exception {
+                cursor.next(itemType, emitter);
+                return cursor;
+            }
+        }, new Consumer<Cursor>() {
+            @Override
+            public void accept(Cursor cursor) throws Exception {
+                cursor.close();
+            }
+        });
+    }
+
+    /**
+     * The reading state of a response
+     */
+    private static final class Cursor {
+
+        private final ResponseBody body;
+
+        private final ApiEnvelope envelope;
+
+        private final JSONLexer lexer;
+
+        private final JSONReader reader;
+
+        private boolean inData;
+
+        private Boolean success;
+
+        private String message;
+
+        private boolean messageRead;
+
+        Cursor(ResponseBody body, ApiEnvelope envelope) {
+            this.body = body;
+            this.envelope = envelope;
+            MediaType contentType = body.contentType();
+            Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+            try {
+                this.lexer = new JSONReaderScanner(new InputStreamReader(body.byteStream(), charset));
+                this.reader = new JSONReader(lexer);
+                reader.startObject();
+            } catch (RuntimeException e) {
+                // the cursor is not returned to the flowable, so it is never closed by the dispose
+                body.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Emit the next item, or terminate the emitter
+         */
+        <T> void next(Type itemType, Emitter<T> emitter) {
+            while (true) {
+                if (inData) {
+                    if (reader.hasNext()) {
+                        T item = reader.readObject(itemType);
+                        emitter.onNext(item);
+                        return;
+                    }
+                    reader.endArray();
+                    inData = false;
+                    continue;
+                }
+                if (!reader.hasNext()) {
+                    reader.endObject();
+                    if (Boolean.FALSE.equals(success)) {
+                        throw new ApiException(message);
+                    }
+                    emitter.onComplete();
+                    return;
+                }
+                String key = reader.readString();
+                if (envelope.getSuccessField().equals(key)) {
+                    success = reader.readObject(Boolean.class);
+                    if (Boolean.FALSE.equals(success) && messageRead) {
+                        throw new ApiException(message);
+                    }
+                } else if (envelope.getMessageField().equals(key)) {
+                    message = reader.readString();
+                    messageRead = true;
+                    if (Boolean.FALSE.equals(success)) {
+                        throw new ApiException(message);
+                    }
+                } else if (envelope.getDataField().equals(key) && !Boolean.FALSE.equals(success) && !nullValue()) {
+                    reader.startArray();
+                    inData = true;
+                } else {
+                    // also a null data, no items then
+                    reader.readObject();
+                }
+            }
+        }
+
+        /**
+         * @return true if the value after the key is null, the reader has only read the colon then
+         */
+        private boolean nullValue() {
+            lexer.skipWhitespace();
+            return lexer.getCurrent() == 'n';
+        }
+
+        void close() {
+            try {
+                reader.close();
+            } finally {
+                body.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONReaderScanner;
+import com.alibaba.fastjson.parser.ParserConfig;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decode a response straight from the response stream by a parser with the generated binders
+ * @param <R> the response type
+ */
+final class JsonBinderConverter<R> implements Converter<ResponseBody, R> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ParserConfig config;
+
+    private final Type type;
+
+    JsonBinderConverter(ParserConfig config, Type type) {
+        this.config = config;
+        this.type = type;
+    }
+
+    @Override
+    public R convert(ResponseBody value) throws IOException {
+        DefaultJSONParser parser = new DefaultJSONParser(
+                new JSONReaderScanner(new InputStreamReader(value.byteStream(), charset(value))), config);
+        try {
+            R result = parser.parseObject(type);
+            parser.handleResovleTask(result);
+            return result;
+        } finally {
+            // release the buffer of the lexer, without checking the rest of the body like parser.close()
+            parser.lexer.close();
+            value.close();
+        }
+    }
+
+    private static Charset charset(ResponseBody value) {
+        MediaType contentType = value.contentType();
+        return contentType != null ? contentType.charset(UTF_8) : UTF_8;
+    }
+}
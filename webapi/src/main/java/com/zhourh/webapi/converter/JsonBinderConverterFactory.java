@@ -0,0 +1,40 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.zhourh.webapi.json.JsonBinders;
+import com.zhourh.webapi.json.JsonModel;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain Converter.Factory} decode the response types with the binders generated from {@linkplain JsonModel}.
+ * <p>
+ * Only the response types containing a generated binder are handled, such as {@code UApiResult<List<CommonQuestionDO>>}
+ * if either of the models is annotated, the others are left to the next converter factory,
+ * so it should be added before the FastJsonConverterFactory.
+ * The binders are put into a {@linkplain ParserConfig} of its own, the global config of fastjson is not changed
+ */
+public final class JsonBinderConverterFactory extends Converter.Factory {
+
+    public static JsonBinderConverterFactory create() {
+        return new JsonBinderConverterFactory();
+    }
+
+    private final ParserConfig config = new ParserConfig();
+
+    private JsonBinderConverterFactory() {
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!JsonBinders.register(config, type)) {
+            return null;
+        }
+        return new JsonBinderConverter<>(config, type);
+    }
+}
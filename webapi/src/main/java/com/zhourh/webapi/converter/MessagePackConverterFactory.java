@@ -0,0 +1,79 @@
+package com.zhourh.webapi.converter;
+
+import android.support.annotation.Nullable;
+
+import com.alibaba.fastjson.parser.ParserConfig;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A {@linkplain Converter.Factory} decode the responses in MessagePack, chosen by the content negotiation.
+ * <p>
+ * The requests prefer MessagePack by the Accept header of {@linkplain #acceptInterceptor()}, and a response
+ * is decoded by its Content-Type, MessagePack by {@linkplain MessagePackResponseConverter}, the others by the next
+ * converter factory, so the servers not supporting it still reply json, and it should be added before the json factories.
+ * The request bodies are left to the next factory
+ */
+public final class MessagePackConverterFactory extends Converter.Factory {
+
+    /**
+     * The Accept header of the requests, json is still accepted
+     */
+    public static final String ACCEPT = "application/x-msgpack, application/json;q=0.9";
+
+    public static MessagePackConverterFactory create() {
+        return new MessagePackConverterFactory();
+    }
+
+    private MessagePackConverterFactory() {
+    }
+
+    /**
+     * @return an interceptor add the {@linkplain #ACCEPT} header to the requests have no Accept header,
+     * the requests read the raw body, such as {@code Flowable<ResponseBody>}, should declare their own Accept header
+     */
+    public static Interceptor acceptInterceptor() {
+        return ACCEPT_INTERCEPTOR;
+    }
+
+    /**
+     * @return whether the content type is MessagePack, such as {@code application/x-msgpack}
+     */
+    public static boolean isMessagePack(@Nullable MediaType contentType) {
+        if (contentType == null || !"application".equals(contentType.type())) {
+            return false;
+        }
+        String subtype = contentType.subtype();
+        return "x-msgpack".equals(subtype) || "msgpack".equals(subtype) || "vnd.msgpack".equals(subtype);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (type == ResponseBody.class || type == Void.class) {
+            return null;
+        }
+        Converter<ResponseBody, Object> delegate = retrofit.nextResponseBodyConverter(this, type, annotations);
+        return new MessagePackResponseConverter<>(ParserConfig.getGlobalInstance(), type, delegate);
+    }
+
+    private static final Interceptor ACCEPT_INTERCEPTOR = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (request.header("Accept") != null) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder().header("Accept", ACCEPT).build());
+        }
+    };
+}
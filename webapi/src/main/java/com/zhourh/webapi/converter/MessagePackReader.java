@@ -0,0 +1,237 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Date;
+
+import okio.BufferedSource;
+
+/**
+ * Read a MessagePack value into the same tree as fastjson, the maps are {@linkplain JSONObject}s,
+ * the arrays are {@linkplain JSONArray}s, the integers are Integer, Long or BigInteger by their size,
+ * the binaries are byte[] and the timestamps are {@linkplain Date}s.
+ * <p>
+ * The lengths are in the headers, so the strings are read by one copy and the numbers are not parsed from text,
+ * which is where the cost of the json goes
+ */
+final class MessagePackReader {
+
+    private static final int MAX_DEPTH = 256;
+
+    /**
+     * The largest collection allocated ahead of its items, so a forged size can't allocate gigabytes for a few bytes,
+     * the larger ones grow as the items are read
+     */
+    private static final int MAX_PRESIZE = 1024;
+
+    private static final byte TIMESTAMP_TYPE = -1;
+
+    private final BufferedSource source;
+
+    private int depth;
+
+    MessagePackReader(BufferedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @return the next value, null for nil
+     * @throws java.io.EOFException if the source is exhausted
+     * @throws JSONException if the bytes are not MessagePack
+     */
+    Object read() throws IOException {
+        int b = readByte() & 0xff;
+        if (b <= 0x7f) {
+            return b;
+        }
+        if (b >= 0xe0) {
+            return (int) (byte) b;
+        }
+        if (b <= 0x8f) {
+            return readMap(b & 0x0f);
+        }
+        if (b <= 0x9f) {
+            return readArray(b & 0x0f);
+        }
+        if (b <= 0xbf) {
+            return readUtf8(b & 0x1f);
+        }
+        switch (b) {
+            case 0xc0:
+                return null;
+            case 0xc2:
+                return Boolean.FALSE;
+            case 0xc3:
+                return Boolean.TRUE;
+            case 0xc4:
+                return readByteArray(readByte() & 0xff);
+            case 0xc5:
+                return readByteArray(readShort() & 0xffff);
+            case 0xc6:
+                return readByteArray(length(readInt()));
+            case 0xc7:
+                return readExt(readByte() & 0xff);
+            case 0xc8:
+                return readExt(readShort() & 0xffff);
+            case 0xc9:
+                return readExt(length(readInt()));
+            case 0xca:
+                return Float.intBitsToFloat(readInt());
+            case 0xcb:
+                return Double.longBitsToDouble(readLong());
+            case 0xcc:
+                return readByte() & 0xff;
+            case 0xcd:
+                return readShort() & 0xffff;
+            case 0xce:
+                return integer(readInt() & 0xffffffffL);
+            case 0xcf:
+                long unsigned = readLong();
+                if (unsigned >= 0) {
+                    return integer(unsigned);
+                }
+                return BigInteger.valueOf(unsigned & Long.MAX_VALUE).setBit(63);
+            case 0xd0:
+                return (int) readByte();
+            case 0xd1:
+                return (int) readShort();
+            case 0xd2:
+                return readInt();
+            case 0xd3:
+                return integer(readLong());
+            case 0xd4:
+                return readExt(1);
+            case 0xd5:
+                return readExt(2);
+            case 0xd6:
+                return readExt(4);
+            case 0xd7:
+                return readExt(8);
+            case 0xd8:
+                return readExt(16);
+            case 0xd9:
+                return readUtf8(readByte() & 0xff);
+            case 0xda:
+                return readUtf8(readShort() & 0xffff);
+            case 0xdb:
+                return readUtf8(length(readInt()));
+            case 0xdc:
+                return readArray(readShort() & 0xffff);
+            case 0xdd:
+                return readArray(length(readInt()));
+            case 0xde:
+                return readMap(readShort() & 0xffff);
+            case 0xdf:
+                return readMap(length(readInt()));
+            default:
+                throw new JSONException("Illegal message pack format: 0x" + Integer.toHexString(b));
+        }
+    }
+
+    private JSONObject readMap(int size) throws IOException {
+        enter();
+        // a HashMap of the capacity no rehash, the size on the wire is not trusted for more than MAX_PRESIZE
+        JSONObject map = new JSONObject(Math.min(size, MAX_PRESIZE) * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            Object key = read();
+            map.put(key instanceof String ? (String) key : String.valueOf(key), read());
+        }
+        depth--;
+        return map;
+    }
+
+    private JSONArray readArray(int size) throws IOException {
+        enter();
+        JSONArray array = new JSONArray(Math.min(size, MAX_PRESIZE));
+        for (int i = 0; i < size; i++) {
+            array.add(read());
+        }
+        depth--;
+        return array;
+    }
+
+    /**
+     * @return a {@linkplain Date} for the timestamp extension, the data for the others
+     */
+    private Object readExt(int length) throws IOException {
+        byte type = readByte();
+        if (type != TIMESTAMP_TYPE) {
+            return readByteArray(length);
+        }
+        long seconds;
+        long nanos;
+        switch (length) {
+            case 4:
+                seconds = readInt() & 0xffffffffL;
+                nanos = 0;
+                break;
+            case 8:
+                long value = readLong();
+                nanos = value >>> 34;
+                seconds = value & 0x3ffffffffL;
+                break;
+            case 12:
+                nanos = readInt() & 0xffffffffL;
+                seconds = readLong();
+                break;
+            default:
+                throw new JSONException("Illegal message pack timestamp of " + length + " bytes");
+        }
+        return new Date(seconds * 1000 + nanos / 1000000);
+    }
+
+    /**
+     * The reads require their bytes first, an exhausted {@linkplain okio.Buffer} throws IllegalStateException
+     * rather than EOFException
+     */
+    private byte readByte() throws IOException {
+        source.require(1);
+        return source.readByte();
+    }
+
+    private short readShort() throws IOException {
+        source.require(2);
+        return source.readShort();
+    }
+
+    private int readInt() throws IOException {
+        source.require(4);
+        return source.readInt();
+    }
+
+    private long readLong() throws IOException {
+        source.require(8);
+        return source.readLong();
+    }
+
+    private byte[] readByteArray(int length) throws IOException {
+        source.require(length);
+        return source.readByteArray(length);
+    }
+
+    private String readUtf8(int length) throws IOException {
+        source.require(length);
+        return source.readUtf8(length);
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new JSONException("The message pack is nested too deep");
+        }
+    }
+
+    private static Object integer(long value) {
+        return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+    }
+
+    private static int length(int length) {
+        if (length < 0) {
+            throw new JSONException("The message pack is too large: " + (length & 0xffffffffL));
+        }
+        return length;
+    }
+}
@@ -0,0 +1,175 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.parser.deserializer.JavaBeanDeserializer;
+import com.alibaba.fastjson.parser.deserializer.ObjectDeserializer;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.zhourh.webapi.utils.Types;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decode the MessagePack responses into the response type, the others are decoded by the next converter, such as the json.
+ * <p>
+ * The tree read by {@linkplain MessagePackReader} is bound by the deserializers of fastjson, so the models,
+ * their {@code JSONField} names and the generic data of the {@linkplain com.zhourh.webapi.response.ApiResult}
+ * are the same as the json. The deserializer of a model only knows the erased types of its fields, so the fields
+ * of a type variable, such as {@code T data}, are bound again by their types resolved from the response type
+ */
+final class MessagePackResponseConverter<T> implements Converter<ResponseBody, T> {
+
+    private static final List<GenericField> NO_GENERIC_FIELDS = Collections.emptyList();
+
+    private final ParserConfig config;
+
+    private final Type type;
+
+    private final Converter<ResponseBody, T> delegate;
+
+    /**
+     * The fields of a type variable of the parameterized models, looked up once for each type
+     */
+    private final ConcurrentHashMap<Type, List<GenericField>> genericFields = new ConcurrentHashMap<>();
+
+    MessagePackResponseConverter(ParserConfig config, Type type, Converter<ResponseBody, T> delegate) {
+        this.config = config;
+        this.type = type;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T convert(ResponseBody value) throws IOException {
+        if (!MessagePackConverterFactory.isMessagePack(value.contentType())) {
+            return delegate.convert(value);
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            T result = (T) bind(new MessagePackReader(value.source()).read(), type);
+            return result;
+        } finally {
+            value.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object bind(Object tree, Type type) {
+        Class<?> rawType = Types.getRawType(type);
+        if (tree instanceof Map && rawType != null && rawType != Object.class && !Map.class.isAssignableFrom(rawType)) {
+            ObjectDeserializer deserializer = config.getDeserializer(rawType);
+            if (deserializer instanceof JavaBeanDeserializer) {
+                Map<String, Object> map = (Map<String, Object>) tree;
+                try {
+                    Object bean = ((JavaBeanDeserializer) deserializer).createInstance(map, config);
+                    if (type instanceof ParameterizedType) {
+                        for (GenericField field : genericFields(type, rawType)) {
+                            if (map.containsKey(field.key)) {
+                                field.field.set(bean, bind(map.get(field.key), field.type));
+                            }
+                        }
+                    }
+                    return bean;
+                } catch (JSONException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new JSONException("Can not bind the message pack to " + type, e);
+                }
+            }
+        } else if (tree instanceof List && type instanceof ParameterizedType && Collection.class.isAssignableFrom(rawType)) {
+            // bind the items by the type argument, so the items of a parameterized model are bound by the resolved types too
+            Type itemType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            List<?> items = (List<?>) tree;
+            JSONArray bound = new JSONArray(items.size());
+            for (Object item : items) {
+                bound.add(bind(item, itemType));
+            }
+            tree = bound;
+        }
+        return TypeUtils.cast(tree, type, config);
+    }
+
+    private List<GenericField> genericFields(Type type, Class<?> rawType) {
+        List<GenericField> fields = genericFields.get(type);
+        if (fields != null) {
+            return fields;
+        }
+        fields = new ArrayList<>();
+        for (Class<?> c = rawType; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+                        || !hasTypeVariable(field.getGenericType())) {
+                    continue;
+                }
+                JSONField annotation = field.getAnnotation(JSONField.class);
+                if (annotation != null && !annotation.deserialize()) {
+                    continue;
+                }
+                String key = annotation != null && annotation.name().length() > 0 ? annotation.name() : field.getName();
+                field.setAccessible(true);
+                fields.add(new GenericField(field, key, Types.resolveFieldType(type, field)));
+            }
+        }
+        if (fields.isEmpty()) {
+            fields = NO_GENERIC_FIELDS;
+        }
+        genericFields.putIfAbsent(type, fields);
+        return fields;
+    }
+
+    private static boolean hasTypeVariable(Type type) {
+        if (type instanceof TypeVariable) {
+            return true;
+        }
+        if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (hasTypeVariable(argument)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (type instanceof GenericArrayType) {
+            return hasTypeVariable(((GenericArrayType) type).getGenericComponentType());
+        }
+        if (type instanceof WildcardType) {
+            return hasTypeVariable(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return false;
+    }
+
+    private static final class GenericField {
+
+        final Field field;
+
+        /**
+         * The key in the map, the name of {@linkplain JSONField} or the field
+         */
+        final String key;
+
+        final Type type;
+
+        GenericField(Field field, String key, Type type) {
+            this.field = field;
+            this.key = key;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.zhourh.webapi.exception.ApiException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+
+/**
+ * Decode an {@linkplain com.zhourh.webapi.response.ApiResult} straight from the response stream,
+ * the body is never buffered as a whole string or byte array.
+ * <p>
+ * The envelope fields are read one by one, as soon as the response is known unsuccessful
+ * and the message is read, an {@linkplain ApiException} is thrown without binding the data.
+ * The response stream is read through the Okio segments and the char buffer of the fastjson reader,
+ * both of them are pooled, so a large list does not allocate a copy of the whole body.
+ * @param <R> the type of the envelope
+ */
+final class StreamingApiResultConverter<R> implements Converter<ResponseBody, R> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ApiEnvelope envelope;
+
+    private final Class<?> rawType;
+
+    private final Field dataField;
+
+    private final Type dataType;
+
+    StreamingApiResultConverter(ApiEnvelope envelope, Class<?> rawType, Field dataField, Type dataType) {
+        this.envelope = envelope;
+        this.rawType = rawType;
+        this.dataField = dataField;
+        this.dataType = dataType;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R convert(ResponseBody value) throws IOException {
+        JSONReader reader = new JSONReader(new InputStreamReader(value.byteStream(), charset(value)));
+        try {
+            Boolean success = null;
+            String message = null;
+            boolean messageRead = false;
+            Object data = null;
+            JSONObject fields = new JSONObject();
+
+            reader.startObject();
+            while (reader.hasNext()) {
+                String key = reader.readString();
+                if (envelope.getSuccessField().equals(key)) {
+                    success = reader.readObject(Boolean.class);
+                    if (Boolean.FALSE.equals(success) && messageRead) {
+                        throw new ApiException(message);
+                    }
+                } else if (envelope.getMessageField().equals(key)) {
+                    message = reader.readString();
+                    messageRead = true;
+                    if (Boolean.FALSE.equals(success)) {
+                        throw new ApiException(message);
+                    }
+                } else if (envelope.getDataField().equals(key)) {
+                    // the data of an unsuccessful response is dropped, don't bind it to the model
+                    data = Boolean.FALSE.equals(success) ? reader.readObject() : reader.readObject(dataType);
+                } else {
+                    fields.put(key, reader.readObject());
+                }
+            }
+            reader.endObject();
+
+            if (Boolean.FALSE.equals(success)) {
+                throw new ApiException(message);
+            }
+            fields.put(envelope.getSuccessField(), success);
+            fields.put(envelope.getMessageField(), message);
+            Object result = JSON.toJavaObject(fields, rawType);
+            dataField.set(result, data);
+            return (R) result;
+        } catch (IllegalAccessException e) {
+            throw new IOException(e.getMessage());
+        } finally {
+            reader.close();
+            value.close();
+        }
+    }
+
+    private static Charset charset(ResponseBody value) {
+        MediaType contentType = value.contentType();
+        return contentType != null ? contentType.charset(UTF_8) : UTF_8;
+    }
+}
@@ -0,0 +1,54 @@
+package com.zhourh.webapi.converter;
+
+import android.support.annotation.NonNull;
+
+import com.zhourh.webapi.response.ApiResult;
+import com.zhourh.webapi.utils.Types;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A {@linkplain Converter.Factory} decode the {@linkplain ApiResult} envelopes as a stream,
+ * see {@linkplain StreamingApiResultConverter}.
+ * <p>
+ * Only the response types implement {@linkplain ApiResult} and declare the data field are handled,
+ * the others are left to the next converter factory, so it should be added before the FastJsonConverterFactory
+ */
+public final class StreamingFastJsonConverterFactory extends Converter.Factory {
+
+    public static StreamingFastJsonConverterFactory create() {
+        return create(ApiEnvelope.DEFAULT);
+    }
+
+    public static StreamingFastJsonConverterFactory create(@NonNull ApiEnvelope envelope) {
+        return new StreamingFastJsonConverterFactory(checkNotNull(envelope, "envelope == null"));
+    }
+
+    private final ApiEnvelope envelope;
+
+    private StreamingFastJsonConverterFactory(ApiEnvelope envelope) {
+        this.envelope = envelope;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        Class<?> rawType = Types.getRawType(type);
+        if (rawType == null || rawType.isInterface() || !ApiResult.class.isAssignableFrom(rawType)) {
+            return null;
+        }
+        Field dataField = Types.findField(rawType, envelope.getDataField());
+        if (dataField == null) {
+            return null;
+        }
+        dataField.setAccessible(true);
+        return new StreamingApiResultConverter<>(envelope, rawType, dataField, Types.resolveFieldType(type, dataField));
+    }
+}
@@ -6,7 +6,9 @@ import java.net.SocketException;
 import java.net.SocketTimeoutException;
 
 import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+import com.zhourh.webapi.exception.ApiError;
 import com.zhourh.webapi.exception.ApiException;
+import com.zhourh.webapi.exception.CircuitOpenException;
 
 import io.reactivex.subscribers.ResourceSubscriber;
 
@@ -29,26 +31,43 @@ public abstract class ApiSubscriber<T> extends ResourceSubscriber<T>{
         return errorCallback;
     }
 
+    /**
+     * Classify the failure once by {@linkplain ApiError#from(Throwable)}, and call the callback of its category
+     */
     @Override
     public void onError(Throwable e) {
         if (errorCallback == null){
             e.printStackTrace();
             return;
         }
-        if (e instanceof SocketTimeoutException){
-            errorCallback.onSocketTimeoutException((SocketTimeoutException) e);
-        }
-        if (e instanceof SocketException){
-            errorCallback.onSocketException((SocketException) e);
-        }
-        if (e instanceof ProtocolException){
-            errorCallback.onProtocolException((ProtocolException) e);
-        }
-        if (e instanceof HttpException){
-            errorCallback.onHttpException((HttpException) e);
+        ApiError error = ApiError.from(e);
+        if (errorCallback instanceof ClassifiedErrorCallback){
+            ((ClassifiedErrorCallback) errorCallback).onApiError(error);
+            return;
         }
-        if (e instanceof ApiException){
-            errorCallback.onApiException((ApiException) e);
+        switch (error.getCategory()) {
+            case TIMEOUT:
+                errorCallback.onSocketTimeoutException((SocketTimeoutException) e);
+                break;
+            case CONNECTION:
+                errorCallback.onSocketException((SocketException) e);
+                break;
+            case PROTOCOL:
+                errorCallback.onProtocolException((ProtocolException) e);
+                break;
+            case HTTP:
+                errorCallback.onHttpException((HttpException) e);
+                break;
+            case API:
+                errorCallback.onApiException((ApiException) e);
+                break;
+            case CIRCUIT_OPEN:
+                if (errorCallback instanceof CircuitBreakerCallback){
+                    ((CircuitBreakerCallback) errorCallback).onCircuitOpenException((CircuitOpenException) e);
+                }
+                break;
+            default:
+                break;
         }
         errorCallback.onError(e);
 
@@ -101,4 +120,30 @@ public abstract class ApiSubscriber<T> extends ResourceSubscriber<T>{
          */
         void onError(Throwable e);
     }
+
+    /**
+     * An @{@linkplain ApiErrorCallback} also to be invoked when the request failed fast because the circuit is open,
+     * see {@linkplain com.zhourh.webapi.breaker.CircuitBreaker}
+     */
+    public interface CircuitBreakerCallback extends ApiErrorCallback{
+
+        /**
+         * Call when the request throw a @{@linkplain CircuitOpenException}
+         * @param e
+         */
+        void onCircuitOpenException(CircuitOpenException e);
+    }
+
+    /**
+     * An @{@linkplain ApiErrorCallback} to be invoked once with the classified error when the request error,
+     * the other methods of it are not called
+     */
+    public interface ClassifiedErrorCallback extends ApiErrorCallback{
+
+        /**
+         * Call when request error always
+         * @param error the category, retryability, http status and server error code of the failure
+         */
+        void onApiError(ApiError error);
+    }
 }
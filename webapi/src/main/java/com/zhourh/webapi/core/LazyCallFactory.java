@@ -0,0 +1,186 @@
+package com.zhourh.webapi.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The call factory of the {@linkplain retrofit2.Retrofit} built by {@linkplain WebApi.Builder#buildAsync(android.app.Application)},
+ * the calls created before the client is ready wait for it when they are executed, on the thread executing them
+ */
+final class LazyCallFactory implements Call.Factory {
+
+    private OkHttpClient client;
+
+    private Throwable error;
+
+    private List<Runnable> pendings = new ArrayList<>();
+
+    @Override
+    public Call newCall(Request request) {
+        OkHttpClient readyClient;
+        synchronized (this) {
+            readyClient = client;
+        }
+        return readyClient != null ? readyClient.newCall(request) : new LazyCall(this, request);
+    }
+
+    void ready(OkHttpClient client) {
+        complete(client, null);
+    }
+
+    void fail(Throwable error) {
+        complete(null, error);
+    }
+
+    private void complete(OkHttpClient client, Throwable error) {
+        List<Runnable> ready;
+        synchronized (this) {
+            this.client = client;
+            this.error = error;
+            ready = pendings;
+            pendings = null;
+            notifyAll();
+        }
+        for (Runnable runnable : ready) {
+            runnable.run();
+        }
+    }
+
+    synchronized boolean isReady() {
+        return client != null;
+    }
+
+    /**
+     * Block until the client is built
+     */
+    OkHttpClient await() throws IOException {
+        synchronized (this) {
+            while (client == null && error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for WebApi initialization");
+                }
+            }
+            if (error != null) {
+                throw new IOException("WebApi initialization failed", error);
+            }
+            return client;
+        }
+    }
+
+    /**
+     * Run the runnable when the client is built or failed, at once if it is already
+     */
+    void whenReady(Runnable runnable) {
+        synchronized (this) {
+            if (pendings != null) {
+                pendings.add(runnable);
+                return;
+            }
+        }
+        runnable.run();
+    }
+
+    private static final class LazyCall implements Call {
+
+        private final LazyCallFactory factory;
+
+        private final Request request;
+
+        private Call delegate;
+
+        private boolean executed;
+
+        private volatile boolean canceled;
+
+        LazyCall(LazyCallFactory factory, Request request) {
+            this.factory = factory;
+            this.request = request;
+        }
+
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            markExecuted();
+            return delegate().execute();
+        }
+
+        @Override
+        public void enqueue(final Callback responseCallback) {
+            markExecuted();
+            factory.whenReady(new Runnable() {
+                @Override
+                public void run() {
+                    Call call;
+                    try {
+                        call = delegate();
+                    } catch (IOException e) {
+                        responseCallback.onFailure(LazyCall.this, e);
+                        return;
+                    }
+                    call.enqueue(responseCallback);
+                }
+            });
+        }
+
+        private synchronized void markExecuted() {
+            if (executed) {
+                throw new IllegalStateException("Already Executed");
+            }
+            executed = true;
+        }
+
+        private Call delegate() throws IOException {
+            OkHttpClient client = factory.await();
+            Call call = client.newCall(request);
+            synchronized (this) {
+                delegate = call;
+            }
+            if (canceled) {
+                call.cancel();
+            }
+            return call;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Call call;
+            synchronized (this) {
+                call = delegate;
+            }
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call clone() {
+            return new LazyCall(factory, request);
+        }
+    }
+}
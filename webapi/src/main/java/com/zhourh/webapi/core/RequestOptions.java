@@ -0,0 +1,139 @@
+package com.zhourh.webapi.core;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.zhourh.webapi.cache.ReadPolicy;
+import com.zhourh.webapi.delivery.DeliveryMode;
+import com.zhourh.webapi.schedule.Priority;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * The options of a single request, such as {@code webApi.request(flowable, subscriber, options)}
+ */
+public final class RequestOptions {
+
+    /**
+     * The options used when not specified
+     */
+    public static final RequestOptions DEFAULT = new Builder().build();
+
+    private final Priority priority;
+
+    private final ReadPolicy readPolicy;
+
+    private final Object tag;
+
+    private final DeliveryMode deliveryMode;
+
+    private RequestOptions(Builder builder) {
+        this.priority = builder.priority;
+        this.readPolicy = builder.readPolicy;
+        this.tag = builder.tag;
+        this.deliveryMode = builder.deliveryMode;
+    }
+
+    /**
+     * @return the priority lane of the request, see {@linkplain WebApi.Builder#requestScheduler(com.zhourh.webapi.schedule.RequestScheduler)}
+     */
+    @NonNull
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return where the result of a GET request is read from, see {@linkplain com.zhourh.webapi.cache.CacheReader}
+     */
+    @NonNull
+    public ReadPolicy getReadPolicy() {
+        return readPolicy;
+    }
+
+    /**
+     * @return the tag of the group the request belongs to, null for none
+     */
+    @Nullable
+    public Object getTag() {
+        return tag;
+    }
+
+    /**
+     * @return where the results are delivered, null for the default of {@linkplain WebApi.Builder#deliveryMode(DeliveryMode)}
+     */
+    @Nullable
+    public DeliveryMode getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    @NonNull
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+
+        private Priority priority = Priority.NORMAL;
+
+        private ReadPolicy readPolicy = ReadPolicy.DEFAULT;
+
+        private Object tag;
+
+        private DeliveryMode deliveryMode;
+
+        public Builder() {
+        }
+
+        private Builder(RequestOptions options) {
+            this.priority = options.priority;
+            this.readPolicy = options.readPolicy;
+            this.tag = options.tag;
+            this.deliveryMode = options.deliveryMode;
+        }
+
+        @NonNull
+        public Builder priority(@NonNull Priority priority) {
+            checkNotNull(priority, "priority == null");
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * @param readPolicy {@linkplain ReadPolicy#DEFAULT} by default, ignored by the other methods than GET
+         * @return
+         */
+        @NonNull
+        public Builder readPolicy(@NonNull ReadPolicy readPolicy) {
+            checkNotNull(readPolicy, "readPolicy == null");
+            this.readPolicy = readPolicy;
+            return this;
+        }
+
+        /**
+         * @param tag the requests with the same tag are cancelled together by {@linkplain WebApi#cancelRequestsByTag(Object)},
+         *            such as the activity or the fragment sending them, the requests tagged with an activity
+         *            are cancelled when it is destroyed
+         * @return
+         */
+        @NonNull
+        public Builder tag(@Nullable Object tag) {
+            this.tag = tag;
+            return this;
+        }
+
+        /**
+         * @param deliveryMode where the results are delivered, null for the default of {@linkplain WebApi.Builder#deliveryMode(DeliveryMode)}
+         * @return
+         */
+        @NonNull
+        public Builder deliveryMode(@Nullable DeliveryMode deliveryMode) {
+            this.deliveryMode = deliveryMode;
+            return this;
+        }
+
+        @NonNull
+        public RequestOptions build() {
+            return new RequestOptions(this);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.zhourh.webapi.core;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+
+/**
+ * The requests in flight of a {@linkplain WebApi}, indexed by the int requestId without boxing and without locks.
+ * <p>
+ * The requests are kept in slots of fixed size segments, a requestId is the index of its slot and
+ * the generation of the slot, so a stale requestId never cancels the request reusing the slot.
+ * The segments are added when all the slots are taken, and never removed, so the memory is bounded
+ * by the peak count of the requests in flight. A request is removed on any terminal event and on cancel.
+ * <p>
+ * The requests with the same tag are a group, cancelled together by {@linkplain #cancelGroup(Object)},
+ * the group of an {@linkplain Activity} is cancelled when it is destroyed
+ */
+final class RequestRegistry {
+
+    private static final int SLOT_BITS = 16;
+
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+    private static final int GENERATION_MASK = (1 << (31 - SLOT_BITS)) - 1;
+
+    private static final int SEGMENT_BITS = 6;
+
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    private static final int MAX_SEGMENTS = 1 << (SLOT_BITS - SEGMENT_BITS);
+
+    private final AtomicReferenceArray<AtomicReferenceArray<Slot>> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+    private final AtomicInteger segmentCount = new AtomicInteger(1);
+
+    /**
+     * Where the search of a free slot starts, next to the slot taken last
+     */
+    private final AtomicInteger hint = new AtomicInteger();
+
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    private final ConcurrentHashMap<Object, Group> groups = new ConcurrentHashMap<>();
+
+    RequestRegistry() {
+        segments.set(0, new AtomicReferenceArray<Slot>(SEGMENT_SIZE));
+    }
+
+    /**
+     * Cancel the group of an activity when it is destroyed, no-op before API 14
+     */
+    void watchActivities(@NonNull Application application) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            application.registerActivityLifecycleCallbacks(new ActivityWatcher(this));
+        }
+    }
+
+    /**
+     * Register a request before it is subscribed
+     * @param request the subscriber of the request
+     * @param tag the tag of the group, null for none
+     * @return the requestId
+     */
+    int register(@NonNull Disposable request, @Nullable Object tag) {
+        for (;;) {
+            Group group = tag != null ? group(tag) : null;
+            Slot slot = take(request, group);
+            if (group == null || group.join(slot)) {
+                return slot.id;
+            }
+            if (group.cancelled) {
+                // the group is cancelled while registering
+                slot.dispose();
+                return slot.id;
+            }
+            // the group is emptied and removed while registering, join the new one
+            release(slot);
+        }
+    }
+
+    /**
+     * Remove the request, such as on its terminal event
+     * @return false if it is removed already
+     */
+    boolean remove(int requestId) {
+        Slot slot = get(requestId);
+        if (slot == null || !release(slot)) {
+            return false;
+        }
+        if (slot.group != null) {
+            slot.group.leave(slot);
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the request is finished or cancelled already
+     */
+    boolean cancel(int requestId) {
+        Slot slot = get(requestId);
+        if (slot == null) {
+            return false;
+        }
+        slot.dispose();
+        return true;
+    }
+
+    /**
+     * Cancel all the requests of the tag in flight
+     */
+    void cancelGroup(@NonNull Object tag) {
+        Group group = groups.remove(tag);
+        if (group != null) {
+            group.cancel();
+        }
+    }
+
+    int inFlightCount() {
+        return inFlightCount.get();
+    }
+
+    int inFlightCount(@NonNull Object tag) {
+        Group group = groups.get(tag);
+        return group == null ? 0 : group.requests.size();
+    }
+
+    private Group group(Object tag) {
+        Group group = groups.get(tag);
+        if (group == null) {
+            Group created = new Group(tag);
+            group = groups.putIfAbsent(tag, created);
+            if (group == null) {
+                group = created;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Put the request into a free slot, add a segment if all the slots are taken
+     */
+    private Slot take(Disposable request, Group group) {
+        for (;;) {
+            int count = segmentCount.get();
+            int capacity = count << SEGMENT_BITS;
+            int start = hint.get() % capacity;
+            for (int i = 0; i < capacity; i++) {
+                int index = start + i < capacity ? start + i : start + i - capacity;
+                AtomicReferenceArray<Slot> segment = segments.get(index >>> SEGMENT_BITS);
+                int offset = index & (SEGMENT_SIZE - 1);
+                Slot previous = segment.get(offset);
+                if (previous != null && previous.request != null) {
+                    continue;
+                }
+                int generation = previous == null ? 1 : ((previous.id >>> SLOT_BITS) + 1) & GENERATION_MASK;
+                Slot slot = new Slot((Math.max(generation, 1) << SLOT_BITS) | index, request, group);
+                if (segment.compareAndSet(offset, previous, slot)) {
+                    hint.set(index + 1);
+                    inFlightCount.incrementAndGet();
+                    return slot;
+                }
+            }
+            grow(count);
+        }
+    }
+
+    private void grow(int count) {
+        if (count == MAX_SEGMENTS) {
+            throw new IllegalStateException("Too many requests in flight: " + inFlightCount.get());
+        }
+        // publish the segment before the count, so a slot index below the count always has its segment
+        segments.compareAndSet(count, null, new AtomicReferenceArray<Slot>(SEGMENT_SIZE));
+        segmentCount.compareAndSet(count, count + 1);
+    }
+
+    private Slot get(int requestId) {
+        int index = requestId & SLOT_MASK;
+        if (requestId <= 0 || index >= segmentCount.get() << SEGMENT_BITS) {
+            return null;
+        }
+        Slot slot = segments.get(index >>> SEGMENT_BITS).get(index & (SEGMENT_SIZE - 1));
+        return slot != null && slot.id == requestId && slot.request != null ? slot : null;
+    }
+
+    /**
+     * Free the slot, it keeps the id so the next request of the slot takes the next generation
+     * @return false if freed already
+     */
+    private boolean release(Slot slot) {
+        int index = slot.id & SLOT_MASK;
+        AtomicReferenceArray<Slot> segment = segments.get(index >>> SEGMENT_BITS);
+        if (!segment.compareAndSet(index & (SEGMENT_SIZE - 1), slot, new Slot(slot.id, null, null))) {
+            return false;
+        }
+        inFlightCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * A request in flight, or a free slot if the request is null
+     */
+    private final class Slot implements Disposable {
+
+        final int id;
+
+        final Disposable request;
+
+        final Group group;
+
+        Slot(int id, Disposable request, Group group) {
+            this.id = id;
+            this.request = request;
+            this.group = group;
+        }
+
+        @Override
+        public void dispose() {
+            request.dispose();
+            remove(id);
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return request.isDisposed();
+        }
+    }
+
+    /**
+     * The requests of a tag, removed from the registry when it is emptied or cancelled
+     */
+    private final class Group {
+
+        final Object tag;
+
+        final CompositeDisposable requests = new CompositeDisposable();
+
+        /**
+         * No more requests join, guarded by this
+         */
+        boolean closed;
+
+        volatile boolean cancelled;
+
+        Group(Object tag) {
+            this.tag = tag;
+        }
+
+        synchronized boolean join(Slot slot) {
+            return !closed && requests.add(slot);
+        }
+
+        void leave(Slot slot) {
+            synchronized (this) {
+                if (!requests.delete(slot) || requests.size() != 0 || closed) {
+                    return;
+                }
+                closed = true;
+            }
+            groups.remove(tag, this);
+        }
+
+        void cancel() {
+            synchronized (this) {
+                closed = true;
+                cancelled = true;
+            }
+            // each slot removes itself from the registry when disposed
+            requests.dispose();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    private static final class ActivityWatcher implements Application.ActivityLifecycleCallbacks {
+
+        private final RequestRegistry registry;
+
+        ActivityWatcher(RequestRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            registry.cancelGroup(activity);
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zhourh.webapi.core;
+
+/**
+ * The time spent to build a {@linkplain WebApi}
+ */
+public final class StartupTiming {
+
+    private final boolean async;
+
+    private final long startNanos;
+
+    private long buildNanos = -1;
+
+    private long clientNanos = -1;
+
+    private long readyNanos = -1;
+
+    StartupTiming(boolean async) {
+        this.async = async;
+        this.startNanos = System.nanoTime();
+    }
+
+    synchronized void built() {
+        buildNanos = System.nanoTime() - startNanos;
+    }
+
+    synchronized void clientBuilt(long nanos) {
+        clientNanos = nanos;
+        readyNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return whether built by {@linkplain WebApi.Builder#buildAsync(android.app.Application)}
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return the time blocked on the thread calling build, -1 if not finished
+     */
+    public synchronized long getBuildMillis() {
+        return buildNanos < 0 ? -1 : buildNanos / 1000000;
+    }
+
+    /**
+     * @return the time of building the http client, including the certificates and the disk cache, -1 if not finished
+     */
+    public synchronized long getClientMillis() {
+        return clientNanos < 0 ? -1 : clientNanos / 1000000;
+    }
+
+    /**
+     * @return the time from build called to the requests can be sent, -1 if not ready
+     */
+    public synchronized long getReadyMillis() {
+        return readyNanos < 0 ? -1 : readyNanos / 1000000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StartupTiming[async=" + async + ",build=" + getBuildMillis() + "ms,client=" + getClientMillis()
+                + "ms,ready=" + getReadyMillis() + "ms]";
+    }
+}
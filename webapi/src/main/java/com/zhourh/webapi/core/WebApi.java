@@ -11,9 +11,43 @@ import com.franmontiel.persistentcookiejar.PersistentCookieJar;
 import com.franmontiel.persistentcookiejar.cache.SetCookieCache;
 import com.franmontiel.persistentcookiejar.persistence.SharedPrefsCookiePersistor;
 import com.jakewharton.retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import com.zhourh.webapi.adapter.ApiCallFlowable;
+import com.zhourh.webapi.adapter.RequestCoalescer;
+import com.zhourh.webapi.batch.RequestBatcher;
+import com.zhourh.webapi.breaker.CircuitBreaker;
+import com.zhourh.webapi.adapter.WebApiCallAdapterFactory;
+import com.zhourh.webapi.cache.CacheReader;
+import com.zhourh.webapi.cache.MemoryCache;
+import com.zhourh.webapi.cache.ReadPolicy;
+import com.zhourh.webapi.cache.RequestKey;
 import com.zhourh.webapi.cert.AllX509TrustManager;
+import com.zhourh.webapi.codec.CodecStats;
+import com.zhourh.webapi.codec.ContentCodec;
+import com.zhourh.webapi.codec.ContentCodecInterceptor;
+import com.zhourh.webapi.converter.ApiEnvelope;
+import com.zhourh.webapi.converter.ApiResultItemStream;
+import com.zhourh.webapi.converter.JsonBinderConverterFactory;
+import com.zhourh.webapi.converter.MessagePackConverterFactory;
+import com.zhourh.webapi.converter.StreamingFastJsonConverterFactory;
+import com.zhourh.webapi.delivery.DeliveryMode;
+import com.zhourh.webapi.delivery.DeliveryStats;
+import com.zhourh.webapi.delivery.FrameDeliveryScheduler;
+import com.zhourh.webapi.dns.CachingDns;
 import com.zhourh.webapi.exception.ApiException;
+import com.zhourh.webapi.json.JsonModel;
+import com.zhourh.webapi.logging.AsyncLoggingInterceptor;
+import com.zhourh.webapi.metrics.RequestMetrics;
+import com.zhourh.webapi.metrics.RequestTrace;
+import com.zhourh.webapi.offline.OfflineQueue;
 import com.zhourh.webapi.response.ApiResult;
+import com.zhourh.webapi.retry.RequestRetrier;
+import com.zhourh.webapi.retry.Retry;
+import com.zhourh.webapi.retry.RetryBudget;
+import com.zhourh.webapi.retry.RetryPolicy;
+import com.zhourh.webapi.schedule.Priority;
+import com.zhourh.webapi.schedule.RequestScheduler;
+import com.zhourh.webapi.service.GeneratedServices;
+import com.zhourh.webapi.warmup.ConnectionWarmer;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,13 +61,13 @@ import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -47,10 +81,16 @@ import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
 import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.reactivestreams.Publisher;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.fastjson.FastJsonConverterFactory;
@@ -67,10 +107,15 @@ import static com.zhourh.webapi.utils.Utils.checkNotNull;
 public class WebApi {
 
     /**
-     * The services user defined
+     * The services user defined, indexed by serviceId
      * @see WebApi.Builder#addService(int, Class)
      */
-    private Map<Integer, Object> services = new HashMap<>();
+    private Map<Integer, LazyService> services = new HashMap<>();
+
+    /**
+     * The same services indexed by the interface
+     */
+    private Map<Class<?>, LazyService> servicesByClass = new HashMap<>();
 
     /**
      * Callback when the request error,
@@ -79,38 +124,260 @@ public class WebApi {
     private ApiSubscriber.ApiErrorCallback apiErrorCallback;
 
     /**
-     * Common counter for all request that is used to generate request ids
+     * All subscribers that user requesting, indexed by the request ids,
+     * the ApiSubscriber will be removed when request completed, failed or cancelled
+     */
+    private final RequestRegistry requestRegistry = new RequestRegistry();
+
+    /**
+     * The memory tier of the response cache, null if not enabled
+     * @see WebApi.Builder#memoryCache(int, long, TimeUnit)
+     */
+    private MemoryCache memoryCache;
+
+    /**
+     * The json field names of the response envelope, used by {@linkplain #requestStream(Flowable, Class, ApiSubscriber)}
+     */
+    private ApiEnvelope apiEnvelope;
+
+    /**
+     * Send the calls through the batch endpoint, null if not configured
+     * @see WebApi.Builder#batchEndpoint(String)
+     */
+    private RequestBatcher requestBatcher;
+
+    /**
+     * Schedule the requests in priority lanes, null to use {@linkplain Schedulers#io()}
+     * @see WebApi.Builder#requestScheduler(RequestScheduler)
+     */
+    private RequestScheduler requestScheduler;
+
+    /**
+     * The latency and size metrics of the requests, null if not enabled
+     * @see WebApi.Builder#metrics(boolean)
+     */
+    private RequestMetrics requestMetrics;
+
+    /**
+     * Fail the requests fast while their host or service method is failing, null if not enabled
+     * @see WebApi.Builder#circuitBreaker(CircuitBreaker)
+     */
+    private CircuitBreaker circuitBreaker;
+
+    /**
+     * Open the connections in the background at build time, null if not enabled
+     * @see WebApi.Builder#warmUp(boolean)
+     */
+    private volatile ConnectionWarmer connectionWarmer;
+
+    /**
+     * The time spent to build this
+     */
+    private StartupTiming startupTiming;
+
+    /**
+     * The durable queue of the write requests, null if not enabled
+     * @see WebApi.Builder#offlineQueue(boolean)
+     */
+    private OfflineQueue offlineQueue;
+
+    /**
+     * Read the GET requests by the {@linkplain ReadPolicy} of {@linkplain RequestOptions}
      */
-    private AtomicInteger requestCounter = new AtomicInteger(0);
+    private CacheReader cacheReader;
 
     /**
-     * All subscribers that user requesting
-     * the ApiSubscriber will be removed when request completed
+     * Where the results are delivered if not set by {@linkplain RequestOptions}
+     * @see WebApi.Builder#deliveryMode(DeliveryMode)
      */
-    private ConcurrentHashMap<Integer, ApiSubscriber> subscribers;
+    private DeliveryMode deliveryMode;
+
+    /**
+     * Deliver the results of {@linkplain DeliveryMode#MAIN_BATCHED} once per frame
+     */
+    private final FrameDeliveryScheduler frameDeliveryScheduler = new FrameDeliveryScheduler();
+
+    /**
+     * Encode and decode the bodies by the content codecs, null if not enabled
+     * @see WebApi.Builder#addContentCodec(ContentCodec)
+     */
+    private ContentCodecInterceptor contentCodecInterceptor;
+
+    private Retrofit retrofit;
 
     /**
      * @param application please
      * @param retrofit
      * @param servicesClasses
      * @param apiErrorCallback
+     * @param memoryCache
+     * @param apiEnvelope
+     * @param requestBatcher
+     * @param requestScheduler
+     * @param requestMetrics
+     * @param circuitBreaker
+     * @param connectionWarmer
+     * @param startupTiming
+     * @param offlineQueue
+     * @param cacheReader
+     * @param deliveryMode
+     * @param contentCodecInterceptor
      */
     private WebApi(@NonNull Application application, @NonNull Retrofit retrofit,
                    @Nullable Map<Integer, Class> servicesClasses,
-                   @Nullable ApiSubscriber.ApiErrorCallback apiErrorCallback){
-        if (servicesClasses == null || servicesClasses.isEmpty()){
-            return;
-        }
+                   @Nullable ApiSubscriber.ApiErrorCallback apiErrorCallback,
+                   @Nullable MemoryCache memoryCache, @NonNull ApiEnvelope apiEnvelope,
+                   @Nullable RequestBatcher requestBatcher, @Nullable RequestScheduler requestScheduler,
+                   @Nullable RequestMetrics requestMetrics, @Nullable CircuitBreaker circuitBreaker,
+                   @Nullable ConnectionWarmer connectionWarmer, @NonNull StartupTiming startupTiming,
+                   @Nullable OfflineQueue offlineQueue, @NonNull CacheReader cacheReader,
+                   @NonNull DeliveryMode deliveryMode, @Nullable ContentCodecInterceptor contentCodecInterceptor){
+        this.retrofit = retrofit;
+        this.contentCodecInterceptor = contentCodecInterceptor;
+        this.deliveryMode = deliveryMode;
+        this.cacheReader = cacheReader;
+        this.offlineQueue = offlineQueue;
+        this.startupTiming = startupTiming;
+        this.connectionWarmer = connectionWarmer;
+        this.circuitBreaker = circuitBreaker;
+        this.requestMetrics = requestMetrics;
+        this.requestScheduler = requestScheduler;
+        this.memoryCache = memoryCache;
+        this.apiEnvelope = apiEnvelope;
+        this.requestBatcher = requestBatcher;
         checkNotNull(application, "application == null");
         checkNotNull(retrofit, "retrofit == null");
         this.apiErrorCallback = apiErrorCallback;
+        requestRegistry.watchActivities(application);
+        if (servicesClasses == null || servicesClasses.isEmpty()){
+            return;
+        }
         Iterator<Integer> iterator = servicesClasses.keySet().iterator();
         while (iterator.hasNext()) {
             Integer serviceId = iterator.next();
-            services.put(serviceId, retrofit.create(servicesClasses.get(serviceId)));
+            Class<?> serviceClass = servicesClasses.get(serviceId);
+            LazyService service = servicesByClass.get(serviceClass);
+            if (service == null) {
+                service = new LazyService(retrofit, serviceClass);
+                servicesByClass.put(serviceClass, service);
+            }
+            services.put(serviceId, service);
         }
-        subscribers = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the memory tier of the response cache, you can read the hit and miss counts from it
+     * @return null if not enabled by {@linkplain WebApi.Builder#memoryCache(int, long, TimeUnit)}
+     */
+    @Nullable
+    public MemoryCache getMemoryCache() {
+        return memoryCache;
+    }
 
+    /**
+     * Get the latency and size metrics of the requests, aggregated per service method
+     * @return null if not enabled by {@linkplain WebApi.Builder#metrics(boolean)}
+     */
+    @Nullable
+    public RequestMetrics getMetrics() {
+        return requestMetrics;
+    }
+
+    /**
+     * Get the circuit breaker, you can read the states of the circuits from it
+     * @return null if not enabled by {@linkplain WebApi.Builder#circuitBreaker(CircuitBreaker)}
+     */
+    @Nullable
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Get the connection warmer, you can read how much time of the connection setup is saved from it
+     * @return null if not enabled by {@linkplain WebApi.Builder#warmUp(boolean)}
+     */
+    @Nullable
+    public ConnectionWarmer getConnectionWarmer() {
+        return connectionWarmer;
+    }
+
+    /**
+     * Get the time spent to build this, the client part is finished in the background if built by
+     * {@linkplain WebApi.Builder#buildAsync(Application)}
+     * @return
+     */
+    @NonNull
+    public StartupTiming getStartupTiming() {
+        return startupTiming;
+    }
+
+    /**
+     * Get the reader of the {@linkplain ReadPolicy}, you can read the count of the 304 replies from it
+     * @return
+     */
+    @NonNull
+    public CacheReader getCacheReader() {
+        return cacheReader;
+    }
+
+    /**
+     * Get the count of the results delivered by {@linkplain DeliveryMode#MAIN_BATCHED} per dispatch and the time
+     * spent on main thread, to measure the impact on the frames
+     * @return
+     */
+    @NonNull
+    public DeliveryStats getDeliveryStats() {
+        return frameDeliveryScheduler.getStats();
+    }
+
+    /**
+     * Get the bytes and the cpu time of the content codecs, to see whether a codec is worth its cost
+     * @return the stats by the encodings, null if not enabled by {@linkplain WebApi.Builder#addContentCodec(ContentCodec)}
+     * or {@linkplain WebApi.Builder#requestCompression(ContentCodec, long)}
+     */
+    @Nullable
+    public Map<String, CodecStats> getContentCodecStats() {
+        return contentCodecInterceptor != null ? contentCodecInterceptor.getStats() : null;
+    }
+
+    /**
+     * Get the offline queue, you can read the count of the waiting requests from it
+     * @return null if not enabled by {@linkplain WebApi.Builder#offlineQueue(boolean)}
+     */
+    @Nullable
+    public OfflineQueue getOfflineQueue() {
+        return offlineQueue;
+    }
+
+    /**
+     * Get the http client, pass it to {@linkplain WebApi.Builder#okHttpClient(OkHttpClient)} of another {@linkplain WebApi}
+     * to share the connections.
+     * <p>
+     * If built by {@linkplain WebApi.Builder#buildAsync(Application)}, it blocks the calling thread until the client is built
+     * in the background, do not call it on the main thread before {@linkplain #isOkHttpClientReady()} is true
+     * @return the client
+     * @throws IllegalStateException if the client failed to build, or the thread is interrupted while waiting
+     */
+    @NonNull
+    public OkHttpClient getOkHttpClient() {
+        okhttp3.Call.Factory callFactory = retrofit.callFactory();
+        if (callFactory instanceof LazyCallFactory) {
+            try {
+                return ((LazyCallFactory) callFactory).await();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return (OkHttpClient) callFactory;
+    }
+
+    /**
+     * @return whether {@linkplain #getOkHttpClient()} returns without blocking,
+     * false while the client built by {@linkplain WebApi.Builder#buildAsync(Application)} is not ready or failed
+     */
+    public boolean isOkHttpClientReady() {
+        okhttp3.Call.Factory callFactory = retrofit.callFactory();
+        return !(callFactory instanceof LazyCallFactory) || ((LazyCallFactory) callFactory).isReady();
     }
 
     /**
@@ -119,30 +386,19 @@ public class WebApi {
      * @return the service through the Retrofit generated
      */
     public Object getService(@NonNull Integer serviceId){
-        if (services == null || services.isEmpty()){
-            return null;
-        }
-        return services.get(serviceId);
+        LazyService service = services.get(serviceId);
+        return service == null ? null : service.get();
     }
 
     /**
      * Get the service by class
-     * @param tClass {@linkplain WebApi.Builder#addService(int, Class)}
+     * @param tClass the interface of the service, {@linkplain WebApi.Builder#addService(int, Class)}
      * @param <T> the service through the Retrofit generated
-     * @return
+     * @return null if the interface is not added
      */
     public <T> T getService(@NonNull Class<T> tClass){
-        if (services == null || services.isEmpty()){
-            return null;
-        }
-        Iterator<Integer> iterator  = services.keySet().iterator();
-        while (iterator.hasNext()){
-            Object service = services.get(iterator.next());
-            if (service.getClass().equals(tClass)){
-                return (T) service;
-            }
-        }
-        return null;
+        LazyService service = servicesByClass.get(tClass);
+        return service == null ? null : tClass.cast(service.get());
     }
 
 
@@ -155,18 +411,23 @@ public class WebApi {
      * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
      */
     public <T> int request(@NonNull Flowable<? extends ApiResult<T>> flowable, @NonNull ApiSubscriber<T> subscriber){
+        return request(flowable, subscriber, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Send a http request with options, such as the priority
+     * @param flowable the service return value, such as {@code Flowable<ApiResult<String>> login(String account, String password)}
+     * @param subscriber @{@linkplain ApiSubscriber}
+     * @param options @{@linkplain RequestOptions}
+     * @param <T>
+     * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
+     */
+    public <T> int request(@NonNull Flowable<? extends ApiResult<T>> flowable, @NonNull ApiSubscriber<T> subscriber,
+                           @NonNull RequestOptions options){
         checkNotNull(flowable, "flowable == null");
         checkNotNull(subscriber, "subscriber == null");
-        subscriber.setApiErrorCallback(apiErrorCallback);
-        int requestId = requestCounter.addAndGet(1);
-        ApiSubscriberDecorator subscriberDecorator = new ApiSubscriberDecorator(requestId, subscriber);
-        flowable.subscribeOn(Schedulers.io())
-                .unsubscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .map(new HttpResultFunction<T>())
-                .subscribe(subscriberDecorator);
-        subscribers.put(requestId, subscriberDecorator);
-        return requestId;
+        checkNotNull(options, "options == null");
+        return subscribe(flowable, new HttpResultFunction<T>(), subscriber, options);
     }
 
     /**
@@ -177,34 +438,272 @@ public class WebApi {
      * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
      */
     public <T, R extends ApiResult<T>> int requestWithAllData(@NonNull Flowable<R> flowable, @NonNull ApiSubscriber<R> subscriber) {
+        return requestWithAllData(flowable, subscriber, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Send a http request with options, but should get all the response data
+     * @param flowable the service return value, such as {@code Flowable<ApiResult<String>> login(String account, String password)}
+     * @param subscriber @{@linkplain ApiSubscriber}
+     * @param options @{@linkplain RequestOptions}
+     * @param <T>
+     * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
+     */
+    public <T, R extends ApiResult<T>> int requestWithAllData(@NonNull Flowable<R> flowable, @NonNull ApiSubscriber<R> subscriber,
+                                                              @NonNull RequestOptions options) {
+        checkNotNull(flowable, "flowable == null");
+        checkNotNull(subscriber, "subscriber == null");
+        checkNotNull(options, "options == null");
+        return subscribe(flowable, new HttpResultWithAllDataFunction<T, R>(), subscriber, options);
+    }
+
+    /**
+     * Send a http request through the batch endpoint, the calls issued within the batch window
+     * are sent to the server in one http request, see {@linkplain WebApi.Builder#batchEndpoint(String)}.
+     * <p>
+     * Each call is still delivered to its own {@linkplain ApiSubscriber} and can be cancelled by its requestId,
+     * if the batch endpoint is not configured, it is the same as {@linkplain #request(Flowable, ApiSubscriber)}
+     * @param flowable the service return value, such as {@code Flowable<ApiResult<String>> login(String account, String password)}
+     * @param subscriber @{@linkplain ApiSubscriber}
+     * @param <T>
+     * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
+     * @throws IllegalArgumentException if the batch endpoint is configured but the flowable is not returned by a service of this WebApi,
+     * such as it is transformed by an operator
+     */
+    public <T> int batch(@NonNull Flowable<? extends ApiResult<T>> flowable, @NonNull ApiSubscriber<T> subscriber) {
+        checkNotNull(flowable, "flowable == null");
+        checkNotNull(subscriber, "subscriber == null");
+        if (requestBatcher == null) {
+            return request(flowable, subscriber);
+        }
+        if (!(flowable instanceof ApiCallFlowable)) {
+            throw new IllegalArgumentException("The flowable is not returned by a service of this WebApi");
+        }
+        ApiCallFlowable<?> apiCall = (ApiCallFlowable<?>) flowable;
+        Flowable<ApiResult<T>> batched = requestBatcher.enqueue(apiCall.call(), apiCall.responseType());
+        return subscribe(batched, new HttpResultFunction<T>(), subscriber, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Send a write request through the offline queue, the request is kept on the disk and sent in order
+     * until the server handles it, even if the device is offline now or the app is killed before it is sent.
+     * <p>
+     * The result is delivered to the subscriber registered by {@linkplain #registerOfflineSubscriber(String, ApiSubscriber)}
+     * with the subscriber id, so register it again in {@code onCreate} to receive the results of the requests sent before
+     * the app restarts. A request failed by the server, such as a 4xx, is not sent again
+     * @param flowable the service return value, such as {@code Flowable<ApiResult<String>> updateProfile(Profile profile)}
+     * @param subscriberId the stable id of the subscriber, such as {@code "profile"}
+     * @param dedupKey the waiting request of the same key is replaced, such as {@code "profile/avatar"}, null for none
+     * @param <T>
+     * @throws IllegalStateException if the offline queue is not enabled, or its journal failed to load,
+     * see {@linkplain OfflineQueue#getLoadError()}
+     * @throws IllegalArgumentException if the flowable is not returned by a service of this
+     */
+    public <T> void enqueueOffline(@NonNull Flowable<? extends ApiResult<T>> flowable, @NonNull String subscriberId,
+                                   @Nullable String dedupKey) {
         checkNotNull(flowable, "flowable == null");
+        checkNotNull(subscriberId, "subscriberId == null");
+        if (offlineQueue == null) {
+            throw new IllegalStateException("The offline queue is not enabled");
+        }
+        if (!(flowable instanceof ApiCallFlowable)) {
+            throw new IllegalArgumentException("The flowable is not returned by a service of this WebApi");
+        }
+        ApiCallFlowable<?> apiCall = (ApiCallFlowable<?>) flowable;
+        offlineQueue.enqueue(apiCall.call().request(), apiCall.responseType(), subscriberId, dedupKey);
+    }
+
+    /**
+     * Deliver the results of the offline requests of the id to the subscriber on main thread,
+     * the results arrived before it is registered are delivered at once
+     * @param subscriberId the id passed to {@linkplain #enqueueOffline(Flowable, String, String)}
+     * @param subscriber {@linkplain ApiSubscriber#onNext(Object)} for each request succeeded, it is never completed
+     * @param <T>
+     */
+    public <T> void registerOfflineSubscriber(@NonNull String subscriberId, @NonNull ApiSubscriber<T> subscriber) {
         checkNotNull(subscriber, "subscriber == null");
+        if (offlineQueue == null) {
+            throw new IllegalStateException("The offline queue is not enabled");
+        }
         subscriber.setApiErrorCallback(apiErrorCallback);
-        int requestId = requestCounter.addAndGet(1);
-        ApiSubscriberDecorator subscriberDecorator = new ApiSubscriberDecorator(requestId, subscriber);
-        flowable.subscribeOn(Schedulers.io())
-                .unsubscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
-                .map(new HttpResultWithAllDataFunction<T, R>())
+        offlineQueue.register(subscriberId, subscriber);
+    }
+
+    /**
+     * Stop delivering the results to the subscriber, such as in {@code onDestroy}, the results later are kept until
+     * it is registered again
+     * @param subscriberId
+     */
+    public void unregisterOfflineSubscriber(@NonNull String subscriberId) {
+        if (offlineQueue != null) {
+            offlineQueue.unregister(subscriberId);
+        }
+    }
+
+    /**
+     * Subscribe the request on background thread, check the result and deliver it on main thread
+     * @return requestId
+     */
+    private <R, T> int subscribe(Flowable<? extends R> flowable, Function<? super R, ? extends T> resultFunction,
+                                 ApiSubscriber<T> subscriber, RequestOptions options) {
+        ApiSubscriberDecorator<T> subscriberDecorator = register(subscriber, flowable, options);
+        Flowable<? extends R> request = subscribeOn(trace(read(flowable, options), subscriberDecorator.trace), flowable, options)
+                .unsubscribeOn(Schedulers.io());
+        observeOn(request, options)
+                .map(resultFunction)
                 .subscribe(subscriberDecorator);
-        subscribers.put(requestId, subscriberDecorator);
-        return requestId;
+        return subscriberDecorator.requestId;
+    }
+
+    /**
+     * Register the subscriber before it is subscribed, so it is removed by any terminal event
+     */
+    private <T> ApiSubscriberDecorator<T> register(ApiSubscriber<T> subscriber, Flowable<?> flowable, RequestOptions options) {
+        subscriber.setApiErrorCallback(apiErrorCallback);
+        ApiSubscriberDecorator<T> subscriberDecorator = new ApiSubscriberDecorator<>(subscriber);
+        int requestId = requestRegistry.register(subscriberDecorator, options.getTag());
+        subscriberDecorator.requestId = requestId;
+        subscriberDecorator.trace = newTrace(requestId, flowable);
+        return subscriberDecorator;
     }
 
+    /**
+     * Deliver the results on the thread of the {@linkplain DeliveryMode} of the options, or the default of this
+     */
+    private <R> Flowable<R> observeOn(Flowable<R> flowable, RequestOptions options) {
+        DeliveryMode mode = options.getDeliveryMode() != null ? options.getDeliveryMode() : deliveryMode;
+        switch (mode) {
+            case BACKGROUND:
+                return flowable;
+            case MAIN_BATCHED:
+                return flowable.observeOn(frameDeliveryScheduler);
+            default:
+                return flowable.observeOn(AndroidSchedulers.mainThread());
+        }
+    }
+
+    /**
+     * Read the call by the {@linkplain ReadPolicy} of the options
+     */
+    private <R> Flowable<? extends R> read(Flowable<? extends R> flowable, RequestOptions options) {
+        if (options.getReadPolicy() == ReadPolicy.DEFAULT || !(flowable instanceof ApiCallFlowable)) {
+            return flowable;
+        }
+        ApiCallFlowable<?> apiCall = (ApiCallFlowable<?>) flowable;
+        return cacheReader.read(apiCall.call(), apiCall.responseType(), options.getReadPolicy(), flowable);
+    }
+
+    /**
+     * @return null if the metrics is not enabled
+     */
+    private RequestTrace newTrace(int requestId, Flowable<?> flowable) {
+        if (requestMetrics == null) {
+            return null;
+        }
+        String endpoint = flowable instanceof ApiCallFlowable ? ((ApiCallFlowable<?>) flowable).endpoint() : "UNKNOWN";
+        return requestMetrics.newTrace(requestId, endpoint);
+    }
+
+    private <R> Flowable<R> trace(Flowable<R> flowable, RequestTrace trace) {
+        return trace == null ? flowable : requestMetrics.trace(flowable, trace);
+    }
+
+    /**
+     * Subscribe the request on the {@linkplain RequestScheduler} if configured, otherwise on io thread
+     * @param call the call of the request, used to find the host
+     */
+    private <R> Flowable<R> subscribeOn(Flowable<R> flowable, Flowable<?> call, RequestOptions options) {
+        if (requestScheduler == null) {
+            return flowable.subscribeOn(Schedulers.io());
+        }
+        String host = call instanceof ApiCallFlowable
+                ? ((ApiCallFlowable<?>) call).call().request().url().host() : retrofit.baseUrl().host();
+        return requestScheduler.schedule(flowable, options.getPriority(), host);
+    }
+
+    /**
+     * Send a http request, and deliver the items of the data array one by one as soon as each of them is parsed,
+     * rather than waiting for the whole list.
+     * <p>
+     * The service method should return the raw body and be annotated with {@linkplain retrofit2.http.Streaming},
+     * such as {@code @Streaming @GET("help/questions") Flowable<ResponseBody> getQuestionsStream()}.
+     * The items are parsed on demand with backpressure, at most a prefetch window ahead of the main thread,
+     * so the peak memory stays low however long the list is. The body is closed when the request completed or cancelled
+     * @param flowable the service return value
+     * @param itemClass the class of the items in the data array
+     * @param subscriber @{@linkplain ApiSubscriber}, {@linkplain ApiSubscriber#onNext(Object)} is called for each item
+     * @param <T>
+     * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
+     */
+    public <T> int requestStream(@NonNull Flowable<ResponseBody> flowable, @NonNull Class<T> itemClass,
+                                 @NonNull ApiSubscriber<T> subscriber) {
+        return requestStream(flowable, itemClass, subscriber, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Send a http request with options, and deliver the items of the data array one by one,
+     * see {@linkplain #requestStream(Flowable, Class, ApiSubscriber)}
+     * @param flowable the service return value
+     * @param itemClass the class of the items in the data array
+     * @param subscriber @{@linkplain ApiSubscriber}, {@linkplain ApiSubscriber#onNext(Object)} is called for each item
+     * @param options @{@linkplain RequestOptions}
+     * @param <T>
+     * @return requestId, you can cancel a request through requestId, @{@linkplain WebApi#cancelRequest(int)}
+     */
+    public <T> int requestStream(@NonNull Flowable<ResponseBody> flowable, @NonNull final Class<T> itemClass,
+                                 @NonNull ApiSubscriber<T> subscriber, @NonNull RequestOptions options) {
+        checkNotNull(flowable, "flowable == null");
+        checkNotNull(itemClass, "itemClass == null");
+        checkNotNull(subscriber, "subscriber == null");
+        checkNotNull(options, "options == null");
+        ApiSubscriberDecorator<T> subscriberDecorator = register(subscriber, flowable, options);
+        Flowable<T> items = subscribeOn(trace(flowable, subscriberDecorator.trace), flowable, options)
+                .unsubscribeOn(Schedulers.io())
+                .concatMap(new Function<ResponseBody, Publisher<T>>() {
+                    @Override
+                    public Publisher<T> apply(ResponseBody responseBody) throws Exception {
+                        // the items requested by the main thread after the first prefetch are still read on io
+                        return ApiResultItemStream.items(responseBody, itemClass, apiEnvelope, Schedulers.io());
+                    }
+                });
+        observeOn(items, options)
+                .subscribe(subscriberDecorator);
+        return subscriberDecorator.requestId;
+    }
 
     /**
      * Cancel a request through requestId
      * @param requestId @{@linkplain WebApi#request(Flowable, ApiSubscriber)}
      */
     public void cancelRequest(int requestId){
-        ApiSubscriber subscriber = subscribers.get(requestId);
-        if (subscriber == null){
-            return;
-        }
-        if (!subscriber.isDisposed()){
-            subscriber.dispose();
-        }
-        subscribers.remove(requestId);
+        requestRegistry.cancel(requestId);
+    }
+
+    /**
+     * Cancel all the requests in flight with the tag, in one call, such as in {@code onDestroy} of a fragment.
+     * The requests tagged with an {@linkplain android.app.Activity} are cancelled when it is destroyed,
+     * no need to call this on API 14+
+     * @param tag the tag of {@linkplain RequestOptions.Builder#tag(Object)}
+     */
+    public void cancelRequestsByTag(@NonNull Object tag){
+        checkNotNull(tag, "tag == null");
+        requestRegistry.cancelGroup(tag);
+    }
+
+    /**
+     * @return the count of the requests in flight, the results are not delivered yet
+     */
+    public int getInFlightCount(){
+        return requestRegistry.inFlightCount();
+    }
+
+    /**
+     * @param tag the tag of {@linkplain RequestOptions.Builder#tag(Object)}
+     * @return the count of the requests in flight with the tag
+     */
+    public int getInFlightCount(@NonNull Object tag){
+        checkNotNull(tag, "tag == null");
+        return requestRegistry.inFlightCount(tag);
     }
 
     /**
@@ -222,6 +721,39 @@ public class WebApi {
     }
 
 
+    /**
+     * Create the service when it is used the first time, the interfaces never used cost nothing.
+     * The implementation generated from {@linkplain com.zhourh.webapi.service.WebApiService} is used if found,
+     * otherwise the Retrofit proxy
+     */
+    private static final class LazyService {
+
+        private final Retrofit retrofit;
+
+        private final Class<?> serviceClass;
+
+        private volatile Object service;
+
+        LazyService(Retrofit retrofit, Class<?> serviceClass) {
+            this.retrofit = retrofit;
+            this.serviceClass = serviceClass;
+        }
+
+        Object get() {
+            Object result = service;
+            if (result == null) {
+                synchronized (this) {
+                    result = service;
+                    if (result == null) {
+                        result = GeneratedServices.create(retrofit, serviceClass);
+                        service = result;
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
     /**
      * Check the http response is correct
      * @param <T> the type of response model actually
@@ -263,17 +795,22 @@ public class WebApi {
 
 
     /**
-     * A decorator of a @{@linkplain ApiSubscriber} that remove self when request completed
+     * A decorator of a @{@linkplain ApiSubscriber} that remove self when request completed or failed
      * @param <T>
      */
     private class ApiSubscriberDecorator<T> extends ApiSubscriber<T>{
 
+        /**
+         * Set by {@linkplain WebApi#register(ApiSubscriber, Flowable, RequestOptions)} before subscribed
+         */
         private int requestId;
 
         private ApiSubscriber apiSubscriber;
 
-        public ApiSubscriberDecorator(int requestId, ApiSubscriber apiSubscriber) {
-            this.requestId = requestId;
+        @Nullable
+        private RequestTrace trace;
+
+        public ApiSubscriberDecorator(ApiSubscriber apiSubscriber) {
             this.apiSubscriber = apiSubscriber;
             setApiErrorCallback(apiSubscriber.getErrorCallback());
         }
@@ -281,17 +818,27 @@ public class WebApi {
         @Override
         public void onNext(T t) {
             apiSubscriber.onNext(t);
+            if (trace != null) {
+                requestMetrics.delivered(trace);
+            }
         }
 
         @Override
         public void onError(Throwable e) {
+            requestRegistry.remove(requestId);
             apiSubscriber.onError(e);
+            if (trace != null) {
+                requestMetrics.finish(trace, true);
+            }
         }
 
         @Override
         public void onComplete() {
+            requestRegistry.remove(requestId);
             super.onComplete();
-            subscribers.remove(requestId);
+            if (trace != null) {
+                requestMetrics.finish(trace, false);
+            }
         }
     }
 
@@ -309,13 +856,21 @@ public class WebApi {
 
         private boolean cache;
 
-        private String cacheDiretory = Environment.getExternalStorageDirectory().getAbsolutePath()
-                + File.separator + "HttpCache";
+        /**
+         * Null for HttpCache under the external storage, resolved when the client is built
+         */
+        private String cacheDiretory;
 
         private int cacheSize = 10 * 1024 * 1024;
 
         private HttpLoggingInterceptor.Level logLevel;
 
+        private float logSampleRate = 1f;
+
+        private long logMaxBodySize = 64 * 1024;
+
+        private HttpLoggingInterceptor.Logger logger;
+
         private Map<Integer, Class> serviceClasses = new HashMap<>();
 
         private Map<String, String> sslCertificates = new HashMap<>();
@@ -326,6 +881,87 @@ public class WebApi {
 
         private List<Interceptor> interceptors = new ArrayList<>();
 
+        private boolean coalesceRequests;
+
+        private int memoryCacheSize;
+
+        private long memoryCacheTtl;
+
+        private TimeUnit memoryCacheTtlUnit = TimeUnit.MILLISECONDS;
+
+        private MemoryCache.Weigher memoryCacheWeigher;
+
+        private RequestKey.Scope requestKeyScope;
+
+        private boolean streamingJson;
+
+        private boolean jsonBinders;
+
+        private boolean messagePack;
+
+        private ApiEnvelope apiEnvelope = ApiEnvelope.DEFAULT;
+
+        private String batchEndpoint;
+
+        private long batchWindow = 20;
+
+        private TimeUnit batchWindowUnit = TimeUnit.MILLISECONDS;
+
+        private int batchMaxSize = 20;
+
+        private RequestScheduler requestScheduler;
+
+        private boolean metrics;
+
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
+
+        private RetryBudget retryBudget;
+
+        private CircuitBreaker circuitBreaker;
+
+        private OkHttpClient okHttpClient;
+
+        private ConnectionPool connectionPool;
+
+        private int maxRequests;
+
+        private int maxRequestsPerHost;
+
+        private boolean http2 = true;
+
+        private long connectTimeout = -1;
+
+        private long readTimeout = -1;
+
+        private long writeTimeout = -1;
+
+        private TimeUnit timeoutUnit = TimeUnit.MILLISECONDS;
+
+        private long callTimeout;
+
+        private TimeUnit callTimeoutUnit = TimeUnit.MILLISECONDS;
+
+        private Dns dns;
+
+        private boolean warmUp;
+
+        private List<String> warmUpUrls = new ArrayList<>();
+
+        private boolean offlineQueue;
+
+        private DeliveryMode deliveryMode = DeliveryMode.MAIN;
+
+        private List<ContentCodec> contentCodecs = new ArrayList<>();
+
+        private ContentCodec requestCodec;
+
+        private long requestCompressionThreshold;
+
+        /**
+         * Null for webapi-offline under the files directory of the app
+         */
+        private File offlineQueueDirectory;
+
         @NonNull
         public Builder baseUrl(String baseUrl){
             checkNotNull(baseUrl, "baseUrl == null");
@@ -354,6 +990,403 @@ public class WebApi {
             return this;
         }
 
+        /**
+         * Share one upstream call between the identical GET requests in flight,
+         * the decoded response will be delivered to every {@linkplain ApiSubscriber} waiting on it
+         * @param coalesceRequests default false
+         * @return
+         */
+        @NonNull
+        public Builder coalesceRequests(boolean coalesceRequests) {
+            this.coalesceRequests = coalesceRequests;
+            return this;
+        }
+
+        /**
+         * Keep the decoded results of the GET requests in memory, ahead of the disk cache
+         * @param maxSize the max total size measured by {@linkplain #memoryCacheWeigher(MemoryCache.Weigher)}, 0 to disable
+         * @param ttl the results older than ttl are still returned, but refreshed in the background
+         * @param unit the unit of ttl
+         * @return
+         */
+        @NonNull
+        public Builder memoryCache(int maxSize, long ttl, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            this.memoryCacheSize = maxSize;
+            this.memoryCacheTtl = ttl;
+            this.memoryCacheTtlUnit = unit;
+            return this;
+        }
+
+        /**
+         * @param weigher measure the size of a result in memory cache, {@linkplain MemoryCache#DEFAULT_WEIGHER} if null,
+         *                the count of items, or {@linkplain MemoryCache#JSON_BYTES_WEIGHER} for the size in bytes
+         * @return
+         */
+        @NonNull
+        public Builder memoryCacheWeigher(@Nullable MemoryCache.Weigher weigher) {
+            this.memoryCacheWeigher = weigher;
+            return this;
+        }
+
+        /**
+         * The results in memory and the coalesced requests are keyed by the method, url, response type and headers of the requests,
+         * when the credentials are added by an interceptor, give the scope of them, such as the id of the signed in user,
+         * so a result is never served to another user
+         * @param scope null for none
+         * @return
+         * @see RequestKey
+         */
+        @NonNull
+        public Builder requestKeyScope(@Nullable RequestKey.Scope scope) {
+            this.requestKeyScope = scope;
+            return this;
+        }
+
+        /**
+         * Decode the {@linkplain ApiResult} responses straight from the response stream,
+         * an unsuccessful response fails into {@linkplain ApiException} without binding the data
+         * @param streamingJson default false
+         * @return
+         * @see StreamingFastJsonConverterFactory
+         */
+        @NonNull
+        public Builder streamingJson(boolean streamingJson) {
+            this.streamingJson = streamingJson;
+            return this;
+        }
+
+        /**
+         * Decode the responses by the binders generated from {@linkplain JsonModel} without reflection,
+         * the response types without a generated binder are still decoded by fastjson
+         * @param jsonBinders default false
+         * @return
+         * @see JsonBinderConverterFactory
+         */
+        @NonNull
+        public Builder jsonBinders(boolean jsonBinders) {
+            this.jsonBinders = jsonBinders;
+            return this;
+        }
+
+        /**
+         * Prefer the responses in MessagePack by the Accept header, they are bound to the same models and
+         * {@linkplain ApiResult}s as the json, the servers not supporting it still reply json.
+         * The requests of {@linkplain WebApi#requestStream(Flowable, Class, ApiSubscriber)} read the json themselves,
+         * declare {@code @Headers("Accept: application/json")} on their service methods
+         * @param messagePack default false
+         * @return
+         * @see MessagePackConverterFactory
+         */
+        @NonNull
+        public Builder messagePack(boolean messagePack) {
+            this.messagePack = messagePack;
+            return this;
+        }
+
+        /**
+         * @param apiEnvelope the json field names of your {@linkplain ApiResult}, {@linkplain ApiEnvelope#DEFAULT} by default,
+         *                    used by the streaming converter and {@linkplain WebApi#requestStream(Flowable, Class, ApiSubscriber)}
+         * @return
+         */
+        @NonNull
+        public Builder apiEnvelope(@NonNull ApiEnvelope apiEnvelope) {
+            checkNotNull(apiEnvelope, "apiEnvelope == null");
+            this.apiEnvelope = apiEnvelope;
+            return this;
+        }
+
+        /**
+         * The batch endpoint of the server, the calls sent by {@linkplain WebApi#batch(Flowable, ApiSubscriber)}
+         * are collected and sent to it in one http request, see {@linkplain RequestBatcher} for the protocol
+         * @param batchEndpoint relative to the base url, or an absolute url
+         * @return
+         */
+        @NonNull
+        public Builder batchEndpoint(@NonNull String batchEndpoint) {
+            checkNotNull(batchEndpoint, "batchEndpoint == null");
+            this.batchEndpoint = batchEndpoint;
+            return this;
+        }
+
+        /**
+         * @param window the calls issued within the window are sent in one batch, 20 milliseconds by default
+         * @param unit the unit of window
+         * @param maxSize the batch is sent at once when the count of calls reach it, 20 by default
+         * @return
+         */
+        @NonNull
+        public Builder batchWindow(long window, @NonNull TimeUnit unit, int maxSize) {
+            checkNotNull(unit, "unit == null");
+            this.batchWindow = window;
+            this.batchWindowUnit = unit;
+            this.batchMaxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Schedule the requests in priority lanes with bounded concurrency, instead of the unbounded {@linkplain Schedulers#io()},
+         * the priority of a request is set by {@linkplain RequestOptions.Builder#priority(Priority)}
+         * @param requestScheduler null to use {@linkplain Schedulers#io()}
+         * @return
+         */
+        @NonNull
+        public Builder requestScheduler(@Nullable RequestScheduler requestScheduler) {
+            this.requestScheduler = requestScheduler;
+            return this;
+        }
+
+        /**
+         * Record the latency of dns, connect, tls, first byte, download, decode and delivery, and the bytes of every request,
+         * aggregated per service method, read them by {@linkplain WebApi#getMetrics()}
+         * @param metrics default false
+         * @return
+         */
+        @NonNull
+        public Builder metrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Retry the transient failures of the idempotent requests with exponential backoff and jitter,
+         * {@linkplain ApiSubscriber.ApiErrorCallback} is only called when the last attempt failed.
+         * A service method can override it by {@linkplain Retry}
+         * @param retryPolicy {@linkplain RetryPolicy#NONE} by default
+         * @return
+         */
+        @NonNull
+        public Builder retryPolicy(@NonNull RetryPolicy retryPolicy) {
+            checkNotNull(retryPolicy, "retryPolicy == null");
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * @param retryBudget limit the retries of all the requests, a new {@linkplain RetryBudget} by default
+         * @return
+         */
+        @NonNull
+        public Builder retryBudget(@NonNull RetryBudget retryBudget) {
+            checkNotNull(retryBudget, "retryBudget == null");
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * Fail the requests fast with {@linkplain com.zhourh.webapi.exception.CircuitOpenException}
+         * while their host or service method is failing or slow, instead of waiting for the timeout.
+         * Implement {@linkplain ApiSubscriber.CircuitBreakerCallback} to be notified
+         * @param circuitBreaker null to disable, such as {@code new CircuitBreaker.Builder().build()}
+         * @return
+         */
+        @NonNull
+        public Builder circuitBreaker(@Nullable CircuitBreaker circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * Share the connection pool, dispatcher and TLS sessions of a client, such as {@linkplain WebApi#getOkHttpClient()}
+         * of another {@linkplain WebApi}. The interceptors of the client are replaced by the ones of this builder,
+         * the other settings of this builder override the ones of the client
+         * @param okHttpClient null to create a new client
+         * @return
+         */
+        @NonNull
+        public Builder okHttpClient(@Nullable OkHttpClient okHttpClient) {
+            this.okHttpClient = okHttpClient;
+            return this;
+        }
+
+        /**
+         * @param maxIdleConnections the max count of the idle connections kept, 5 by default
+         * @param keepAlive how long an idle connection is kept, 5 minutes by default
+         * @param unit the unit of keepAlive
+         * @return
+         */
+        @NonNull
+        public Builder connectionPool(int maxIdleConnections, long keepAlive, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            this.connectionPool = new ConnectionPool(maxIdleConnections, keepAlive, unit);
+            return this;
+        }
+
+        /**
+         * The limits of the concurrent requests, in total and per host, enforced by a {@linkplain RequestScheduler}
+         * before the requests are sent. The requests are executed synchronously on the threads of the scheduler,
+         * the limits of the OkHttp dispatcher do not apply to them, and the dispatcher of a shared client is kept.
+         * Not allowed together with {@linkplain #requestScheduler(RequestScheduler)}, which has its own limits
+         * @param maxRequests unlimited by default
+         * @param maxRequestsPerHost unlimited by default
+         * @return
+         */
+        @NonNull
+        public Builder maxRequests(int maxRequests, int maxRequestsPerHost) {
+            if (maxRequests < 1 || maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequests < 1 || maxRequestsPerHost < 1");
+            }
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * @param http2 false to force HTTP/1.1, such as for a proxy or server mishandling HTTP/2,
+         *              true keeps the protocols of the http client, OkHttp uses HTTP/2 when the server supports it by default
+         * @return
+         */
+        @NonNull
+        public Builder http2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout 10 seconds by default, 0 for no timeout
+         * @param readTimeout 10 seconds by default, 0 for no timeout
+         * @param writeTimeout 10 seconds by default, 0 for no timeout
+         * @param unit the unit of the timeouts
+         * @return
+         */
+        @NonNull
+        public Builder timeouts(long connectTimeout, long readTimeout, long writeTimeout, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            if (connectTimeout < 0 || readTimeout < 0 || writeTimeout < 0) {
+                throw new IllegalArgumentException("timeout < 0");
+            }
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.writeTimeout = writeTimeout;
+            this.timeoutUnit = unit;
+            return this;
+        }
+
+        /**
+         * Limit the time of a whole request, including the retries and the redirects,
+         * the request fails with {@linkplain java.net.SocketTimeoutException} when it is exceeded
+         * @param callTimeout 0 for no limit, 0 by default
+         * @param unit the unit of callTimeout
+         * @return
+         */
+        @NonNull
+        public Builder callTimeout(long callTimeout, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            this.callTimeout = callTimeout;
+            this.callTimeoutUnit = unit;
+            return this;
+        }
+
+        /**
+         * Resolve the hosts with a custom dns, such as a {@linkplain CachingDns} keep the addresses in memory
+         * and refresh them in the background
+         * @param dns null to use the dns of the shared client or {@linkplain Dns#SYSTEM}
+         * @return
+         */
+        @NonNull
+        public Builder dns(@Nullable Dns dns) {
+            this.dns = dns;
+            return this;
+        }
+
+        /**
+         * Open the connection to the base url in the background right after build,
+         * so the first request doesn't wait for the dns lookup, tcp connect and tls handshake
+         * @param warmUp default false
+         * @return
+         * @see ConnectionWarmer
+         */
+        @NonNull
+        public Builder warmUp(boolean warmUp) {
+            this.warmUp = warmUp;
+            return this;
+        }
+
+        /**
+         * Also warm up the connection to another host, such as the cdn of the images
+         * @param url an absolute url of the host
+         * @return
+         */
+        @NonNull
+        public Builder addWarmUpUrl(@NonNull String url) {
+            checkNotNull(url, "url == null");
+            warmUpUrls.add(url);
+            return this;
+        }
+
+        /**
+         * Accept the responses encoded by the codec, such as a brotli or zstd codec backed by its library,
+         * the codecs added first are preferred, gzip is always accepted after them
+         * @param codec
+         * @return
+         * @see ContentCodecInterceptor
+         */
+        @NonNull
+        public Builder addContentCodec(@NonNull ContentCodec codec) {
+            checkNotNull(codec, "codec == null");
+            contentCodecs.add(codec);
+            return this;
+        }
+
+        /**
+         * Encode the request bodies longer than the threshold, such as the bulk uploads,
+         * the server must accept the Content-Encoding of the codec
+         * @param codec such as {@linkplain ContentCodec#GZIP}, null to send the bodies plain
+         * @param threshold the min length of the request bodies encoded, the bodies of unknown length are always encoded
+         * @return
+         */
+        @NonNull
+        public Builder requestCompression(@Nullable ContentCodec codec, long threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("threshold < 0");
+            }
+            this.requestCodec = codec;
+            this.requestCompressionThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * @param deliveryMode where the results are delivered, {@linkplain DeliveryMode#MAIN} by default,
+         *                     {@linkplain DeliveryMode#MAIN_BATCHED} for the screens sending many requests at once
+         * @return
+         */
+        @NonNull
+        public Builder deliveryMode(@NonNull DeliveryMode deliveryMode) {
+            checkNotNull(deliveryMode, "deliveryMode == null");
+            this.deliveryMode = deliveryMode;
+            return this;
+        }
+
+        /**
+         * Enable {@linkplain WebApi#enqueueOffline(Flowable, String, String)}, the waiting requests are sent
+         * again as soon as the connectivity returns. The app must declare the permission {@code ACCESS_NETWORK_STATE}
+         * in its manifest to read the connectivity, the library does not merge it into every app
+         * @param offlineQueue default false
+         * @return
+         * @see OfflineQueue
+         */
+        @NonNull
+        public Builder offlineQueue(boolean offlineQueue) {
+            this.offlineQueue = offlineQueue;
+            return this;
+        }
+
+        /**
+         * @param offlineQueueDirectory the directory of the journal of the offline queue
+         * @return
+         */
+        @NonNull
+        public Builder offlineQueueDirectory(@Nullable File offlineQueueDirectory) {
+            this.offlineQueueDirectory = offlineQueueDirectory;
+            return this;
+        }
+
+        /**
+         * The requests are logged by {@linkplain AsyncLoggingInterceptor} off the request threads,
+         * nothing is added to the client for {@linkplain HttpLoggingInterceptor.Level#NONE}
+         * @param logLevel
+         * @return
+         */
         @NonNull
         public Builder logLevel(@NonNull HttpLoggingInterceptor.Level logLevel){
             checkNotNull(logLevel, "logLevel == null");
@@ -361,6 +1394,43 @@ public class WebApi {
             return this;
         }
 
+        /**
+         * @param logSampleRate the part of the requests logged at the log level, from 0 to 1, default 1,
+         *                      the failures of the others are still logged in one line
+         * @return
+         */
+        @NonNull
+        public Builder logSampleRate(float logSampleRate) {
+            if (logSampleRate < 0f || logSampleRate > 1f) {
+                throw new IllegalArgumentException("logSampleRate < 0 || logSampleRate > 1");
+            }
+            this.logSampleRate = logSampleRate;
+            return this;
+        }
+
+        /**
+         * @param logMaxBodySize the max bytes of a body logged at {@linkplain HttpLoggingInterceptor.Level#BODY}, 64 KiB by default
+         * @return
+         */
+        @NonNull
+        public Builder logMaxBodySize(long logMaxBodySize) {
+            if (logMaxBodySize < 0) {
+                throw new IllegalArgumentException("logMaxBodySize < 0");
+            }
+            this.logMaxBodySize = logMaxBodySize;
+            return this;
+        }
+
+        /**
+         * @param logger where the log lines are written, the platform log by default
+         * @return
+         */
+        @NonNull
+        public Builder logger(@Nullable HttpLoggingInterceptor.Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
         @NonNull
         public Builder addService(int serviceId, @NonNull Class serviceClass){
             serviceClasses.put(serviceId, serviceClass);
@@ -392,10 +1462,177 @@ public class WebApi {
 
         @NonNull
         public WebApi build(@NonNull Application application){
+            return build(application, false);
+        }
+
+        /**
+         * Build a {@linkplain WebApi} without blocking the caller thread, such as in {@linkplain Application#onCreate()}.
+         * <p>
+         * The http client, including the certificates, the cookie store and the disk cache, is built in the background,
+         * the requests sent before it is ready wait for it on the request threads. The time spent is
+         * reported by {@linkplain WebApi#getStartupTiming()}
+         * @param application
+         * @return
+         */
+        @NonNull
+        public WebApi buildAsync(@NonNull Application application){
+            return build(application, true);
+        }
+
+        private WebApi build(@NonNull final Application application, boolean async){
             checkNotNull(baseUrl, "baseUrl == null");
             checkNotNull(logLevel, "logLevel == null");
             checkNotNull(application, "application == null");
-            OkHttpClient.Builder okHttpClientBuilder = new OkHttpClient.Builder();
+            RequestScheduler scheduler = requestScheduler;
+            if (maxRequests > 0) {
+                if (scheduler != null) {
+                    throw new IllegalStateException("Set the limits on the requestScheduler, not both maxRequests and requestScheduler");
+                }
+                // like the dispatcher, the requests over the limits wait and are never dropped
+                scheduler = new RequestScheduler(maxRequests, maxRequestsPerHost, Integer.MAX_VALUE);
+            }
+            final StartupTiming startupTiming = new StartupTiming(async);
+            final RequestMetrics requestMetrics = metrics ? new RequestMetrics() : null;
+            final ContentCodecInterceptor contentCodecInterceptor = !contentCodecs.isEmpty() || requestCodec != null
+                    ? new ContentCodecInterceptor(contentCodecs, requestCodec, requestCompressionThreshold) : null;
+            okhttp3.Call.Factory callFactory;
+            final LazyCallFactory lazyCallFactory;
+            if (async) {
+                lazyCallFactory = new LazyCallFactory();
+                callFactory = lazyCallFactory;
+            } else {
+                lazyCallFactory = null;
+                long clientStart = System.nanoTime();
+                callFactory = buildOkHttpClient(application, requestMetrics, contentCodecInterceptor);
+                startupTiming.clientBuilt(System.nanoTime() - clientStart);
+            }
+
+            RequestKey requestKey = RequestKey.create(requestKeyScope);
+            MemoryCache memoryCache = memoryCacheSize > 0
+                    ? new MemoryCache(memoryCacheSize, memoryCacheTtl, memoryCacheTtlUnit, memoryCacheWeigher, requestKey) : null;
+            WebApiCallAdapterFactory callAdapterFactory = new WebApiCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                    .coalescer(coalesceRequests ? new RequestCoalescer(requestKey) : null)
+                    .memoryCache(memoryCache)
+                    .retrier(new RequestRetrier(retryBudget != null ? retryBudget : new RetryBudget()), retryPolicy)
+                    .circuitBreaker(circuitBreaker)
+                    .callTimeout(callTimeout, callTimeoutUnit);
+
+            Retrofit.Builder retrofitBuilder = new Retrofit.Builder().baseUrl(baseUrl)
+                    .addCallAdapterFactory(callAdapterFactory);
+            if (requestMetrics != null) {
+                retrofitBuilder.addConverterFactory(requestMetrics.converterFactory());
+            }
+            if (messagePack) {
+                retrofitBuilder.addConverterFactory(MessagePackConverterFactory.create());
+            }
+            if (jsonBinders) {
+                retrofitBuilder.addConverterFactory(JsonBinderConverterFactory.create());
+            }
+            if (streamingJson) {
+                retrofitBuilder.addConverterFactory(StreamingFastJsonConverterFactory.create(apiEnvelope));
+            }
+            final Retrofit retrofit = retrofitBuilder.addConverterFactory(FastJsonConverterFactory.create())
+                    .callFactory(callFactory)
+                    .build();
+            RequestBatcher requestBatcher = null;
+            if (batchEndpoint != null) {
+                HttpUrl batchUrl = retrofit.baseUrl().resolve(batchEndpoint);
+                checkNotNull(batchUrl, "Illegal batchEndpoint: " + batchEndpoint);
+                requestBatcher = new RequestBatcher(retrofit.callFactory(), batchUrl, batchWindow, batchWindowUnit, batchMaxSize);
+            }
+            final List<HttpUrl> warmUpHttpUrls = new ArrayList<>();
+            if (warmUp) {
+                warmUpHttpUrls.add(retrofit.baseUrl());
+                for (String url : warmUpUrls) {
+                    HttpUrl httpUrl = HttpUrl.parse(url);
+                    checkNotNull(httpUrl, "Illegal warm up url: " + url);
+                    warmUpHttpUrls.add(httpUrl);
+                }
+            }
+            ConnectionWarmer connectionWarmer = null;
+            if (!async && warmUp) {
+                connectionWarmer = new ConnectionWarmer((OkHttpClient) callFactory);
+                connectionWarmer.warmUp(warmUpHttpUrls);
+            }
+            OfflineQueue queue = null;
+            if (offlineQueue) {
+                // the journal is loaded on the thread of the queue
+                queue = new OfflineQueue(application, offlineQueueDirectory, retrofit, 100, TimeUnit.MILLISECONDS);
+                queue.watchConnectivity();
+            }
+            CacheReader cacheReader = new CacheReader(retrofit, memoryCache, cache && cacheSize > 0);
+            final WebApi webApi = new WebApi(application, retrofit, serviceClasses, apiErrorCallback, memoryCache, apiEnvelope,
+                    requestBatcher, scheduler, requestMetrics, circuitBreaker, connectionWarmer, startupTiming, queue,
+                    cacheReader, deliveryMode, contentCodecInterceptor);
+            if (async) {
+                // the builder may be changed and reused after buildAsync returns
+                final Builder config = snapshot();
+                Schedulers.io().scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        OkHttpClient client;
+                        long clientStart = System.nanoTime();
+                        try {
+                            client = config.buildOkHttpClient(application, requestMetrics, contentCodecInterceptor);
+                        } catch (Throwable e) {
+                            lazyCallFactory.fail(e);
+                            return;
+                        }
+                        startupTiming.clientBuilt(System.nanoTime() - clientStart);
+                        lazyCallFactory.ready(client);
+                        if (!warmUpHttpUrls.isEmpty()) {
+                            ConnectionWarmer connectionWarmer = new ConnectionWarmer(client);
+                            connectionWarmer.warmUp(warmUpHttpUrls);
+                            webApi.connectionWarmer = connectionWarmer;
+                        }
+                    }
+                });
+            }
+            startupTiming.built();
+            return webApi;
+        }
+
+        /**
+         * @return a copy of the settings of the http client, read by {@linkplain #buildOkHttpClient} in the background
+         */
+        private Builder snapshot() {
+            Builder config = new Builder();
+            config.persistentCookie = persistentCookie;
+            config.cache = cache;
+            config.cacheDiretory = cacheDiretory;
+            config.cacheSize = cacheSize;
+            config.logLevel = logLevel;
+            config.logSampleRate = logSampleRate;
+            config.logMaxBodySize = logMaxBodySize;
+            config.logger = logger;
+            config.sslCertificates = new HashMap<>(sslCertificates);
+            config.trustDomains = new ArrayList<>(trustDomains);
+            config.interceptors = new ArrayList<>(interceptors);
+            config.messagePack = messagePack;
+            config.okHttpClient = okHttpClient;
+            config.connectionPool = connectionPool;
+            config.http2 = http2;
+            config.connectTimeout = connectTimeout;
+            config.readTimeout = readTimeout;
+            config.writeTimeout = writeTimeout;
+            config.timeoutUnit = timeoutUnit;
+            config.dns = dns;
+            return config;
+        }
+
+        /**
+         * Build the http client, it reads the certificates from the assets and creates the disk cache
+         */
+        private OkHttpClient buildOkHttpClient(Application application, RequestMetrics requestMetrics,
+                                               ContentCodecInterceptor contentCodecInterceptor) {
+            OkHttpClient.Builder okHttpClientBuilder = newOkHttpClientBuilder();
+            Dns clientDns = dns != null ? dns : okHttpClient != null ? okHttpClient.dns() : Dns.SYSTEM;
+            okHttpClientBuilder.dns(clientDns);
+            if (requestMetrics != null) {
+                okHttpClientBuilder.dns(requestMetrics.dns(clientDns))
+                        .socketFactory(requestMetrics.socketFactory())
+                        .addNetworkInterceptor(requestMetrics.networkInterceptor());
+            }
 
             if (persistentCookie){
                 okHttpClientBuilder.cookieJar(new PersistentCookieJar(new SetCookieCache(), new SharedPrefsCookiePersistor(application)));
@@ -417,22 +1654,60 @@ public class WebApi {
                 }
             }
 
-            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-            loggingInterceptor.setLevel(logLevel);
-            okHttpClientBuilder.addInterceptor(loggingInterceptor);
+            if (messagePack) {
+                okHttpClientBuilder.addInterceptor(MessagePackConverterFactory.acceptInterceptor());
+            }
 
-            if (cache && !TextUtils.isEmpty(cacheDiretory) && cacheSize > 0) {
-                Cache cache = new Cache(new File(cacheDiretory), cacheSize);
-                okHttpClientBuilder.cache(cache);
-                okHttpClientBuilder.addNetworkInterceptor(new CacheInterceptor());
+            if (logLevel != HttpLoggingInterceptor.Level.NONE) {
+                okHttpClientBuilder.addInterceptor(new AsyncLoggingInterceptor.Builder()
+                        .level(logLevel)
+                        .sampleRate(logSampleRate)
+                        .maxBodySize(logMaxBodySize)
+                        .logger(logger != null ? logger : HttpLoggingInterceptor.Logger.DEFAULT)
+                        .build());
             }
 
-            Retrofit retrofit = new Retrofit.Builder().baseUrl(baseUrl)
-                    .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                    .addConverterFactory(FastJsonConverterFactory.create())
-                    .client(okHttpClientBuilder.build())
-                    .build();
-            return new WebApi(application, retrofit, serviceClasses, apiErrorCallback);
+            if (contentCodecInterceptor != null) {
+                // the last, so the logging sees the plain bodies
+                okHttpClientBuilder.addInterceptor(contentCodecInterceptor);
+            }
+
+            if (cache && cacheSize > 0) {
+                String cacheDirectory = cacheDiretory != null ? cacheDiretory
+                        : Environment.getExternalStorageDirectory().getAbsolutePath() + File.separator + "HttpCache";
+                if (!TextUtils.isEmpty(cacheDirectory)) {
+                    Cache cache = new Cache(new File(cacheDirectory), cacheSize);
+                    okHttpClientBuilder.cache(cache);
+                    okHttpClientBuilder.addNetworkInterceptor(new CacheInterceptor());
+                }
+            }
+            return okHttpClientBuilder.build();
+        }
+
+        /**
+         * @return a builder share the client if set, with the pool, protocols and timeouts configured
+         */
+        private OkHttpClient.Builder newOkHttpClientBuilder() {
+            OkHttpClient.Builder okHttpClientBuilder;
+            if (okHttpClient != null) {
+                okHttpClientBuilder = okHttpClient.newBuilder();
+                okHttpClientBuilder.interceptors().clear();
+                okHttpClientBuilder.networkInterceptors().clear();
+            } else {
+                okHttpClientBuilder = new OkHttpClient.Builder();
+            }
+            if (connectionPool != null) {
+                okHttpClientBuilder.connectionPool(connectionPool);
+            }
+            if (!http2) {
+                okHttpClientBuilder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+            }
+            if (connectTimeout >= 0) {
+                okHttpClientBuilder.connectTimeout(connectTimeout, timeoutUnit)
+                        .readTimeout(readTimeout, timeoutUnit)
+                        .writeTimeout(writeTimeout, timeoutUnit);
+            }
+            return okHttpClientBuilder;
         }
 
         private void sslEncrypt(Context context, OkHttpClient.Builder okHttpClientBuilder, Set<Map.Entry<String, String>> certificates){
@@ -0,0 +1,26 @@
+package com.zhourh.webapi.delivery;
+
+/**
+ * Where the results of a request are delivered to its {@linkplain com.zhourh.webapi.core.ApiSubscriber},
+ * the default of a {@linkplain com.zhourh.webapi.core.WebApi} is set by
+ * {@linkplain com.zhourh.webapi.core.WebApi.Builder#deliveryMode(DeliveryMode)}, and it can be changed per request by
+ * {@linkplain com.zhourh.webapi.core.RequestOptions.Builder#deliveryMode(DeliveryMode)}
+ */
+public enum DeliveryMode {
+
+    /**
+     * On main thread, a message of the main looper for each result
+     */
+    MAIN,
+
+    /**
+     * On main thread, the results arrived within a frame are delivered together in one dispatch at the next frame,
+     * see {@linkplain FrameDeliveryScheduler}
+     */
+    MAIN_BATCHED,
+
+    /**
+     * On the thread of the request, for the subscribers not touching the ui, such as writing to a database
+     */
+    BACKGROUND
+}
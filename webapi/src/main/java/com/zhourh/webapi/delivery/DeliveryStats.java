@@ -0,0 +1,68 @@
+package com.zhourh.webapi.delivery;
+
+import android.support.annotation.NonNull;
+
+import com.zhourh.webapi.metrics.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The cost of {@linkplain DeliveryMode#MAIN_BATCHED} on main thread, read it from
+ * {@linkplain com.zhourh.webapi.core.WebApi#getDeliveryStats()}.
+ * The time of a dispatch is spent in the frame, compare it with the 16ms of a frame
+ */
+public final class DeliveryStats {
+
+    private final AtomicLong dispatchCount = new AtomicLong();
+
+    private final AtomicLong deliveryCount = new AtomicLong();
+
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    private final Histogram dispatchTime = new Histogram();
+
+    void dispatched(int batchSize, long nanos) {
+        dispatchCount.incrementAndGet();
+        deliveryCount.addAndGet(batchSize);
+        long max;
+        while ((max = maxBatchSize.get()) < batchSize && !maxBatchSize.compareAndSet(max, batchSize)) {
+            // retry
+        }
+        dispatchTime.record(nanos);
+    }
+
+    /**
+     * @return the count of the dispatches on main thread, one per frame at most
+     */
+    public long getDispatchCount() {
+        return dispatchCount.get();
+    }
+
+    /**
+     * @return the count of the deliveries, each of them would be a message of the main looper in {@linkplain DeliveryMode#MAIN}
+     */
+    public long getDeliveryCount() {
+        return deliveryCount.get();
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    /**
+     * @return the time spent on main thread per dispatch
+     */
+    @NonNull
+    public Histogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    @Override
+    public String toString() {
+        long dispatches = dispatchCount.get();
+        long deliveries = deliveryCount.get();
+        return "DeliveryStats[dispatches=" + dispatches + ",deliveries=" + deliveries
+                + ",meanBatch=" + (dispatches != 0 ? deliveries / dispatches : 0) + ",maxBatch=" + maxBatchSize.get()
+                + ",dispatchTime=" + dispatchTime + "]";
+    }
+}
@@ -0,0 +1,226 @@
+package com.zhourh.webapi.delivery;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+
+/**
+ * A main thread {@linkplain Scheduler} that merges the works scheduled within a frame into one dispatch,
+ * so 50 requests completed together cost one frame callback rather than 50 messages of the main looper.
+ * <p>
+ * The first work of a frame posts a callback to the {@linkplain Choreographer} on API 16+, or a message to the main looper
+ * before, the works scheduled until it runs are run by it in order. The works scheduled by the works themselves
+ * are left to the next frame, so a long chain of results never blocks a frame.
+ * The works with a delay are posted to the main looper one by one
+ */
+public final class FrameDeliveryScheduler extends Scheduler {
+
+    private final ConcurrentLinkedQueue<Work> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a dispatch is posted and not started yet
+     */
+    private final AtomicBoolean posted = new AtomicBoolean();
+
+    private final DeliveryStats stats = new DeliveryStats();
+
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private volatile Handler handler;
+
+    private volatile FramePoster framePoster;
+
+    @NonNull
+    public DeliveryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new FrameWorker();
+    }
+
+    private void enqueue(Work work) {
+        queue.offer(work);
+        if (posted.compareAndSet(false, true)) {
+            post();
+        }
+    }
+
+    private void post() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            FramePoster poster = framePoster;
+            if (poster == null) {
+                poster = new FramePoster(dispatch);
+                framePoster = poster;
+            }
+            // the choreographer of main thread is got on main thread only
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                poster.post();
+                return;
+            }
+            handler().post(poster);
+            return;
+        }
+        handler().post(dispatch);
+    }
+
+    private Handler handler() {
+        Handler h = handler;
+        if (h == null) {
+            h = new Handler(Looper.getMainLooper());
+            handler = h;
+        }
+        return h;
+    }
+
+    /**
+     * Run the works queued before the dispatch started, on main thread
+     */
+    private void dispatch() {
+        long start = System.nanoTime();
+        // allow the works queued from now on to post the next dispatch
+        posted.set(false);
+        int count = queue.size();
+        int delivered = 0;
+        for (int i = 0; i < count; i++) {
+            Work work = queue.poll();
+            if (work == null) {
+                break;
+            }
+            if (work.run()) {
+                delivered++;
+            }
+        }
+        if (delivered > 0) {
+            stats.dispatched(delivered, System.nanoTime() - start);
+        }
+    }
+
+    private final class FrameWorker extends Worker {
+
+        private volatile boolean disposed;
+
+        @Override
+        public Disposable schedule(@NonNull Runnable run, long delay, @NonNull TimeUnit unit) {
+            if (disposed) {
+                return Disposables.disposed();
+            }
+            Work work = new Work(this, run);
+            if (delay > 0) {
+                handler().postDelayed(new DelayedWork(work), unit.toMillis(delay));
+            } else {
+                enqueue(work);
+            }
+            return work;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    private static final class Work implements Disposable {
+
+        private final FrameWorker worker;
+
+        private final Runnable run;
+
+        private volatile boolean disposed;
+
+        Work(FrameWorker worker, Runnable run) {
+            this.worker = worker;
+            this.run = run;
+        }
+
+        /**
+         * @return false if it is disposed
+         */
+        boolean run() {
+            if (disposed || worker.isDisposed()) {
+                return false;
+            }
+            run.run();
+            return true;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /**
+     * A delayed work is not worth batching, it is run by its own message
+     */
+    private static final class DelayedWork implements Runnable {
+
+        private final Work work;
+
+        DelayedWork(Work work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            work.run();
+        }
+    }
+
+    /**
+     * Post the dispatch to the next frame, it is loaded on API 16+ only
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FramePoster implements Runnable, Choreographer.FrameCallback {
+
+        private final Runnable dispatch;
+
+        FramePoster(Runnable dispatch) {
+            this.dispatch = dispatch;
+        }
+
+        /**
+         * Must be called on main thread
+         */
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void run() {
+            post();
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatch.run();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.zhourh.webapi.dns;
+
+import android.support.annotation.NonNull;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Dns;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A {@linkplain Dns} keep the addresses in memory.
+ * <p>
+ * The addresses older than the ttl are stale, they are still returned at once and refreshed in the background,
+ * the lookup blocks only when the host has never been resolved or the addresses are older than the max stale time.
+ * The IPv4 and IPv6 addresses are interleaved, so when a family is unreachable OkHttp falls back to the other one
+ * with the next route instead of trying all the addresses of the first family.
+ * The static overrides are never looked up.
+ */
+public final class CachingDns implements Dns {
+
+    private final Dns delegate;
+
+    private final long ttlNanos;
+
+    private final long maxStaleNanos;
+
+    private final Map<String, List<InetAddress>> overrides;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong staleHitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private CachingDns(Builder builder) {
+        this.delegate = builder.delegate;
+        this.ttlNanos = builder.ttlNanos;
+        this.maxStaleNanos = builder.maxStaleNanos;
+        this.overrides = Collections.unmodifiableMap(new HashMap<>(builder.overrides));
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        checkNotNull(hostname, "hostname == null");
+        String host = hostname.toLowerCase(Locale.US);
+        List<InetAddress> override = overrides.get(host);
+        if (override != null) {
+            hitCount.incrementAndGet();
+            return override;
+        }
+        Entry entry = entries.get(host);
+        long now = System.nanoTime();
+        if (entry != null) {
+            long age = now - entry.resolvedNanos;
+            if (age < ttlNanos) {
+                hitCount.incrementAndGet();
+                return entry.addresses;
+            }
+            if (age < ttlNanos + maxStaleNanos) {
+                staleHitCount.incrementAndGet();
+                refresh(host, entry);
+                return entry.addresses;
+            }
+        }
+        missCount.incrementAndGet();
+        return resolve(host);
+    }
+
+    private List<InetAddress> resolve(String host) throws UnknownHostException {
+        List<InetAddress> addresses;
+        try {
+            addresses = interleave(delegate.lookup(host));
+        } catch (UnknownHostException e) {
+            failureCount.incrementAndGet();
+            throw e;
+        }
+        entries.put(host, new Entry(addresses));
+        return addresses;
+    }
+
+    private void refresh(final String host, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        refreshCount.incrementAndGet();
+        Schedulers.io().scheduleDirect(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resolve(host);
+                } catch (UnknownHostException ignored) {
+                    // keep serving the stale addresses until they expire
+                } finally {
+                    Entry current = entries.get(host);
+                    if (current != null) {
+                        current.refreshing.set(false);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Alternate the IPv6 and IPv4 addresses, keep the order within a family
+     */
+    static List<InetAddress> interleave(List<InetAddress> addresses) {
+        List<InetAddress> v6 = new ArrayList<>();
+        List<InetAddress> v4 = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            if (address instanceof Inet6Address) {
+                v6.add(address);
+            } else {
+                v4.add(address);
+            }
+        }
+        if (v6.isEmpty() || v4.isEmpty()) {
+            return Collections.unmodifiableList(new ArrayList<>(addresses));
+        }
+        // prefer the family the resolver returned first
+        boolean v6First = !(addresses.get(0) instanceof Inet4Address);
+        List<InetAddress> first = v6First ? v6 : v4;
+        List<InetAddress> second = v6First ? v4 : v6;
+        List<InetAddress> result = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                result.add(first.get(i));
+            }
+            if (i < second.size()) {
+                result.add(second.get(i));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Forget the addresses of all the hosts, such as when the network changed
+     */
+    public void evictAll() {
+        entries.clear();
+    }
+
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the count of the stale addresses returned while refreshing
+     */
+    public long staleHitCount() {
+        return staleHitCount.get();
+    }
+
+    /**
+     * @return the count of the lookups blocked on the delegate
+     */
+    public long missCount() {
+        return missCount.get();
+    }
+
+    public long refreshCount() {
+        return refreshCount.get();
+    }
+
+    public long failureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingDns[hits=" + hitCount + ",staleHits=" + staleHitCount + ",misses=" + missCount
+                + ",refreshes=" + refreshCount + ",failures=" + failureCount + ",hosts=" + entries.size() + ']';
+    }
+
+    private static final class Entry {
+
+        final List<InetAddress> addresses;
+
+        final long resolvedNanos = System.nanoTime();
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<InetAddress> addresses) {
+            this.addresses = addresses;
+        }
+    }
+
+    public static final class Builder {
+
+        private Dns delegate = Dns.SYSTEM;
+
+        private long ttlNanos = TimeUnit.MINUTES.toNanos(1);
+
+        private long maxStaleNanos = TimeUnit.HOURS.toNanos(1);
+
+        private final Map<String, List<InetAddress>> overrides = new HashMap<>();
+
+        /**
+         * @param delegate resolve the hosts not cached, {@linkplain Dns#SYSTEM} by default
+         * @return
+         */
+        @NonNull
+        public Builder delegate(@NonNull Dns delegate) {
+            this.delegate = checkNotNull(delegate, "delegate == null");
+            return this;
+        }
+
+        /**
+         * The system resolver doesn't tell the ttl of the records, so it is configured
+         * @param ttl the addresses are fresh within it, 1 minute by default
+         * @param maxStale the stale addresses are still returned within it after the ttl, 1 hour by default
+         * @param unit the unit of ttl and maxStale
+         * @return
+         */
+        @NonNull
+        public Builder ttl(long ttl, long maxStale, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            if (ttl < 0 || maxStale < 0) {
+                throw new IllegalArgumentException("ttl < 0 || maxStale < 0");
+            }
+            this.ttlNanos = unit.toNanos(ttl);
+            this.maxStaleNanos = unit.toNanos(maxStale);
+            return this;
+        }
+
+        /**
+         * Resolve a host to the static addresses, such as a test server
+         * @param hostname the host
+         * @param addresses the addresses of the host
+         * @return
+         */
+        @NonNull
+        public Builder override(@NonNull String hostname, @NonNull InetAddress... addresses) {
+            checkNotNull(hostname, "hostname == null");
+            checkNotNull(addresses, "addresses == null");
+            if (addresses.length == 0) {
+                throw new IllegalArgumentException("addresses is empty");
+            }
+            List<InetAddress> list = new ArrayList<>();
+            Collections.addAll(list, addresses);
+            overrides.put(hostname.toLowerCase(Locale.US), Collections.unmodifiableList(list));
+            return this;
+        }
+
+        @NonNull
+        public CachingDns build() {
+            return new CachingDns(this);
+        }
+    }
+}
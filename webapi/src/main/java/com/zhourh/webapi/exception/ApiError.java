@@ -0,0 +1,200 @@
+package com.zhourh.webapi.exception;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * The failure of a request classified once, delivered by {@linkplain com.zhourh.webapi.core.ApiSubscriber.ClassifiedErrorCallback}.
+ * <p>
+ * The category is found by the class of the failure in a table, the classes not in the table are resolved
+ * by their super classes once and added to it, so a failure costs one map lookup however many categories there are
+ */
+public final class ApiError {
+
+    public enum Category {
+
+        /**
+         * A {@linkplain SocketTimeoutException}, including the call timeout
+         */
+        TIMEOUT,
+
+        /**
+         * A {@linkplain SocketException}, such as the connection refused or reset
+         */
+        CONNECTION,
+
+        /**
+         * The other {@linkplain IOException}, such as the dns lookup failed
+         */
+        NETWORK,
+
+        /**
+         * A {@linkplain ProtocolException}
+         */
+        PROTOCOL,
+
+        /**
+         * A {@linkplain HttpException}, the server replied a status other than 2xx
+         */
+        HTTP,
+
+        /**
+         * An {@linkplain ApiException}, the server replied the result is not successful
+         */
+        API,
+
+        /**
+         * A {@linkplain CircuitOpenException}, the request is not sent
+         */
+        CIRCUIT_OPEN,
+
+        /**
+         * A {@linkplain RequestDroppedException}, the request is not sent
+         */
+        DROPPED,
+
+        /**
+         * A {@linkplain CacheMissException}, the request is not sent
+         */
+        CACHE_MISS,
+
+        /**
+         * Any other failure, such as the json failed to decode
+         */
+        UNKNOWN
+    }
+
+    private static final ConcurrentHashMap<Class<?>, Category> CATEGORIES = new ConcurrentHashMap<>();
+
+    static {
+        CATEGORIES.put(SocketTimeoutException.class, Category.TIMEOUT);
+        CATEGORIES.put(SocketException.class, Category.CONNECTION);
+        CATEGORIES.put(IOException.class, Category.NETWORK);
+        CATEGORIES.put(ProtocolException.class, Category.PROTOCOL);
+        CATEGORIES.put(HttpException.class, Category.HTTP);
+        CATEGORIES.put(ApiException.class, Category.API);
+        CATEGORIES.put(CircuitOpenException.class, Category.CIRCUIT_OPEN);
+        CATEGORIES.put(RequestDroppedException.class, Category.DROPPED);
+        CATEGORIES.put(CacheMissException.class, Category.CACHE_MISS);
+    }
+
+    private final Throwable cause;
+
+    private final Category category;
+
+    private final int httpStatus;
+
+    private final String serverCode;
+
+    private ApiError(Throwable cause, Category category, int httpStatus, String serverCode) {
+        this.cause = cause;
+        this.category = category;
+        this.httpStatus = httpStatus;
+        this.serverCode = serverCode;
+    }
+
+    /**
+     * @param e the failure of a request
+     * @return the classified error
+     */
+    @NonNull
+    public static ApiError from(@NonNull Throwable e) {
+        checkNotNull(e, "e == null");
+        Category category = categoryOf(e.getClass());
+        switch (category) {
+            case HTTP:
+                return new ApiError(e, category, ((HttpException) e).code(), null);
+            case API:
+                return new ApiError(e, category, -1, ((ApiException) e).getCode());
+            default:
+                return new ApiError(e, category, -1, null);
+        }
+    }
+
+    private static Category categoryOf(Class<?> errorClass) {
+        Category category = CATEGORIES.get(errorClass);
+        if (category != null) {
+            return category;
+        }
+        category = Category.UNKNOWN;
+        for (Class<?> c = errorClass.getSuperclass(); c != null; c = c.getSuperclass()) {
+            Category inherited = CATEGORIES.get(c);
+            if (inherited != null) {
+                category = inherited;
+                break;
+            }
+        }
+        CATEGORIES.put(errorClass, category);
+        return category;
+    }
+
+    /**
+     * @return the failure
+     */
+    @NonNull
+    public Throwable getCause() {
+        return cause;
+    }
+
+    @NonNull
+    public Category getCategory() {
+        return category;
+    }
+
+    /**
+     * @return whether the failure is transient, such as a timeout, a network failure, a dropped request,
+     * or the http status 408, 429, 502, 503 and 504
+     */
+    public boolean isRetryable() {
+        switch (category) {
+            case TIMEOUT:
+            case CONNECTION:
+            case NETWORK:
+            case DROPPED:
+                return true;
+            case HTTP:
+                return httpStatus == 408 || httpStatus == 429 || httpStatus == 502 || httpStatus == 503 || httpStatus == 504;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the http status of {@linkplain Category#HTTP}, -1 for the other categories
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    /**
+     * @return the error code of the server of {@linkplain Category#API}, see {@linkplain ApiException#getCode()}
+     */
+    @Nullable
+    public String getServerCode() {
+        return serverCode;
+    }
+
+    /**
+     * @return the message of the failure, the error of the server for {@linkplain Category#API}
+     */
+    @Nullable
+    public String getMessage() {
+        return cause.getMessage();
+    }
+
+    @Override
+    public String toString() {
+        return "ApiError[category=" + category + ",httpStatus=" + httpStatus + ",serverCode=" + serverCode
+                + ",cause=" + cause + "]";
+    }
+}
@@ -2,11 +2,83 @@ package com.zhourh.webapi.exception;
 
 /**
  * Created by Huolongguo on 17/1/5.
+ * <p>
+ * Thrown when the server handled the request but replied {@linkplain com.zhourh.webapi.response.ApiResult#isSuccess()} false,
+ * the message is {@linkplain com.zhourh.webapi.response.ApiResult#getError()}
  */
 
 public class ApiException extends RuntimeException {
 
+    /**
+     * The longest code accepted ahead of the message
+     */
+    private static final int MAX_CODE_LENGTH = 32;
+
+    private final String code;
+
     public ApiException(String message) {
         super(message);
+        this.code = parseCode(message);
+    }
+
+    /**
+     * @return the error code of the server, such as {@code 1001} of {@code "1001: token expired"}
+     * or {@code "[E1001] token expired"}, or the whole error if it is a number, null if not found
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * The stack trace of the failure replied by the server is of no use, skip it, so the failures are cheap in bursts
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * Parse the code ahead of the message without regex: a token followed by ':' or '|', or a token in brackets,
+     * or the whole error if it is a number. The token is of ASCII letters, digits, '-', '_' or '.' with a digit at least,
+     * so a word such as {@code "Error: ..."} is not taken as a code
+     */
+    static String parseCode(String error) {
+        if (error == null) {
+            return null;
+        }
+        int length = error.length();
+        int start = 0;
+        while (start < length && error.charAt(start) == ' ') {
+            start++;
+        }
+        if (start == length) {
+            return null;
+        }
+        boolean bracket = error.charAt(start) == '[';
+        if (bracket) {
+            start++;
+        }
+        boolean digits = true;
+        boolean digit = false;
+        for (int i = start; i < length && i - start <= MAX_CODE_LENGTH; i++) {
+            char c = error.charAt(i);
+            if (bracket ? c == ']' : (c == ':' || c == '|')) {
+                return digit ? error.substring(start, i) : null;
+            }
+            boolean isDigit = c >= '0' && c <= '9';
+            if (!isDigit && !isCodeChar(c)) {
+                return null;
+            }
+            digit |= isDigit;
+            digits &= isDigit;
+            if (!bracket && i == length - 1 && digits) {
+                return error.substring(start);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isCodeChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '_' || c == '.';
     }
 }
@@ -0,0 +1,15 @@
+package com.zhourh.webapi.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request read by {@linkplain com.zhourh.webapi.cache.ReadPolicy#CACHE_ONLY} is not cached
+ */
+public class CacheMissException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheMissException(String message) {
+        super(message);
+    }
+}
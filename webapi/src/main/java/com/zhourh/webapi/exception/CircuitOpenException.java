@@ -0,0 +1,24 @@
+package com.zhourh.webapi.exception;
+
+/**
+ * Thrown without sending the request when the circuit of its host or service method is open,
+ * see {@linkplain com.zhourh.webapi.breaker.CircuitBreaker}
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String circuit;
+
+    public CircuitOpenException(String circuit) {
+        super("The circuit of " + circuit + " is open");
+        this.circuit = circuit;
+    }
+
+    /**
+     * @return the key of the open circuit, the host or the service method
+     */
+    public String getCircuit() {
+        return circuit;
+    }
+}
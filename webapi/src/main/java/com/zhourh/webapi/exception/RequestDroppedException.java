@@ -0,0 +1,16 @@
+package com.zhourh.webapi.exception;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a queued background request is dropped because the queue of
+ * {@linkplain com.zhourh.webapi.schedule.RequestScheduler} is full
+ */
+public class RequestDroppedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RequestDroppedException(String message) {
+        super(message);
+    }
+}
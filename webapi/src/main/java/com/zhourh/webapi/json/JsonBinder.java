@@ -0,0 +1,179 @@
+package com.zhourh.webapi.json;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.parser.JSONLexer;
+import com.alibaba.fastjson.parser.JSONToken;
+import com.alibaba.fastjson.parser.deserializer.ObjectDeserializer;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.zhourh.webapi.utils.Types;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+/**
+ * The base of the binders generated from {@linkplain JsonModel}, a fastjson {@linkplain ObjectDeserializer}
+ * reading the fields straight from the lexer into a new model, without the reflection and the runtime ASM of fastjson.
+ * <p>
+ * The values of the other types, such as a {@code List} or a {@code Map}, are read by the parser,
+ * which finds the binders of the models inside them as well, see {@linkplain JsonBinders#register(com.alibaba.fastjson.parser.ParserConfig, Type)}
+ * @param <T> the model
+ */
+public abstract class JsonBinder<T> implements ObjectDeserializer {
+
+    private static final Type[] NO_TYPE_ARGUMENTS = new Type[0];
+
+    private final Class<?>[] dependencies;
+
+    /**
+     * @param dependencies the classes of the field types, their binders are registered along with this one
+     */
+    protected JsonBinder(Class<?>... dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * @return a new model to bind the fields
+     */
+    protected abstract T newModel();
+
+    /**
+     * Read the value of a field, the lexer is at the token of the value
+     * @param model the model
+     * @param key the json key
+     * @param parser the parser
+     * @param typeArguments the type arguments of the model, such as {@code List<CommonQuestionDO>} of {@code UApiResult<List<CommonQuestionDO>>}
+     * @return false if the key is not a field of the model, the value is skipped then
+     */
+    protected abstract boolean readField(T model, String key, DefaultJSONParser parser, Type[] typeArguments);
+
+    Class<?>[] getDependencies() {
+        return dependencies;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final <R> R deserialze(DefaultJSONParser parser, Type type, Object fieldName) {
+        JSONLexer lexer = parser.lexer;
+        if (lexer.token() == JSONToken.NULL) {
+            lexer.nextToken(JSONToken.COMMA);
+            return null;
+        }
+        if (lexer.token() != JSONToken.LBRACE) {
+            throw new JSONException("syntax error, expect {, actual " + JSONToken.name(lexer.token()));
+        }
+        Type[] typeArguments = type instanceof ParameterizedType
+                ? ((ParameterizedType) type).getActualTypeArguments() : NO_TYPE_ARGUMENTS;
+        T model = newModel();
+        for (;;) {
+            String key = lexer.scanSymbol(parser.getSymbolTable());
+            if (key == null) {
+                if (lexer.token() == JSONToken.RBRACE) {
+                    lexer.nextToken(JSONToken.COMMA);
+                    break;
+                }
+                if (lexer.token() == JSONToken.COMMA && lexer.isEnabled(Feature.AllowArbitraryCommas)) {
+                    continue;
+                }
+                throw new JSONException("syntax error, expect a key, actual " + JSONToken.name(lexer.token()));
+            }
+            lexer.nextTokenWithColon(JSONToken.LITERAL_STRING);
+            if (!readField(model, key, parser, typeArguments)) {
+                parser.parse();
+            }
+            if (lexer.token() == JSONToken.RBRACE) {
+                lexer.nextToken(JSONToken.COMMA);
+                break;
+            }
+        }
+        return (R) model;
+    }
+
+    @Override
+    public int getFastMatchToken() {
+        return JSONToken.LBRACE;
+    }
+
+    /**
+     * @return the type argument at the index, {@linkplain Object} if the model is a raw type
+     */
+    protected static Type typeArgument(Type[] typeArguments, int index) {
+        return index < typeArguments.length ? typeArguments[index] : Object.class;
+    }
+
+    /**
+     * @return the parameterized type of the field, such as {@code List<T>}
+     */
+    protected static Type parameterized(Class<?> rawType, Type... typeArguments) {
+        return Types.newParameterizedType(rawType, typeArguments);
+    }
+
+    protected static String readString(DefaultJSONParser parser) {
+        JSONLexer lexer = parser.lexer;
+        if (lexer.token() == JSONToken.LITERAL_STRING) {
+            String value = lexer.stringVal();
+            lexer.nextToken(JSONToken.COMMA);
+            return value;
+        }
+        return TypeUtils.castToString(parser.parse());
+    }
+
+    protected static boolean readBoolean(DefaultJSONParser parser) {
+        JSONLexer lexer = parser.lexer;
+        if (lexer.token() == JSONToken.TRUE || lexer.token() == JSONToken.FALSE) {
+            boolean value = lexer.token() == JSONToken.TRUE;
+            lexer.nextToken(JSONToken.COMMA);
+            return value;
+        }
+        Boolean value = TypeUtils.castToBoolean(parser.parse());
+        return value != null && value;
+    }
+
+    protected static int readInt(DefaultJSONParser parser) {
+        JSONLexer lexer = parser.lexer;
+        if (lexer.token() == JSONToken.LITERAL_INT) {
+            int value = lexer.intValue();
+            lexer.nextToken(JSONToken.COMMA);
+            return value;
+        }
+        Integer value = TypeUtils.castToInt(parser.parse());
+        return value == null ? 0 : value;
+    }
+
+    protected static long readLong(DefaultJSONParser parser) {
+        JSONLexer lexer = parser.lexer;
+        if (lexer.token() == JSONToken.LITERAL_INT) {
+            long value = lexer.longValue();
+            lexer.nextToken(JSONToken.COMMA);
+            return value;
+        }
+        Long value = TypeUtils.castToLong(parser.parse());
+        return value == null ? 0L : value;
+    }
+
+    protected static short readShort(DefaultJSONParser parser) {
+        Short value = TypeUtils.castToShort(parser.parse());
+        return value == null ? 0 : value;
+    }
+
+    protected static byte readByte(DefaultJSONParser parser) {
+        Byte value = TypeUtils.castToByte(parser.parse());
+        return value == null ? 0 : value;
+    }
+
+    protected static char readChar(DefaultJSONParser parser) {
+        Character value = TypeUtils.castToChar(parser.parse());
+        return value == null ? 0 : value;
+    }
+
+    protected static float readFloat(DefaultJSONParser parser) {
+        Float value = TypeUtils.castToFloat(parser.parse());
+        return value == null ? 0f : value;
+    }
+
+    protected static double readDouble(DefaultJSONParser parser) {
+        Double value = TypeUtils.castToDouble(parser.parse());
+        return value == null ? 0d : value;
+    }
+}
@@ -0,0 +1,126 @@
+package com.zhourh.webapi.json;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.alibaba.fastjson.parser.ParserConfig;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Find the binders generated from {@linkplain JsonModel}
+ */
+public final class JsonBinders {
+
+    /**
+     * The suffix of the generated class, such as {@code UApiResult_JsonBinder}
+     */
+    public static final String SUFFIX = "_JsonBinder";
+
+    private static final Object NONE = new Object();
+
+    private static final ConcurrentHashMap<Class<?>, Object> BINDERS = new ConcurrentHashMap<>();
+
+    private JsonBinders() {
+    }
+
+    /**
+     * @param modelClass the model
+     * @return the generated binder, null if the model is not annotated or the compiler can't bind it
+     */
+    @Nullable
+    public static JsonBinder<?> find(@NonNull Class<?> modelClass) {
+        checkNotNull(modelClass, "modelClass == null");
+        Object binder = BINDERS.get(modelClass);
+        if (binder == null) {
+            binder = newBinder(modelClass);
+            Object previous = BINDERS.putIfAbsent(modelClass, binder);
+            if (previous != null) {
+                binder = previous;
+            }
+        }
+        return binder == NONE ? null : (JsonBinder<?>) binder;
+    }
+
+    /**
+     * @return whether a binder is generated for the model
+     */
+    public static boolean isGenerated(@NonNull Class<?> modelClass) {
+        return find(modelClass) != null;
+    }
+
+    /**
+     * Put the binders of the classes in the type, and the classes of their fields, into the config,
+     * such as the binders of {@code UApiResult} and {@code CommonQuestionDO} for {@code UApiResult<List<CommonQuestionDO>>}
+     * @param config the config of the parser
+     * @param type the type to decode
+     * @return whether a binder is found in the type
+     */
+    public static boolean register(@NonNull ParserConfig config, @NonNull Type type) {
+        checkNotNull(config, "config == null");
+        checkNotNull(type, "type == null");
+        synchronized (config) {
+            return register(config, type, new HashSet<Class<?>>());
+        }
+    }
+
+    private static boolean register(ParserConfig config, Type type, Set<Class<?>> visited) {
+        if (type instanceof ParameterizedType) {
+            boolean found = register(config, ((ParameterizedType) type).getRawType(), visited);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                found |= register(config, argument, visited);
+            }
+            return found;
+        }
+        if (type instanceof GenericArrayType) {
+            return register(config, ((GenericArrayType) type).getGenericComponentType(), visited);
+        }
+        if (type instanceof WildcardType) {
+            return register(config, ((WildcardType) type).getUpperBounds()[0], visited);
+        }
+        if (!(type instanceof Class)) {
+            return false;
+        }
+        Class<?> rawType = (Class<?>) type;
+        if (rawType.isArray()) {
+            return register(config, rawType.getComponentType(), visited);
+        }
+        if (rawType.isPrimitive() || rawType.getName().startsWith("java.") || !visited.add(rawType)) {
+            return false;
+        }
+        JsonBinder<?> binder = find(rawType);
+        if (binder == null) {
+            return false;
+        }
+        config.putDeserializer(rawType, binder);
+        for (Class<?> dependency : binder.getDependencies()) {
+            register(config, dependency, visited);
+        }
+        return true;
+    }
+
+    private static Object newBinder(Class<?> modelClass) {
+        if (modelClass.isPrimitive() || modelClass.isArray() || modelClass.isInterface()) {
+            return NONE;
+        }
+        Class<?> binderClass;
+        try {
+            binderClass = Class.forName(modelClass.getName() + SUFFIX, true, modelClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        }
+        try {
+            return binderClass.getConstructor().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create " + binderClass.getName(), e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.zhourh.webapi.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate a {@linkplain JsonBinder} of the model at compile time by the webapi-compiler,
+ * the model is decoded without reflection when {@linkplain com.zhourh.webapi.core.WebApi.Builder#jsonBinders(boolean)}
+ * is enabled, such as
+ * <pre>{@code
+ * @JsonModel
+ * public class UApiResult<T> implements ApiResult<T> {
+ *     private boolean success;
+ *     private T data;
+ *     ...
+ * }
+ * }</pre>
+ * The fields are bound by their names, or the name of {@code @JSONField}, the private fields are set by their setters.
+ * The model the compiler can't bind, such as a model without a no-arg constructor, is still decoded by fastjson.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface JsonModel {
+}
@@ -0,0 +1,311 @@
+package com.zhourh.webapi.logging;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * An interceptor log the requests like {@linkplain HttpLoggingInterceptor}, but never buffers the bodies.
+ * <p>
+ * The bodies are captured while they are written to and read from the network, only the first bytes
+ * up to the max body size are copied, so a large response is not held in memory twice.
+ * The response is logged when its body is read to the end or closed. The lines are formatted and
+ * written by a background thread through a bounded ring, the events are dropped when it is full.
+ * <p>
+ * A part of the requests can be sampled, the failures of the others are still logged at the level of
+ * {@linkplain HttpLoggingInterceptor.Level#BASIC}
+ */
+public final class AsyncLoggingInterceptor implements Interceptor {
+
+    private final HttpLoggingInterceptor.Level level;
+
+    private final float sampleRate;
+
+    private final long maxBodySize;
+
+    private final LogRing ring;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private AsyncLoggingInterceptor(Builder builder) {
+        this.level = builder.level;
+        this.sampleRate = builder.sampleRate;
+        this.maxBodySize = builder.maxBodySize;
+        this.ring = new LogRing(builder.capacity, builder.logger);
+    }
+
+    /**
+     * @return the count of the events dropped because the logging thread falls behind
+     */
+    public long getDroppedCount() {
+        return ring.droppedCount();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (level == HttpLoggingInterceptor.Level.NONE) {
+            return chain.proceed(request);
+        }
+        boolean sampled = sampled();
+        HttpLoggingInterceptor.Level eventLevel = sampled ? level : HttpLoggingInterceptor.Level.BASIC;
+        boolean logHeaders = eventLevel == HttpLoggingInterceptor.Level.HEADERS || eventLevel == HttpLoggingInterceptor.Level.BODY;
+        boolean logBody = eventLevel == HttpLoggingInterceptor.Level.BODY;
+
+        final LogEvent event = new LogEvent(eventLevel, request.method(), request.url());
+        RequestBody requestBody = request.body();
+        if (requestBody != null) {
+            event.requestContentType = requestBody.contentType();
+            event.requestContentLength = requestBody.contentLength();
+            if (logBody) {
+                request = request.newBuilder().method(request.method(), new CapturingRequestBody(requestBody, event)).build();
+            }
+        }
+        if (logHeaders) {
+            event.requestHeaders = request.headers();
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            event.tookNanos = System.nanoTime() - start;
+            event.failure = e;
+            publish(event);
+            throw e;
+        }
+        event.tookNanos = System.nanoTime() - start;
+        event.code = response.code();
+        event.message = response.message();
+        if (!sampled && response.isSuccessful()) {
+            return response;
+        }
+        if (logHeaders) {
+            event.responseHeaders = response.headers();
+        }
+        ResponseBody body = response.body();
+        if (body == null || body.contentLength() == 0) {
+            publish(event);
+            return response;
+        }
+        event.responseContentType = body.contentType();
+        return response.newBuilder().body(new CapturingResponseBody(body, event, logBody ? maxBodySize : 0)).build();
+    }
+
+    /**
+     * Spread the sampled requests evenly, such as one of every four requests for the rate 0.25
+     */
+    private boolean sampled() {
+        if (sampleRate >= 1f) {
+            return true;
+        }
+        long count = requestCount.getAndIncrement();
+        return (long) ((count + 1) * sampleRate) > (long) (count * sampleRate);
+    }
+
+    private void publish(LogEvent event) {
+        if (event.publish()) {
+            ring.offer(event);
+        }
+    }
+
+    /**
+     * Copy the head of the request body while it is written to the network
+     */
+    private final class CapturingRequestBody extends RequestBody {
+
+        private final RequestBody delegate;
+
+        private final LogEvent event;
+
+        CapturingRequestBody(RequestBody delegate, LogEvent event) {
+            this.delegate = delegate;
+            this.event = event;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            // written again when the request is retried, capture the last attempt
+            final Buffer capture = new Buffer();
+            event.requestBody = capture;
+            event.requestBodyBytes = 0;
+            BufferedSink capturingSink = Okio.buffer(new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    long copied = Math.min(byteCount, maxBodySize - capture.size());
+                    if (copied > 0) {
+                        source.copyTo(capture, 0, copied);
+                    }
+                    event.requestBodyBytes += byteCount;
+                    super.write(source, byteCount);
+                }
+            });
+            delegate.writeTo(capturingSink);
+            capturingSink.emit();
+        }
+    }
+
+    /**
+     * Copy the head of the response body while it is read, and publish the event when it is read to the end or closed
+     */
+    private final class CapturingResponseBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+
+        private final BufferedSource source;
+
+        CapturingResponseBody(ResponseBody delegate, final LogEvent event, final long maxCapture) {
+            this.delegate = delegate;
+            final Buffer capture = maxCapture > 0 ? new Buffer() : null;
+            event.responseBody = capture;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read;
+                    try {
+                        read = super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        event.failure = e;
+                        publish(event);
+                        throw e;
+                    }
+                    if (read == -1) {
+                        publish(event);
+                        return read;
+                    }
+                    event.responseBodyBytes += read;
+                    if (capture != null) {
+                        long copied = Math.min(read, maxCapture - capture.size());
+                        if (copied > 0) {
+                            sink.copyTo(capture, sink.size() - read, copied);
+                        }
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    publish(event);
+                    super.close();
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    public static final class Builder {
+
+        private HttpLoggingInterceptor.Level level = HttpLoggingInterceptor.Level.BASIC;
+
+        private float sampleRate = 1f;
+
+        private long maxBodySize = 64 * 1024;
+
+        private int capacity = 1024;
+
+        private HttpLoggingInterceptor.Logger logger = HttpLoggingInterceptor.Logger.DEFAULT;
+
+        @NonNull
+        public Builder level(@NonNull HttpLoggingInterceptor.Level level) {
+            this.level = checkNotNull(level, "level == null");
+            return this;
+        }
+
+        /**
+         * @param sampleRate the part of the requests logged at the level, from 0 to 1, default 1
+         * @return
+         */
+        @NonNull
+        public Builder sampleRate(float sampleRate) {
+            if (sampleRate < 0f || sampleRate > 1f) {
+                throw new IllegalArgumentException("sampleRate < 0 || sampleRate > 1");
+            }
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * @param maxBodySize the max bytes of a body captured at the level of {@linkplain HttpLoggingInterceptor.Level#BODY},
+         *                    64 KiB by default
+         * @return
+         */
+        @NonNull
+        public Builder maxBodySize(long maxBodySize) {
+            if (maxBodySize < 0) {
+                throw new IllegalArgumentException("maxBodySize < 0");
+            }
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        /**
+         * @param capacity the max count of the events waiting to be written, 1024 by default
+         * @return
+         */
+        @NonNull
+        public Builder capacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity <= 0");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param logger where the lines are written, on the logging thread
+         * @return
+         */
+        @NonNull
+        public Builder logger(@NonNull HttpLoggingInterceptor.Logger logger) {
+            this.logger = checkNotNull(logger, "logger == null");
+            return this;
+        }
+
+        @NonNull
+        public AsyncLoggingInterceptor build() {
+            return new AsyncLoggingInterceptor(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.zhourh.webapi.logging;
+
+import java.io.EOFException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okio.Buffer;
+
+/**
+ * What is captured of a request on the request thread, the lines are formatted later on the logging thread
+ */
+final class LogEvent {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final HttpLoggingInterceptor.Level level;
+
+    final String method;
+
+    final HttpUrl url;
+
+    Headers requestHeaders;
+
+    MediaType requestContentType;
+
+    long requestContentLength = -1;
+
+    /**
+     * The head of the request body, null if not captured
+     */
+    Buffer requestBody;
+
+    long requestBodyBytes;
+
+    int code;
+
+    String message;
+
+    Headers responseHeaders;
+
+    MediaType responseContentType;
+
+    Buffer responseBody;
+
+    long responseBodyBytes;
+
+    long tookNanos;
+
+    Throwable failure;
+
+    private final AtomicBoolean published = new AtomicBoolean();
+
+    LogEvent(HttpLoggingInterceptor.Level level, String method, HttpUrl url) {
+        this.level = level;
+        this.method = method;
+        this.url = url;
+    }
+
+    /**
+     * @return true for the first call only, so that the event is published once
+     */
+    boolean publish() {
+        return published.compareAndSet(false, true);
+    }
+
+    void writeTo(HttpLoggingInterceptor.Logger logger) {
+        boolean logHeaders = level == HttpLoggingInterceptor.Level.HEADERS || level == HttpLoggingInterceptor.Level.BODY;
+        boolean logBody = level == HttpLoggingInterceptor.Level.BODY;
+
+        String requestLine = "--> " + method + ' ' + url;
+        if (!logHeaders && requestContentLength >= 0) {
+            requestLine += " (" + requestContentLength + "-byte body)";
+        }
+        logger.log(requestLine);
+        if (logHeaders) {
+            if (requestContentType != null) {
+                logger.log("Content-Type: " + requestContentType);
+            }
+            if (requestContentLength >= 0) {
+                logger.log("Content-Length: " + requestContentLength);
+            }
+            writeHeaders(logger, requestHeaders);
+            if (logBody && requestBody != null) {
+                writeBody(logger, requestBody, requestBodyBytes, requestContentType);
+            }
+            logger.log("--> END " + method);
+        }
+
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(tookNanos);
+        if (failure != null) {
+            logger.log("<-- HTTP FAILED: " + failure + " (" + tookMs + "ms)");
+            return;
+        }
+        logger.log("<-- " + code + (message == null || message.isEmpty() ? "" : ' ' + message) + ' ' + url
+                + " (" + tookMs + "ms" + (!logHeaders ? ", " + responseBodyBytes + "-byte body" : "") + ')');
+        if (logHeaders) {
+            writeHeaders(logger, responseHeaders);
+            if (logBody && responseBody != null) {
+                writeBody(logger, responseBody, responseBodyBytes, responseContentType);
+            }
+            logger.log("<-- END HTTP (" + responseBodyBytes + "-byte body)");
+        }
+    }
+
+    private static void writeHeaders(HttpLoggingInterceptor.Logger logger, Headers headers) {
+        if (headers == null) {
+            return;
+        }
+        for (int i = 0, count = headers.size(); i < count; i++) {
+            logger.log(headers.name(i) + ": " + headers.value(i));
+        }
+    }
+
+    private static void writeBody(HttpLoggingInterceptor.Logger logger, Buffer body, long totalBytes, MediaType contentType) {
+        logger.log("");
+        if (!isPlaintext(body)) {
+            logger.log("(binary " + totalBytes + "-byte body omitted)");
+            return;
+        }
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        long capturedBytes = body.size();
+        logger.log(body.readString(charset));
+        if (capturedBytes < totalBytes) {
+            logger.log("(" + (totalBytes - capturedBytes) + " more bytes omitted)");
+        }
+    }
+
+    /**
+     * Probe the head of the body for the control characters, the same way as HttpLoggingInterceptor
+     */
+    private static boolean isPlaintext(Buffer body) {
+        try {
+            Buffer prefix = new Buffer();
+            body.copyTo(prefix, 0, Math.min(body.size(), 64));
+            for (int i = 0; i < 16; i++) {
+                if (prefix.exhausted()) {
+                    break;
+                }
+                int codePoint = prefix.readUtf8CodePoint();
+                if (Character.isISOControl(codePoint) && !Character.isWhitespace(codePoint)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.zhourh.webapi.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.logging.HttpLoggingInterceptor;
+
+/**
+ * A bounded ring of the log events, formatted and written by a background thread.
+ * The request threads never wait for it, the events offered when it is full are dropped and counted
+ */
+final class LogRing implements Runnable {
+
+    private final ArrayBlockingQueue<LogEvent> events;
+
+    private final HttpLoggingInterceptor.Logger logger;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    LogRing(int capacity, HttpLoggingInterceptor.Logger logger) {
+        this.events = new ArrayBlockingQueue<>(capacity);
+        this.logger = logger;
+    }
+
+    void offer(LogEvent event) {
+        if (!events.offer(event)) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        if (!started.get() && started.compareAndSet(false, true)) {
+            Thread thread = new Thread(this, "WebApi-logger");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.start();
+        }
+    }
+
+    long droppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            LogEvent event;
+            try {
+                event = events.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                event.writeTo(logger);
+            } catch (RuntimeException ignored) {
+                // a broken logger must not stop the logging of the other requests
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.zhourh.webapi.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The aggregated metrics of a service method
+ */
+public final class EndpointMetrics {
+
+    private final String endpoint;
+
+    private final Histogram total = new Histogram();
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private final AtomicLong requestBytes = new AtomicLong();
+
+    private final AtomicLong responseBytes = new AtomicLong();
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram();
+        }
+    }
+
+    void record(RequestTrace trace) {
+        requestCount.incrementAndGet();
+        if (trace.isFailed()) {
+            failureCount.incrementAndGet();
+        }
+        total.record(trace.getTotalNanos());
+        for (Phase phase : Phase.values()) {
+            if (trace.hasPhase(phase)) {
+                phases[phase.ordinal()].record(trace.getPhaseNanos(phase));
+            }
+        }
+        requestBytes.addAndGet(trace.getRequestBytes());
+        responseBytes.addAndGet(trace.getResponseBytes());
+    }
+
+    /**
+     * @return the service method, such as {@code GET help/questions}
+     */
+    @NonNull
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return the histogram from the request subscribed to the subscriber terminated
+     */
+    @NonNull
+    public Histogram getTotal() {
+        return total;
+    }
+
+    @NonNull
+    public Histogram getPhase(@NonNull Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * @return the total bytes of the request bodies
+     */
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    /**
+     * @return the total bytes of the response bodies read
+     */
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(endpoint).append(": requests=").append(requestCount.get())
+                .append(",failures=").append(failureCount.get())
+                .append(",requestBytes=").append(requestBytes.get())
+                .append(",responseBytes=").append(responseBytes.get())
+                .append("\n  TOTAL ").append(total);
+        for (Phase phase : Phase.values()) {
+            builder.append("\n  ").append(phase).append(' ').append(phases[phase.ordinal()]);
+        }
+        return builder.toString();
+    }
+}
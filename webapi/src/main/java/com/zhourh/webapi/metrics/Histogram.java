@@ -0,0 +1,74 @@
+package com.zhourh.webapi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of durations in fixed size buckets,
+ * the bucket {@code i} counts the durations in {@code [2^(i-1), 2^i)} microseconds,
+ * so the percentiles are accurate to a factor of 2, which is enough to find where the time goes
+ */
+public final class Histogram {
+
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray totals = new AtomicLongArray(2);
+
+    /**
+     * @param nanos a duration, ignored if negative
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long micros = nanos / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        totals.incrementAndGet(0);
+        totals.addAndGet(1, micros);
+    }
+
+    public long count() {
+        return totals.get(0);
+    }
+
+    /**
+     * @return the mean in microseconds
+     */
+    public long meanMicros() {
+        long count = totals.get(0);
+        return count == 0 ? 0 : totals.get(1) / count;
+    }
+
+    /**
+     * @param percentile in (0, 100], such as 50, 90, 99
+     * @return the upper bound of the bucket contains the percentile, in microseconds
+     */
+    public long percentileMicros(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return (1L << (BUCKETS - 1)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + ",mean=" + meanMicros() + "us,p50=" + percentileMicros(50)
+                + "us,p90=" + percentileMicros(90) + "us,p99=" + percentileMicros(99) + "us";
+    }
+}
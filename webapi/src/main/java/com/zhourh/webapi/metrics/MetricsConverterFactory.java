@@ -0,0 +1,46 @@
+package com.zhourh.webapi.metrics;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Record the {@linkplain Phase#DECODE} of the converter next to it,
+ * the time blocked on reading the body is excluded, it is recorded as {@linkplain Phase#DOWNLOAD}
+ */
+final class MetricsConverterFactory extends Converter.Factory {
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        return new MetricsConverter<>(retrofit.nextResponseBodyConverter(this, type, annotations));
+    }
+
+    private static final class MetricsConverter<T> implements Converter<ResponseBody, T> {
+
+        private final Converter<ResponseBody, T> delegate;
+
+        MetricsConverter(Converter<ResponseBody, T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public T convert(ResponseBody value) throws IOException {
+            RequestTrace trace = RequestTrace.current();
+            if (trace == null) {
+                return delegate.convert(value);
+            }
+            long start = System.nanoTime();
+            long downloadStart = trace.getPhaseNanos(Phase.DOWNLOAD);
+            try {
+                return delegate.convert(value);
+            } finally {
+                long download = trace.getPhaseNanos(Phase.DOWNLOAD) - downloadStart;
+                trace.addPhase(Phase.DECODE, System.nanoTime() - start - download);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.zhourh.webapi.metrics;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import okhttp3.Dns;
+
+/**
+ * Record the {@linkplain Phase#DNS} of the request executing on the current thread
+ */
+final class MetricsDns implements Dns {
+
+    private final Dns delegate;
+
+    MetricsDns(Dns delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return delegate.lookup(hostname);
+        }
+        long start = System.nanoTime();
+        try {
+            return delegate.lookup(hostname);
+        } finally {
+            trace.addPhase(Phase.DNS, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.zhourh.webapi.metrics;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * A network interceptor record the {@linkplain Phase#TLS}, {@linkplain Phase#TTFB} and {@linkplain Phase#DOWNLOAD},
+ * and the bytes of the request executing on the current thread.
+ * The network interceptors are invoked after the connection is acquired, so the time between the socket connected
+ * and this interceptor invoked is the TLS handshake
+ */
+final class MetricsInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return chain.proceed(request);
+        }
+        long start = System.nanoTime();
+        trace.connectionAcquired(start, request.isHttps());
+        RequestBody requestBody = request.body();
+        if (requestBody != null) {
+            trace.addRequestBytes(Math.max(0, requestBody.contentLength()));
+        }
+        Response response = chain.proceed(request);
+        trace.addPhase(Phase.TTFB, System.nanoTime() - start);
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder().body(new MetricsResponseBody(body, trace)).build();
+    }
+
+    private static final class MetricsResponseBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+
+        private final BufferedSource source;
+
+        MetricsResponseBody(ResponseBody delegate, final RequestTrace trace) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long start = System.nanoTime();
+                    long read = super.read(sink, byteCount);
+                    trace.addPhase(Phase.DOWNLOAD, System.nanoTime() - start);
+                    if (read > 0) {
+                        trace.addResponseBytes(read);
+                    }
+                    return read;
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.zhourh.webapi.metrics;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Interface definition for a callback to be invoked when a request finished, to push the metrics to your exporter
+ */
+public interface MetricsListener {
+
+    /**
+     * Call on the thread the subscriber terminated, usually the main thread, so don't block it
+     * @param trace the phases and bytes of the request
+     */
+    void onRequestFinished(@NonNull RequestTrace trace);
+}
@@ -0,0 +1,59 @@
+package com.zhourh.webapi.metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import javax.net.SocketFactory;
+
+/**
+ * Create the plain sockets that record the {@linkplain Phase#CONNECT} of the request executing on the current thread,
+ * OkHttp always creates an unconnected socket and connects it later
+ */
+final class MetricsSocketFactory extends SocketFactory {
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return new MetricsSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return new Socket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return new Socket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return new Socket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return new Socket(address, port, localAddress, localPort);
+    }
+
+    private static final class MetricsSocket extends Socket {
+
+        @Override
+        public void connect(SocketAddress endpoint, int timeout) throws IOException {
+            RequestTrace trace = RequestTrace.current();
+            if (trace == null) {
+                super.connect(endpoint, timeout);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                super.connect(endpoint, timeout);
+            } finally {
+                trace.addPhase(Phase.CONNECT, System.nanoTime() - start);
+                trace.connectEnd();
+            }
+        }
+    }
+}
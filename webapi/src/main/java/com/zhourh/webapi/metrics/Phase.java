@@ -0,0 +1,43 @@
+package com.zhourh.webapi.metrics;
+
+/**
+ * The phases of a request recorded by {@linkplain RequestMetrics}
+ */
+public enum Phase {
+
+    /**
+     * Resolve the host, 0 if the connection is reused
+     */
+    DNS,
+
+    /**
+     * Connect the socket, 0 if the connection is reused
+     */
+    CONNECT,
+
+    /**
+     * The TLS handshake after the socket connected, 0 if the connection is reused or not https
+     */
+    TLS,
+
+    /**
+     * From the request sent on the connection to the response headers received
+     */
+    TTFB,
+
+    /**
+     * The time blocked on reading the response body
+     */
+    DOWNLOAD,
+
+    /**
+     * The json decoding in the converter, exclude the time blocked on reading the body
+     */
+    DECODE,
+
+    /**
+     * From the response decoded on the background thread to {@linkplain com.zhourh.webapi.core.ApiSubscriber#onNext(Object)}
+     * returned on the main thread
+     */
+    DELIVERY
+}
@@ -0,0 +1,200 @@
+package com.zhourh.webapi.metrics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.net.SocketFactory;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import okhttp3.Dns;
+import okhttp3.Interceptor;
+import org.reactivestreams.Publisher;
+import retrofit2.Converter;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Collect the latency of the {@linkplain Phase}s and the bytes of every request, aggregated per service method.
+ * <p>
+ * OkHttp records nothing by itself, the phases are measured by the instrumentation returned by
+ * {@linkplain #dns(Dns)}, {@linkplain #socketFactory()}, {@linkplain #networkInterceptor()} and
+ * {@linkplain #converterFactory()}, they find the trace of the request executing on the current thread,
+ * so they must all be installed on the client and retrofit used by the traced requests.
+ */
+public final class RequestMetrics {
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param requestId the id of the request
+     * @param endpoint the service method, such as {@code GET help/questions}
+     * @return a new trace, it starts timing now
+     */
+    @NonNull
+    public RequestTrace newTrace(int requestId, @NonNull String endpoint) {
+        return new RequestTrace(requestId, checkNotNull(endpoint, "endpoint == null"));
+    }
+
+    /**
+     * Attach the trace to the thread subscribing the upstream, until the first item is emitted
+     * @param upstream the request
+     * @param trace the trace of the request
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    public <T> Flowable<T> trace(@NonNull final Flowable<T> upstream, @NonNull final RequestTrace trace) {
+        checkNotNull(upstream, "upstream == null");
+        checkNotNull(trace, "trace == null");
+        return Flowable.using(new Callable<RequestTrace>() {
+            @Override
+            public RequestTrace call() throws Exception {
+                trace.attach();
+                return trace;
+            }
+        }, new Function<RequestTrace, Publisher<T>>() {
+            @Override
+            public Publisher<T> apply(RequestTrace trace) throws Exception {
+                return upstream.doOnNext(new Emitted<T>(trace));
+            }
+        }, new Consumer<RequestTrace>() {
+            @Override
+            public void accept(RequestTrace trace) throws Exception {
+                trace.detach();
+            }
+        });
+    }
+
+    /**
+     * Record the delivery of the first item of the request
+     */
+    public void delivered(@NonNull RequestTrace trace) {
+        trace.delivered();
+    }
+
+    /**
+     * Aggregate the trace to the metrics of its endpoint and notify the listeners
+     * @param trace the trace of the request
+     * @param failed whether the request failed
+     */
+    public void finish(@NonNull RequestTrace trace, boolean failed) {
+        trace.end(failed);
+        EndpointMetrics metrics = endpoints.get(trace.getEndpoint());
+        if (metrics == null) {
+            EndpointMetrics newMetrics = new EndpointMetrics(trace.getEndpoint());
+            metrics = endpoints.putIfAbsent(trace.getEndpoint(), newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        metrics.record(trace);
+        for (MetricsListener listener : listeners) {
+            listener.onRequestFinished(trace);
+        }
+    }
+
+    /**
+     * @param endpoint the service method, such as {@code GET help/questions}
+     * @return null if no request of the endpoint finished
+     */
+    @Nullable
+    public EndpointMetrics get(@NonNull String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * @return a snapshot of the metrics of all the endpoints
+     */
+    @NonNull
+    public Collection<EndpointMetrics> getEndpoints() {
+        return new ArrayList<>(endpoints.values());
+    }
+
+    public void addListener(@NonNull MetricsListener listener) {
+        listeners.add(checkNotNull(listener, "listener == null"));
+    }
+
+    public void removeListener(@NonNull MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Clear the metrics of all the endpoints
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * @param delegate the dns of the client
+     * @return a dns record the {@linkplain Phase#DNS}
+     */
+    @NonNull
+    public Dns dns(@NonNull Dns delegate) {
+        return new MetricsDns(checkNotNull(delegate, "delegate == null"));
+    }
+
+    /**
+     * @return a socket factory record the {@linkplain Phase#CONNECT}, it creates plain sockets as the default one
+     */
+    @NonNull
+    public SocketFactory socketFactory() {
+        return new MetricsSocketFactory();
+    }
+
+    /**
+     * @return a network interceptor record the {@linkplain Phase#TLS}, {@linkplain Phase#TTFB},
+     * {@linkplain Phase#DOWNLOAD} and the bytes
+     */
+    @NonNull
+    public Interceptor networkInterceptor() {
+        return new MetricsInterceptor();
+    }
+
+    /**
+     * @return a converter factory record the {@linkplain Phase#DECODE}, it must be the first converter factory
+     */
+    @NonNull
+    public Converter.Factory converterFactory() {
+        return new MetricsConverterFactory();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RequestMetrics");
+        for (EndpointMetrics metrics : endpoints.values()) {
+            builder.append('\n').append(metrics);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Mark the first item emitted and detach the trace, the thread may be reused by other requests later
+     */
+    private static final class Emitted<T> implements Consumer<T> {
+
+        private final RequestTrace trace;
+
+        Emitted(RequestTrace trace) {
+            this.trace = trace;
+        }
+
+        @Override
+        public void accept(T t) throws Exception {
+            trace.emitted();
+            trace.detach();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.zhourh.webapi.metrics;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * The phases and bytes of a single request.
+ * <p>
+ * While the request is executing, the trace is attached to the executing thread,
+ * so the dns, socket, interceptor and converter instrumentation of the same call can find it
+ */
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final int requestId;
+
+    private final String endpoint;
+
+    private final long startNanos;
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private long connectEndNanos;
+
+    private long emittedNanos;
+
+    private long endNanos;
+
+    private long requestBytes;
+
+    private long responseBytes;
+
+    private boolean failed;
+
+    RequestTrace(int requestId, String endpoint) {
+        this.requestId = requestId;
+        this.endpoint = endpoint;
+        this.startNanos = System.nanoTime();
+        Arrays.fill(phaseNanos, -1);
+    }
+
+    /**
+     * @return the trace of the request executing on the current thread, null if none
+     */
+    static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    void attach() {
+        CURRENT.set(this);
+    }
+
+    void detach() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    synchronized void addPhase(Phase phase, long nanos) {
+        int index = phase.ordinal();
+        phaseNanos[index] = phaseNanos[index] < 0 ? nanos : phaseNanos[index] + nanos;
+    }
+
+    synchronized void connectEnd() {
+        connectEndNanos = System.nanoTime();
+    }
+
+    /**
+     * Record the TLS phase when the connection is acquired, if the connection is just connected
+     */
+    synchronized void connectionAcquired(long nanos, boolean https) {
+        if (connectEndNanos > 0 && https) {
+            addPhase(Phase.TLS, nanos - connectEndNanos);
+        }
+        connectEndNanos = 0;
+    }
+
+    synchronized void addRequestBytes(long bytes) {
+        requestBytes += bytes;
+    }
+
+    synchronized void addResponseBytes(long bytes) {
+        responseBytes += bytes;
+    }
+
+    synchronized void emitted() {
+        if (emittedNanos == 0) {
+            emittedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record the delivery of the first item
+     */
+    synchronized void delivered() {
+        if (emittedNanos > 0 && phaseNanos[Phase.DELIVERY.ordinal()] < 0) {
+            addPhase(Phase.DELIVERY, System.nanoTime() - emittedNanos);
+        }
+    }
+
+    synchronized void end(boolean failed) {
+        this.endNanos = System.nanoTime();
+        this.failed = failed;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return the service method, such as {@code GET help/questions}
+     */
+    @NonNull
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public synchronized boolean hasPhase(@NonNull Phase phase) {
+        return phaseNanos[phase.ordinal()] >= 0;
+    }
+
+    /**
+     * @return the duration of the phase, 0 if the phase didn't happen
+     */
+    public synchronized long getPhaseNanos(@NonNull Phase phase) {
+        return Math.max(0, phaseNanos[phase.ordinal()]);
+    }
+
+    /**
+     * @return from the request subscribed to terminated
+     */
+    public synchronized long getTotalNanos() {
+        return endNanos == 0 ? System.nanoTime() - startNanos : endNanos - startNanos;
+    }
+
+    public synchronized long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public synchronized long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("RequestTrace[").append(requestId).append(' ').append(endpoint)
+                .append(",total=").append(getTotalNanos() / 1000).append("us");
+        for (Phase phase : Phase.values()) {
+            if (hasPhase(phase)) {
+                builder.append(',').append(phase).append('=').append(getPhaseNanos(phase) / 1000).append("us");
+            }
+        }
+        return builder.append(",requestBytes=").append(requestBytes)
+                .append(",responseBytes=").append(responseBytes)
+                .append(",failed=").append(failed).append(']').toString();
+    }
+}
@@ -0,0 +1,161 @@
+package com.zhourh.webapi.offline;
+
+import com.alibaba.fastjson.JSON;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * The append-only file of the {@linkplain OfflineQueue}, a line for each request added, and a line for each request done:
+ * <pre>{@code
+ * ADD {"id":1,"subscriberId":"profile","method":"POST",...}
+ * DONE 1
+ * }</pre>
+ * The lines are written into a buffer, and flushed and synced to the disk by {@linkplain #sync()} in batches.
+ * An incomplete line at the end, written when the app was killed, is ignored.
+ * The file is rewritten with the waiting requests when the done lines outnumber them.
+ * Used on the thread of the queue only
+ */
+final class OfflineJournal {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String ADD = "ADD ";
+
+    private static final String DONE = "DONE ";
+
+    private static final int MIN_COMPACT_COUNT = 64;
+
+    private final File file;
+
+    private FileOutputStream output;
+
+    private Writer writer;
+
+    private int doneCount;
+
+    private boolean dirty;
+
+    OfflineJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the waiting requests in the order they are added
+     */
+    LinkedHashMap<Long, OfflineRequest> load() throws IOException {
+        LinkedHashMap<Long, OfflineRequest> requests = new LinkedHashMap<>();
+        if (file.exists()) {
+            BufferedSource source = Okio.buffer(Okio.source(file));
+            try {
+                long newline;
+                // a line without the line feed is incomplete
+                while ((newline = source.indexOf((byte) '\n')) != -1) {
+                    String line = source.readUtf8(newline);
+                    source.skip(1);
+                    try {
+                        if (line.startsWith(ADD)) {
+                            OfflineRequest request = OfflineRequest.fromJson(JSON.parseObject(line.substring(ADD.length())));
+                            requests.put(request.id, request);
+                        } else if (line.startsWith(DONE)) {
+                            requests.remove(Long.parseLong(line.substring(DONE.length())));
+                            doneCount++;
+                        }
+                    } catch (RuntimeException e) {
+                        break;
+                    }
+                }
+            } finally {
+                source.close();
+            }
+        }
+        // start a clean file, so that an incomplete line is not followed by the new lines
+        compact(requests.values());
+        return requests;
+    }
+
+    void add(OfflineRequest request) throws IOException {
+        write(ADD + request.toJson().toJSONString());
+    }
+
+    void done(long id) throws IOException {
+        write(DONE + id);
+        doneCount++;
+    }
+
+    /**
+     * Flush the lines written since the last sync, and sync them to the disk
+     */
+    void sync() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        writer.flush();
+        output.getFD().sync();
+        dirty = false;
+    }
+
+    boolean needsCompact(int waitingCount) {
+        return doneCount >= MIN_COMPACT_COUNT && doneCount > waitingCount;
+    }
+
+    /**
+     * Rewrite the file with the waiting requests only
+     */
+    void compact(Collection<OfflineRequest> requests) throws IOException {
+        close();
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new FileNotFoundException("Unable to create " + directory);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream tempOutput = new FileOutputStream(temp);
+        Writer tempWriter = new BufferedWriter(new OutputStreamWriter(tempOutput, UTF_8));
+        try {
+            for (OfflineRequest request : requests) {
+                tempWriter.write(ADD + request.toJson().toJSONString());
+                tempWriter.write('\n');
+            }
+            tempWriter.flush();
+            tempOutput.getFD().sync();
+        } finally {
+            tempWriter.close();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Unable to rename " + temp + " to " + file);
+        }
+        doneCount = 0;
+        open();
+    }
+
+    void close() throws IOException {
+        if (writer != null) {
+            sync();
+            writer.close();
+            writer = null;
+            output = null;
+        }
+    }
+
+    private void open() throws FileNotFoundException {
+        output = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(output, UTF_8));
+    }
+
+    private void write(String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        dirty = true;
+    }
+}
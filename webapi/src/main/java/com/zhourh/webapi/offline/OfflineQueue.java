@@ -0,0 +1,492 @@
+package com.zhourh.webapi.offline;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+import com.zhourh.webapi.core.ApiSubscriber;
+import com.zhourh.webapi.exception.ApiException;
+import com.zhourh.webapi.response.ApiResult;
+import com.zhourh.webapi.utils.Types;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A durable queue of the write requests sent while the device is offline, see {@linkplain com.zhourh.webapi.core.WebApi#enqueueOffline}.
+ * <p>
+ * The requests are appended to a journal file, synced to the disk in batches, and sent one by one in the order
+ * they are enqueued, also after the app restarts. A request failed by the network or a retryable http status
+ * stays at the head and is retried with an exponential backoff, until the connectivity returns.
+ * A request enqueued with the dedup key of a waiting request replaces it.
+ * <p>
+ * The result of each request is delivered on main thread to the {@linkplain ApiSubscriber} registered by the
+ * subscriber id of the request: {@linkplain ApiSubscriber#onNext(Object)} with the data of a successful
+ * {@linkplain ApiResult}, or {@linkplain ApiSubscriber#onError(Throwable)}, the subscriber is never completed.
+ * The results of an id not registered are kept in memory until it is registered.
+ * <p>
+ * If the journal fails to load, such as the directory can't be created, the requests are refused instead of
+ * being sent without the durability, see {@linkplain #getLoadError()}
+ */
+public final class OfflineQueue {
+
+    private static final String JOURNAL_NAME = "requests.journal";
+
+    private static final long MIN_BACKOFF_MILLIS = 1000;
+
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    private final Application application;
+
+    private final File directory;
+
+    private final Retrofit retrofit;
+
+    private final long syncDelayMillis;
+
+    private final ScheduledExecutorService executor;
+
+    private final Random random = new Random();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile boolean connected = true;
+
+    private volatile IOException loadError;
+
+    // the states below are used on the thread of the queue only
+
+    private OfflineJournal journal;
+
+    private LinkedHashMap<Long, OfflineRequest> requests = new LinkedHashMap<>();
+
+    private final Map<String, Long> dedupKeys = new HashMap<>();
+
+    private final Map<String, ApiSubscriber<?>> subscribers = new HashMap<>();
+
+    private final Map<String, List<Result>> undelivered = new HashMap<>();
+
+    private long nextId = 1;
+
+    private boolean sending;
+
+    private int attempts;
+
+    private ScheduledFuture<?> retry;
+
+    private boolean syncScheduled;
+
+    /**
+     * @param application to watch the connectivity and find the classes of the response types
+     * @param directory the directory of the journal, null for the files directory of the app
+     * @param retrofit the retrofit of the call factory and the converters
+     * @param syncDelay the journal is synced to the disk after the delay of the first unsynced line
+     * @param unit the unit of syncDelay
+     */
+    public OfflineQueue(@NonNull Application application, @Nullable File directory, @NonNull Retrofit retrofit,
+                        long syncDelay, @NonNull TimeUnit unit) {
+        this.application = checkNotNull(application, "application == null");
+        this.directory = directory;
+        this.retrofit = checkNotNull(retrofit, "retrofit == null");
+        this.syncDelayMillis = checkNotNull(unit, "unit == null").toMillis(syncDelay);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable r) {
+                Thread thread = new Thread(r, "WebApi-offline");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.executor = executor;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /**
+     * Send the waiting requests again when the connectivity returns, the state of the connectivity is
+     * delivered at once when registered. The app must declare the permission {@code ACCESS_NETWORK_STATE}
+     */
+    public void watchConnectivity() {
+        application.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                ConnectivityManager manager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+                NetworkInfo networkInfo = manager != null ? manager.getActiveNetworkInfo() : null;
+                onConnectivityChanged(networkInfo != null && networkInfo.isConnected());
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * @param connected whether the device is connected, the backoff is reset and the head is sent at once when true
+     */
+    public void onConnectivityChanged(boolean connected) {
+        this.connected = connected;
+        if (!connected) {
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                attempts = 0;
+                if (retry != null) {
+                    retry.cancel(false);
+                    retry = null;
+                }
+                sendNext();
+            }
+        });
+    }
+
+    /**
+     * @param request the request to send
+     * @param responseType the response body type of the service method
+     * @param subscriberId the stable id of the {@linkplain ApiSubscriber} to deliver the result
+     * @param dedupKey the waiting request of the same key is replaced, null for none
+     * @throws IllegalStateException if the journal failed to load, the requests enqueued before the failure is known
+     * are delivered the error of {@linkplain #getLoadError()} instead
+     */
+    public void enqueue(@NonNull final Request request, @NonNull Type responseType, @NonNull final String subscriberId,
+                        @Nullable final String dedupKey) {
+        checkNotNull(request, "request == null");
+        checkNotNull(subscriberId, "subscriberId == null");
+        IOException error = loadError;
+        if (error != null) {
+            throw new IllegalStateException("The offline journal failed to load", error);
+        }
+        final String typeName = Types.typeName(checkNotNull(responseType, "responseType == null"));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                add(request, typeName, subscriberId, dedupKey);
+            }
+        });
+    }
+
+    /**
+     * Deliver the results of the id to the subscriber, including the results waiting for it
+     */
+    public void register(@NonNull final String subscriberId, @NonNull final ApiSubscriber<?> subscriber) {
+        checkNotNull(subscriberId, "subscriberId == null");
+        checkNotNull(subscriber, "subscriber == null");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                subscribers.put(subscriberId, subscriber);
+                List<Result> results = undelivered.remove(subscriberId);
+                if (results != null) {
+                    for (Result result : results) {
+                        deliver(subscriber, result);
+                    }
+                }
+            }
+        });
+    }
+
+    public void unregister(@NonNull final String subscriberId) {
+        checkNotNull(subscriberId, "subscriberId == null");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                subscribers.remove(subscriberId);
+            }
+        });
+    }
+
+    /**
+     * @return the error of loading the journal, null if loaded or still loading
+     */
+    @Nullable
+    public IOException getLoadError() {
+        return loadError;
+    }
+
+    /**
+     * @return the count of the waiting requests
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Sync the journal to the disk now, such as when the app goes to background
+     */
+    public void sync() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                syncJournal();
+            }
+        });
+    }
+
+    private void load() {
+        File journalDirectory = directory != null ? directory : new File(application.getFilesDir(), "webapi-offline");
+        OfflineJournal loading = new OfflineJournal(new File(journalDirectory, JOURNAL_NAME));
+        try {
+            LinkedHashMap<Long, OfflineRequest> loaded = loading.load();
+            for (OfflineRequest request : loaded.values()) {
+                nextId = Math.max(nextId, request.id + 1);
+                if (request.dedupKey != null) {
+                    dedupKeys.put(request.dedupKey, request.id);
+                }
+            }
+            requests = loaded;
+            size.set(requests.size());
+            journal = loading;
+        } catch (IOException e) {
+            loadError = e;
+        }
+        sendNext();
+    }
+
+    private void add(Request request, String typeName, String subscriberId, String dedupKey) {
+        if (journal == null) {
+            // the journal failed to load, the request would be lost when the app restarts
+            complete(subscriberId, new Result(null, new IOException("The offline journal failed to load", loadError)));
+            return;
+        }
+        OfflineRequest offlineRequest;
+        try {
+            offlineRequest = OfflineRequest.create(nextId++, subscriberId, dedupKey, request, typeName);
+        } catch (IOException e) {
+            complete(subscriberId, new Result(null, e));
+            return;
+        }
+        if (dedupKey != null) {
+            Long replaced = dedupKeys.get(dedupKey);
+            // the request being sent can't be replaced
+            if (replaced != null && !(sending && replaced.equals(head()))) {
+                requests.remove(replaced);
+                writeDone(replaced);
+            }
+            dedupKeys.put(dedupKey, offlineRequest.id);
+        }
+        requests.put(offlineRequest.id, offlineRequest);
+        size.set(requests.size());
+        try {
+            journal.add(offlineRequest);
+            scheduleSync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        sendNext();
+    }
+
+    private Long head() {
+        Iterator<Long> iterator = requests.keySet().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private void sendNext() {
+        if (sending || retry != null || !connected || requests.isEmpty()) {
+            return;
+        }
+        final OfflineRequest request = requests.get(head());
+        sending = true;
+        retrofit.callFactory().newCall(request.toRequest()).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                retryLater(request);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                int code = response.code();
+                if (code == 408 || code == 429 || code >= 500) {
+                    response.close();
+                    retryLater(request);
+                    return;
+                }
+                sent(request, convert(request, response));
+            }
+        });
+    }
+
+    /**
+     * Decode the response on the thread of the http client
+     */
+    private Result convert(OfflineRequest request, Response response) {
+        ResponseBody body = response.body();
+        try {
+            if (!response.isSuccessful()) {
+                ResponseBody errorBody = ResponseBody.create(body.contentType(), body.bytes());
+                return new Result(null, new HttpException(retrofit2.Response.error(errorBody, response)));
+            }
+            Type responseType = Types.parseType(request.responseType, application.getClassLoader());
+            Converter<ResponseBody, Object> converter = retrofit.responseBodyConverter(responseType, new Annotation[0]);
+            Object result = converter.convert(body);
+            if (result instanceof ApiResult) {
+                ApiResult<?> apiResult = (ApiResult<?>) result;
+                if (!apiResult.isSuccess()) {
+                    return new Result(null, new ApiException(apiResult.getError()));
+                }
+                return new Result(apiResult.getData(), null);
+            }
+            return new Result(result, null);
+        } catch (Exception e) {
+            // the request is done by the server, the error of decoding is not retried
+            return new Result(null, e);
+        } finally {
+            body.close();
+        }
+    }
+
+    private void retryLater(final OfflineRequest request) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sending = false;
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(attempts, 16));
+                attempts++;
+                // a random delay from the half to the full backoff, so the devices don't retry together
+                long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+                retry = executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        retry = null;
+                        sendNext();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private void sent(final OfflineRequest request, final Result result) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                sending = false;
+                attempts = 0;
+                if (requests.remove(request.id) != null) {
+                    writeDone(request.id);
+                }
+                if (request.dedupKey != null && Long.valueOf(request.id).equals(dedupKeys.get(request.dedupKey))) {
+                    dedupKeys.remove(request.dedupKey);
+                }
+                size.set(requests.size());
+                complete(request.subscriberId, result);
+                sendNext();
+            }
+        });
+    }
+
+    private void complete(String subscriberId, Result result) {
+        ApiSubscriber<?> subscriber = subscribers.get(subscriberId);
+        if (subscriber != null) {
+            deliver(subscriber, result);
+            return;
+        }
+        List<Result> results = undelivered.get(subscriberId);
+        if (results == null) {
+            results = new ArrayList<>();
+            undelivered.put(subscriberId, results);
+        }
+        results.add(result);
+    }
+
+    private void deliver(final ApiSubscriber<?> subscriber, final Result result) {
+        AndroidSchedulers.mainThread().scheduleDirect(new Runnable() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void run() {
+                if (result.error != null) {
+                    subscriber.onError(result.error);
+                } else {
+                    // the data is decoded to the type the subscriber is registered for
+                    ((ApiSubscriber<Object>) subscriber).onNext(result.data);
+                }
+            }
+        });
+    }
+
+    private void writeDone(long id) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.done(id);
+            scheduleSync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void scheduleSync() {
+        if (syncScheduled) {
+            return;
+        }
+        syncScheduled = true;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                syncJournal();
+            }
+        }, syncDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void syncJournal() {
+        syncScheduled = false;
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (journal.needsCompact(requests.size())) {
+                journal.compact(requests.values());
+            } else {
+                journal.sync();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Result {
+
+        final Object data;
+
+        final Throwable error;
+
+        Result(Object data, Throwable error) {
+            this.data = data;
+            this.error = error;
+        }
+    }
+}
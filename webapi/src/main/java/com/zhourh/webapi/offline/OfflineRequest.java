@@ -0,0 +1,101 @@
+package com.zhourh.webapi.offline;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.IOException;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * A request waiting in the {@linkplain OfflineQueue}, with everything needed to send it again after the app restarts
+ */
+final class OfflineRequest {
+
+    final long id;
+
+    final String subscriberId;
+
+    final String dedupKey;
+
+    final String method;
+
+    final String url;
+
+    final Headers headers;
+
+    final String contentType;
+
+    final ByteString body;
+
+    final String responseType;
+
+    OfflineRequest(long id, String subscriberId, String dedupKey, String method, String url, Headers headers,
+                   String contentType, ByteString body, String responseType) {
+        this.id = id;
+        this.subscriberId = subscriberId;
+        this.dedupKey = dedupKey;
+        this.method = method;
+        this.url = url;
+        this.headers = headers;
+        this.contentType = contentType;
+        this.body = body;
+        this.responseType = responseType;
+    }
+
+    static OfflineRequest create(long id, String subscriberId, String dedupKey, Request request, String responseType)
+            throws IOException {
+        RequestBody requestBody = request.body();
+        String contentType = null;
+        ByteString body = null;
+        if (requestBody != null) {
+            Buffer buffer = new Buffer();
+            requestBody.writeTo(buffer);
+            body = buffer.readByteString();
+            contentType = requestBody.contentType() != null ? requestBody.contentType().toString() : null;
+        }
+        return new OfflineRequest(id, subscriberId, dedupKey, request.method(), request.url().toString(),
+                request.headers(), contentType, body, responseType);
+    }
+
+    Request toRequest() {
+        RequestBody requestBody = null;
+        if (body != null) {
+            requestBody = RequestBody.create(contentType != null ? MediaType.parse(contentType) : null, body);
+        }
+        return new Request.Builder().url(url).headers(headers).method(method, requestBody).build();
+    }
+
+    JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("subscriberId", subscriberId);
+        json.put("dedupKey", dedupKey);
+        json.put("method", method);
+        json.put("url", url);
+        // the duplicate header names are kept
+        String[] namesAndValues = new String[headers.size() * 2];
+        for (int i = 0; i < headers.size(); i++) {
+            namesAndValues[i * 2] = headers.name(i);
+            namesAndValues[i * 2 + 1] = headers.value(i);
+        }
+        json.put("headers", namesAndValues);
+        json.put("contentType", contentType);
+        json.put("body", body != null ? body.base64() : null);
+        json.put("responseType", responseType);
+        return json;
+    }
+
+    static OfflineRequest fromJson(JSONObject json) {
+        String[] namesAndValues = json.getJSONArray("headers").toArray(new String[0]);
+        String body = json.getString("body");
+        return new OfflineRequest(json.getLongValue("id"), json.getString("subscriberId"), json.getString("dedupKey"),
+                json.getString("method"), json.getString("url"), Headers.of(namesAndValues),
+                json.getString("contentType"), body != null ? ByteString.decodeBase64(body) : null,
+                json.getString("responseType"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.zhourh.webapi.retry;
+
+import android.support.annotation.NonNull;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
+import retrofit2.Call;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Resubscribe the failed upstream of a call according to its {@linkplain RetryPolicy},
+ * within the shared {@linkplain RetryBudget}.
+ * <p>
+ * The upstream created by the RxJava2CallAdapterFactory clones the call for every subscription,
+ * so each attempt is a new http request. The subscriber only sees the failure of the last attempt,
+ * so {@linkplain com.zhourh.webapi.core.ApiSubscriber.ApiErrorCallback} is called once.
+ */
+public final class RequestRetrier {
+
+    private final RetryBudget budget;
+
+    private final Random random = new Random();
+
+    public RequestRetrier(@NonNull RetryBudget budget) {
+        this.budget = checkNotNull(budget, "budget == null");
+    }
+
+    @NonNull
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param call the retrofit call the upstream created from, used to check the http method
+     * @param policy the retry policy of the service method
+     * @param upstream the flowable created by the delegate call adapter
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    public <T> Flowable<T> retry(@NonNull final Call<?> call, @NonNull final RetryPolicy policy,
+                                 @NonNull Flowable<T> upstream) {
+        checkNotNull(call, "call == null");
+        checkNotNull(policy, "policy == null");
+        checkNotNull(upstream, "upstream == null");
+        if (policy.getMaxAttempts() <= 1) {
+            return upstream;
+        }
+        return upstream.doOnNext(new Consumer<T>() {
+            @Override
+            public void accept(T t) throws Exception {
+                budget.onSuccess();
+            }
+        }).retryWhen(new Function<Flowable<Throwable>, Publisher<?>>() {
+            @Override
+            public Publisher<?> apply(Flowable<Throwable> errors) throws Exception {
+                return errors.concatMap(new Backoff(call, policy));
+            }
+        });
+    }
+
+    private static boolean isIdempotent(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || "PUT".equals(method) || "DELETE".equals(method);
+    }
+
+    /**
+     * Decide the retry of a subscription, fail with the error or emit after the backoff
+     */
+    private final class Backoff implements Function<Throwable, Publisher<?>> {
+
+        private final Call<?> call;
+
+        private final RetryPolicy policy;
+
+        private int retries;
+
+        Backoff(Call<?> call, RetryPolicy policy) {
+            this.call = call;
+            this.policy = policy;
+        }
+
+        @Override
+        public Publisher<?> apply(Throwable e) throws Exception {
+            if (retries + 1 >= policy.getMaxAttempts() || !policy.isRetryable(e)
+                    || !(policy.isIdempotent() || isIdempotent(call.request().method()))
+                    || !budget.onFailure()) {
+                return Flowable.error(e);
+            }
+            retries++;
+            long delay = policy.delayMillis(retries, random);
+            return Flowable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.zhourh.webapi.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Override the default {@linkplain RetryPolicy} of a service method, such as
+ * <pre>{@code
+ * @Retry(maxAttempts = 5)
+ * @GET("help/questions")
+ * Flowable<UApiResult<List<CommonQuestionDO>>> getQuestions();
+ * }</pre>
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Retry {
+
+    /**
+     * @return the max count of attempts including the first one, 1 to disable retry
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return the backoff before the first retry, doubled for each retry later
+     */
+    long initialDelayMillis() default 200;
+
+    /**
+     * @return the max backoff
+     */
+    long maxDelayMillis() default 5000;
+
+    /**
+     * @return true if the method is safe to retry even if its http method is not idempotent, such as a POST with an idempotency key
+     */
+    boolean idempotent() default false;
+}
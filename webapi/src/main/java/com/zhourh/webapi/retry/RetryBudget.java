@@ -0,0 +1,73 @@
+package com.zhourh.webapi.retry;
+
+/**
+ * A token bucket shared by all the requests, limit the retries to a part of the traffic.
+ * <p>
+ * Every retry allowed takes a token, every successful request puts back a part of a token,
+ * the retries are allowed only while more than half of the tokens are left after taking one. When the server is down,
+ * the bucket drains quickly and the requests fail at once instead of multiplying the load.
+ * The denied retries take nothing, so the retries are allowed again soon after the requests succeed.
+ */
+public final class RetryBudget {
+
+    private final int maxTokens;
+
+    private final float tokenRatio;
+
+    private float tokens;
+
+    private int deniedCount;
+
+    public RetryBudget() {
+        this(10, 0.1f);
+    }
+
+    /**
+     * @param maxTokens the capacity of the bucket
+     * @param tokenRatio the part of a token put back by a successful request
+     */
+    public RetryBudget(int maxTokens, float tokenRatio) {
+        if (maxTokens <= 0 || tokenRatio <= 0) {
+            throw new IllegalArgumentException("maxTokens <= 0 || tokenRatio <= 0");
+        }
+        this.maxTokens = maxTokens;
+        this.tokenRatio = tokenRatio;
+        this.tokens = maxTokens;
+    }
+
+    public synchronized void onSuccess() {
+        tokens = Math.min(maxTokens, tokens + tokenRatio);
+    }
+
+    /**
+     * Take a token for the retry of the failed attempt if allowed
+     * @return whether a retry is allowed
+     */
+    public synchronized boolean onFailure() {
+        if (tokens - 1 > maxTokens / 2f) {
+            tokens -= 1;
+            return true;
+        }
+        deniedCount++;
+        return false;
+    }
+
+    /**
+     * @return the tokens left
+     */
+    public synchronized float tokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the count of the retries denied because the budget is exhausted
+     */
+    public synchronized int deniedCount() {
+        return deniedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RetryBudget[tokens=" + tokens + '/' + maxTokens + ",denied=" + deniedCount + ']';
+    }
+}
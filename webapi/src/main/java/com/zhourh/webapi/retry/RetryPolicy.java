@@ -0,0 +1,210 @@
+package com.zhourh.webapi.retry;
+
+import android.support.annotation.NonNull;
+
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * When and how long to wait before a failed request is sent again.
+ * <p>
+ * The backoff grows exponentially from the initial delay up to the max delay, and a random part of it is cut off
+ * (jitter) so that the clients failed together don't retry together. Only the transient failures are retried:
+ * {@linkplain SocketTimeoutException}, {@linkplain SocketException} and the http status 408, 429, 502, 503, 504.
+ */
+public final class RetryPolicy {
+
+    /**
+     * Never retry
+     */
+    public static final RetryPolicy NONE = new Builder().maxAttempts(1).build();
+
+    private final int maxAttempts;
+
+    private final long initialDelayMillis;
+
+    private final long maxDelayMillis;
+
+    private final double multiplier;
+
+    private final double jitter;
+
+    private final boolean idempotent;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialDelayMillis = builder.initialDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.multiplier = builder.multiplier;
+        this.jitter = builder.jitter;
+        this.idempotent = builder.idempotent;
+    }
+
+    /**
+     * @return the policy declared by the annotation
+     */
+    @NonNull
+    public static RetryPolicy from(@NonNull Retry retry) {
+        return new Builder().maxAttempts(retry.maxAttempts())
+                .backoff(retry.initialDelayMillis(), retry.maxDelayMillis(), TimeUnit.MILLISECONDS)
+                .idempotent(retry.idempotent())
+                .build();
+    }
+
+    /**
+     * @return the max count of attempts including the first one
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @return whether the requests are retried whatever the http method is
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @param e the failure of an attempt
+     * @return whether the failure is transient
+     */
+    public boolean isRetryable(@NonNull Throwable e) {
+        if (e instanceof SocketTimeoutException || e instanceof SocketException) {
+            return true;
+        }
+        if (e instanceof HttpException) {
+            int code = ((HttpException) e).code();
+            return code == 408 || code == 429 || code == 502 || code == 503 || code == 504;
+        }
+        return false;
+    }
+
+    /**
+     * @param retry the count of retries, start from 1
+     * @param random the source of jitter
+     * @return the backoff before the retry
+     */
+    public long delayMillis(int retry, @NonNull Random random) {
+        double delay = initialDelayMillis * Math.pow(multiplier, retry - 1);
+        delay = Math.min(delay, maxDelayMillis);
+        return (long) (delay * (1 - jitter * random.nextDouble()));
+    }
+
+    @NonNull
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy[maxAttempts=" + maxAttempts + ",initialDelay=" + initialDelayMillis
+                + "ms,maxDelay=" + maxDelayMillis + "ms,multiplier=" + multiplier + ",jitter=" + jitter
+                + ",idempotent=" + idempotent + ']';
+    }
+
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+
+        private long initialDelayMillis = 200;
+
+        private long maxDelayMillis = 5000;
+
+        private double multiplier = 2;
+
+        private double jitter = 0.5;
+
+        private boolean idempotent;
+
+        public Builder() {
+        }
+
+        private Builder(RetryPolicy policy) {
+            this.maxAttempts = policy.maxAttempts;
+            this.initialDelayMillis = policy.initialDelayMillis;
+            this.maxDelayMillis = policy.maxDelayMillis;
+            this.multiplier = policy.multiplier;
+            this.jitter = policy.jitter;
+            this.idempotent = policy.idempotent;
+        }
+
+        /**
+         * @param maxAttempts the max count of attempts including the first one, 3 by default, 1 to disable retry
+         * @return
+         */
+        @NonNull
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts < 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * @param initialDelay the backoff before the first retry, 200 milliseconds by default
+         * @param maxDelay the max backoff, 5 seconds by default
+         * @param unit the unit of the delays
+         * @return
+         */
+        @NonNull
+        public Builder backoff(long initialDelay, long maxDelay, @NonNull TimeUnit unit) {
+            checkNotNull(unit, "unit == null");
+            if (initialDelay < 0 || maxDelay < initialDelay) {
+                throw new IllegalArgumentException("initialDelay < 0 || maxDelay < initialDelay");
+            }
+            this.initialDelayMillis = unit.toMillis(initialDelay);
+            this.maxDelayMillis = unit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * @param multiplier the backoff is multiplied by it for each retry, 2 by default
+         * @return
+         */
+        @NonNull
+        public Builder multiplier(double multiplier) {
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("multiplier < 1");
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param jitter the max ratio cut off from the backoff randomly, between 0 and 1, 0.5 by default
+         * @return
+         */
+        @NonNull
+        public Builder jitter(double jitter) {
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("jitter < 0 || jitter > 1");
+            }
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param idempotent retry the requests whatever the http method is, by default only
+         *                   GET, HEAD, OPTIONS, PUT and DELETE are retried
+         * @return
+         */
+        @NonNull
+        public Builder idempotent(boolean idempotent) {
+            this.idempotent = idempotent;
+            return this;
+        }
+
+        @NonNull
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.zhourh.webapi.schedule;
+
+/**
+ * The priority lanes of {@linkplain RequestScheduler}, the requests in a higher lane are always started first
+ */
+public enum Priority {
+
+    /**
+     * The requests the user is waiting for, such as a tap, never dropped
+     */
+    INTERACTIVE,
+
+    /**
+     * The default priority, never dropped
+     */
+    NORMAL,
+
+    /**
+     * The requests nobody is waiting for, such as a prefetch,
+     * they are deferred behind the others and dropped when the queue is full
+     */
+    BACKGROUND
+}
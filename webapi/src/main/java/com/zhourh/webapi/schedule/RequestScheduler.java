@@ -0,0 +1,371 @@
+package com.zhourh.webapi.schedule;
+
+import android.support.annotation.NonNull;
+
+import com.zhourh.webapi.exception.RequestDroppedException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * A bounded scheduler for the requests, replace the unbounded {@linkplain Schedulers#io()}.
+ * <p>
+ * The requests wait in three {@linkplain Priority} lanes, and are started in the order of priority,
+ * as long as the running requests are less than the max concurrency, both in total and per host.
+ * When the queue is full, the oldest queued {@linkplain Priority#BACKGROUND} request is dropped
+ * with a {@linkplain RequestDroppedException}, the interactive and normal requests are never dropped.
+ * <p>
+ * A started request holds its slot until it terminates or is cancelled, so an upstream replying on another thread
+ * is limited as well.
+ */
+public final class RequestScheduler {
+
+    private final int maxConcurrency;
+
+    private final int maxConcurrencyPerHost;
+
+    private final int maxQueued;
+
+    private final ExecutorService executorService;
+
+    private final List<ArrayDeque<Task>> lanes = new ArrayList<>(Priority.values().length);
+
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+
+    private int running;
+
+    private int queued;
+
+    private int droppedCount;
+
+    public RequestScheduler() {
+        this(16, 5, 64);
+    }
+
+    /**
+     * @param maxConcurrency the max count of the running requests
+     * @param maxConcurrencyPerHost the max count of the running requests to a host
+     * @param maxQueued the max count of the waiting requests before the background requests are dropped
+     */
+    public RequestScheduler(int maxConcurrency, int maxConcurrencyPerHost, int maxQueued) {
+        if (maxConcurrency <= 0 || maxConcurrencyPerHost <= 0 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxConcurrency <= 0 || maxConcurrencyPerHost <= 0 || maxQueued < 0");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+        this.maxQueued = maxQueued;
+        for (int i = 0; i < Priority.values().length; i++) {
+            lanes.add(new ArrayDeque<Task>());
+        }
+        executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new RequestThreadFactory());
+    }
+
+    /**
+     * Subscribe the upstream when the request is started by the scheduler
+     * @param upstream the request
+     * @param priority the lane of the request
+     * @param host the host of the request, used to limit the concurrency per host
+     * @param <T>
+     * @return
+     */
+    @NonNull
+    public <T> Flowable<T> schedule(@NonNull final Flowable<T> upstream, @NonNull Priority priority, @NonNull String host) {
+        checkNotNull(upstream, "upstream == null");
+        final Ticket ticket = new Ticket(checkNotNull(priority, "priority == null"), checkNotNull(host, "host == null"));
+        return Flowable.defer(new Callable<Publisher<T>>() {
+            @Override
+            public Publisher<T> call() throws Exception {
+                if (ticket.dropped) {
+                    return Flowable.error(new RequestDroppedException("The queue of requests is full"));
+                }
+                return upstream;
+            }
+        }).subscribeOn(ticket);
+    }
+
+    /**
+     * @return the count of the running requests
+     */
+    public synchronized int runningCount() {
+        return running;
+    }
+
+    /**
+     * @return the count of the requests waiting to start
+     */
+    public synchronized int queuedCount() {
+        return queued;
+    }
+
+    /**
+     * @return the count of the background requests dropped because the queue is full
+     */
+    public synchronized int droppedCount() {
+        return droppedCount;
+    }
+
+    private void enqueue(Task task) {
+        Task dropped = null;
+        List<Task> ready;
+        synchronized (this) {
+            if (queued >= maxQueued) {
+                dropped = lanes.get(Priority.BACKGROUND.ordinal()).pollFirst();
+                if (dropped != null) {
+                    queued--;
+                } else if (task.ticket.priority == Priority.BACKGROUND) {
+                    dropped = task;
+                }
+            }
+            if (dropped != null) {
+                dropped.ticket.dropped = true;
+                droppedCount++;
+            }
+            if (dropped != task) {
+                lanes.get(task.ticket.priority.ordinal()).addLast(task);
+                queued++;
+            }
+            ready = promote();
+        }
+        if (dropped != null && !dropped.worker.isDisposed()) {
+            // the dropped request subscribes an error, it is cheap to run on the current thread
+            dropped.run.run();
+        }
+        start(ready);
+    }
+
+    /**
+     * Remove the task if it is still waiting, or free its slot if it is started, at most once
+     */
+    private void release(Task task) {
+        List<Task> ready;
+        synchronized (this) {
+            if (lanes.get(task.ticket.priority.ordinal()).remove(task)) {
+                queued--;
+                return;
+            }
+            if (!task.started || task.released) {
+                return;
+            }
+            task.released = true;
+            running--;
+            Integer hostRunning = runningPerHost.get(task.ticket.host);
+            if (hostRunning == null || hostRunning <= 1) {
+                runningPerHost.remove(task.ticket.host);
+            } else {
+                runningPerHost.put(task.ticket.host, hostRunning - 1);
+            }
+            ready = promote();
+        }
+        start(ready);
+    }
+
+    /**
+     * Move the tasks allowed to run from the lanes, must hold the lock
+     */
+    private List<Task> promote() {
+        List<Task> ready = new ArrayList<>();
+        for (ArrayDeque<Task> lane : lanes) {
+            Iterator<Task> iterator = lane.iterator();
+            while (running < maxConcurrency && iterator.hasNext()) {
+                Task task = iterator.next();
+                Integer hostRunning = runningPerHost.get(task.ticket.host);
+                int count = hostRunning == null ? 0 : hostRunning;
+                if (count >= maxConcurrencyPerHost) {
+                    continue;
+                }
+                iterator.remove();
+                task.started = true;
+                queued--;
+                running++;
+                runningPerHost.put(task.ticket.host, count + 1);
+                ready.add(task);
+            }
+        }
+        return ready;
+    }
+
+    private void start(List<Task> ready) {
+        for (Task task : ready) {
+            executorService.execute(task);
+        }
+    }
+
+    /**
+     * A single use {@linkplain Scheduler} for one request, the first work of it is queued in the lanes,
+     * the works later, such as the requests of more items, run at once in the slot of the request
+     */
+    private final class Ticket extends Scheduler {
+
+        final Priority priority;
+
+        final String host;
+
+        volatile boolean dropped;
+
+        Ticket(Priority priority, String host) {
+            this.priority = priority;
+            this.host = host;
+        }
+
+        @Override
+        public Worker createWorker() {
+            return new TicketWorker(this);
+        }
+    }
+
+    private final class TicketWorker extends Scheduler.Worker {
+
+        private final Ticket ticket;
+
+        private boolean queued;
+
+        private volatile Task task;
+
+        private volatile boolean disposed;
+
+        /**
+         * The delayed works waiting on the computation scheduler
+         */
+        private final CompositeDisposable delayed = new CompositeDisposable();
+
+        TicketWorker(Ticket ticket) {
+            this.ticket = ticket;
+        }
+
+        @Override
+        public Disposable schedule(@NonNull final Runnable run, long delay, @NonNull TimeUnit unit) {
+            if (disposed) {
+                return Disposables.disposed();
+            }
+            if (delay > 0) {
+                // the delay is waited before the work is queued, so it doesn't take a slot while waiting
+                Disposable timer = Schedulers.computation().scheduleDirect(new Runnable() {
+                    @Override
+                    public void run() {
+                        schedule(run, 0, TimeUnit.NANOSECONDS);
+                    }
+                }, delay, unit);
+                delayed.add(timer);
+                return timer;
+            }
+            boolean first;
+            synchronized (this) {
+                first = !queued;
+                queued = true;
+            }
+            if (!first) {
+                executorService.execute(new Guard(this, run));
+                return Disposables.empty();
+            }
+            task = new Task(this, run);
+            enqueue(task);
+            return Disposables.empty();
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+            delayed.dispose();
+            Task queuedTask = task;
+            if (queuedTask != null) {
+                // the request is terminated or cancelled, release its place in the queue or its slot
+                release(queuedTask);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return disposed;
+        }
+    }
+
+    /**
+     * Run a work unless the worker is disposed
+     */
+    private static class Guard implements Runnable {
+
+        final TicketWorker worker;
+
+        final Runnable run;
+
+        Guard(TicketWorker worker, Runnable run) {
+            this.worker = worker;
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            if (!worker.isDisposed()) {
+                run.run();
+            }
+        }
+    }
+
+    /**
+     * The first work of a request, hold a slot of the concurrency from it is started until the worker is disposed
+     */
+    private final class Task extends Guard {
+
+        final Ticket ticket;
+
+        /**
+         * Guarded by the scheduler
+         */
+        boolean started;
+
+        boolean released;
+
+        Task(TicketWorker worker, Runnable run) {
+            super(worker, run);
+            this.ticket = worker.ticket;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } catch (RuntimeException | Error e) {
+                release(this);
+                throw e;
+            }
+            // disposed before or while running, the dispose may not see the task started
+            if (worker.isDisposed()) {
+                release(this);
+            }
+        }
+    }
+
+    private static final class RequestThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, "WebApi-request-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.zhourh.webapi.service;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Converter;
+import retrofit2.Response;
+
+/**
+ * The {@linkplain Call} of a generated service method, it behaves as the OkHttpCall of Retrofit,
+ * the request is built when executed, on the thread executing it
+ * @param <T> the response type
+ */
+final class GeneratedCall<T> implements Call<T> {
+
+    private final GeneratedMethod method;
+
+    private final Object[] args;
+
+    private okhttp3.Call rawCall;
+
+    private Throwable creationFailure;
+
+    private boolean executed;
+
+    private volatile boolean canceled;
+
+    GeneratedCall(GeneratedMethod method, Object[] args) {
+        this.method = method;
+        this.args = args;
+    }
+
+    @Override
+    public Response<T> execute() throws IOException {
+        okhttp3.Call call;
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("Already executed.");
+            }
+            executed = true;
+            call = rawCall();
+        }
+        if (canceled) {
+            call.cancel();
+        }
+        return parseResponse(call.execute());
+    }
+
+    @Override
+    public void enqueue(final Callback<T> callback) {
+        okhttp3.Call call;
+        Throwable failure;
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("Already executed.");
+            }
+            executed = true;
+            call = null;
+            failure = null;
+            try {
+                call = rawCall();
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            callback.onFailure(this, failure);
+            return;
+        }
+        if (canceled) {
+            call.cancel();
+        }
+        call.enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                callback.onFailure(GeneratedCall.this, e);
+            }
+
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response rawResponse) throws IOException {
+                Response<T> response;
+                try {
+                    response = parseResponse(rawResponse);
+                } catch (Throwable e) {
+                    callback.onFailure(GeneratedCall.this, e);
+                    return;
+                }
+                callback.onResponse(GeneratedCall.this, response);
+            }
+        });
+    }
+
+    /**
+     * Must hold the lock
+     */
+    private okhttp3.Call rawCall() throws IOException {
+        if (rawCall != null) {
+            return rawCall;
+        }
+        if (creationFailure != null) {
+            if (creationFailure instanceof IOException) {
+                throw (IOException) creationFailure;
+            }
+            throw (RuntimeException) creationFailure;
+        }
+        try {
+            rawCall = method.newCall(args);
+            return rawCall;
+        } catch (IOException | RuntimeException e) {
+            creationFailure = e;
+            throw e;
+        }
+    }
+
+    private Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
+        ResponseBody rawBody = rawResponse.body();
+        rawResponse = rawResponse.newBuilder()
+                .body(new NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
+                .build();
+        int code = rawResponse.code();
+        if (code < 200 || code >= 300) {
+            try {
+                Buffer buffer = new Buffer();
+                rawBody.source().readAll(buffer);
+                return Response.error(ResponseBody.create(rawBody.contentType(), rawBody.contentLength(), buffer), rawResponse);
+            } finally {
+                rawBody.close();
+            }
+        }
+        if (code == 204 || code == 205) {
+            rawBody.close();
+            return Response.success(null, rawResponse);
+        }
+        try {
+            Converter<ResponseBody, T> converter = method.responseConverter();
+            return Response.success(converter.convert(rawBody), rawResponse);
+        } catch (IOException | RuntimeException e) {
+            rawBody.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized boolean isExecuted() {
+        return executed;
+    }
+
+    @Override
+    public void cancel() {
+        canceled = true;
+        okhttp3.Call call;
+        synchronized (this) {
+            call = rawCall;
+        }
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    @SuppressWarnings("CloneDoesntCallSuperClone")
+    @Override
+    public Call<T> clone() {
+        return new GeneratedCall<>(method, args);
+    }
+
+    @Override
+    public synchronized Request request() {
+        try {
+            return rawCall().request();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create request.", e);
+        }
+    }
+
+    /**
+     * The body of the response passed to the converter is taken away from the response
+     */
+    private static final class NoContentResponseBody extends ResponseBody {
+
+        private final MediaType contentType;
+
+        private final long contentLength;
+
+        NoContentResponseBody(MediaType contentType, long contentLength) {
+            this.contentType = contentType;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public BufferedSource source() {
+            throw new IllegalStateException("Cannot read raw response body of a converted body.");
+        }
+    }
+}
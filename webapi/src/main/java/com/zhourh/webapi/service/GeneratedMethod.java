@@ -0,0 +1,170 @@
+package com.zhourh.webapi.service;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import okhttp3.Headers;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.CallAdapter;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * A service method of a generated service, it replaces the ServiceMethod of Retrofit.
+ * <p>
+ * The http method, url and parameters are read by the compiler, so nothing is parsed at runtime.
+ * The call adapter and converters are still looked up from the {@linkplain Retrofit} with the annotations of the method,
+ * once, when the method is called the first time.
+ */
+public final class GeneratedMethod {
+
+    private final Retrofit retrofit;
+
+    private final RequestBinder binder;
+
+    private final int methodId;
+
+    private final Class<?> serviceClass;
+
+    private final String name;
+
+    private final Class<?>[] parameterTypes;
+
+    final String httpMethod;
+
+    final String relativeUrl;
+
+    final boolean hasBody;
+
+    final boolean formEncoded;
+
+    final Headers headers;
+
+    private final int bodyIndex;
+
+    private volatile Adapters adapters;
+
+    /**
+     * Called by the generated services
+     * @param retrofit the retrofit of the adapters and converters
+     * @param binder the generated service
+     * @param methodId the id of the method in the generated service
+     * @param serviceClass the interface of the service
+     * @param name the name of the method
+     * @param parameterTypes the erased parameter types of the method
+     * @param httpMethod such as GET
+     * @param relativeUrl the url relative to the base url, with the {@code {name}} placeholders of the paths
+     * @param hasBody whether the http method has a body
+     * @param formEncoded whether the body is a form of the fields
+     * @param bodyIndex the index of the {@linkplain retrofit2.http.Body} parameter, -1 if none
+     * @param headers the static headers, such as {@code Accept: application/json}
+     */
+    public GeneratedMethod(@NonNull Retrofit retrofit, @NonNull RequestBinder binder, int methodId,
+                           @NonNull Class<?> serviceClass, @NonNull String name, @NonNull Class<?>[] parameterTypes,
+                           @NonNull String httpMethod, @NonNull String relativeUrl, boolean hasBody, boolean formEncoded,
+                           int bodyIndex, @NonNull String... headers) {
+        this.retrofit = retrofit;
+        this.binder = binder;
+        this.methodId = methodId;
+        this.serviceClass = serviceClass;
+        this.name = name;
+        this.parameterTypes = parameterTypes;
+        this.httpMethod = httpMethod;
+        this.relativeUrl = relativeUrl;
+        this.hasBody = hasBody;
+        this.formEncoded = formEncoded;
+        this.bodyIndex = bodyIndex;
+        Headers.Builder headersBuilder = new Headers.Builder();
+        for (String header : headers) {
+            headersBuilder.add(header);
+        }
+        this.headers = headersBuilder.build();
+    }
+
+    /**
+     * Called by the generated services
+     * @param args the arguments of the call
+     * @return the value adapted by the call adapter, such as a {@linkplain io.reactivex.Flowable}
+     */
+    public Object invoke(@NonNull Object[] args) {
+        return adapters().callAdapter.adapt(new GeneratedCall<>(this, args));
+    }
+
+    GeneratedRequest newRequest() {
+        return new GeneratedRequest(this, retrofit.baseUrl());
+    }
+
+    okhttp3.Call newCall(Object[] args) throws IOException {
+        GeneratedRequest request = newRequest();
+        binder.bind(methodId, args, request);
+        return retrofit.callFactory().newCall(request.build());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Converter<ResponseBody, T> responseConverter() {
+        return (Converter<ResponseBody, T>) adapters().responseConverter;
+    }
+
+    @SuppressWarnings("unchecked")
+    Converter<Object, RequestBody> bodyConverter() {
+        return (Converter<Object, RequestBody>) adapters().bodyConverter;
+    }
+
+    private Adapters adapters() {
+        Adapters result = adapters;
+        if (result == null) {
+            synchronized (this) {
+                result = adapters;
+                if (result == null) {
+                    result = new Adapters(method());
+                    adapters = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Method method() {
+        try {
+            return serviceClass.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("The generated service of " + serviceClass.getName()
+                    + " is out of date, rebuild the project", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return serviceClass.getSimpleName() + '.' + name + ' ' + httpMethod + ' ' + relativeUrl;
+    }
+
+    /**
+     * The call adapter and converters of the method
+     */
+    private final class Adapters {
+
+        final CallAdapter<?> callAdapter;
+
+        final Converter<ResponseBody, ?> responseConverter;
+
+        final Converter<?, RequestBody> bodyConverter;
+
+        Adapters(Method method) {
+            Annotation[] annotations = method.getAnnotations();
+            callAdapter = retrofit.callAdapter(method.getGenericReturnType(), annotations);
+            responseConverter = retrofit.responseBodyConverter(callAdapter.responseType(), annotations);
+            if (bodyIndex >= 0) {
+                Type bodyType = method.getGenericParameterTypes()[bodyIndex];
+                bodyConverter = retrofit.requestBodyConverter(bodyType,
+                        method.getParameterAnnotations()[bodyIndex], annotations);
+            } else {
+                bodyConverter = null;
+            }
+        }
+    }
+}
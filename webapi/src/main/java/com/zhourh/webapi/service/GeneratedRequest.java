@@ -0,0 +1,185 @@
+package com.zhourh.webapi.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.FormBody;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+/**
+ * Build the request of a call, the generated services bind the arguments to it by {@linkplain RequestBinder}
+ */
+public final class GeneratedRequest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final GeneratedMethod method;
+
+    private final HttpUrl baseUrl;
+
+    private String relativeUrl;
+
+    private final Request.Builder requestBuilder = new Request.Builder();
+
+    private List<String> queries;
+
+    private FormBody.Builder formBuilder;
+
+    private RequestBody body;
+
+    GeneratedRequest(GeneratedMethod method, HttpUrl baseUrl) {
+        this.method = method;
+        this.baseUrl = baseUrl;
+        this.relativeUrl = method.relativeUrl;
+        requestBuilder.headers(method.headers);
+        if (method.formEncoded) {
+            formBuilder = new FormBody.Builder();
+        }
+    }
+
+    /**
+     * Replace the {@code {name}} placeholder of the relative url
+     */
+    public void path(@NonNull String name, @Nullable Object value, boolean encoded) {
+        if (value == null) {
+            throw new IllegalArgumentException("Path parameter \"" + name + "\" value must not be null.");
+        }
+        String string = value.toString();
+        relativeUrl = relativeUrl.replace("{" + name + "}", encoded ? string : encodePathSegment(string));
+    }
+
+    /**
+     * Add a query parameter, the null value is skipped, each item of an iterable or array is added
+     */
+    public void query(@NonNull String name, @Nullable Object value, boolean encoded) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Iterable) {
+            for (Object item : (Iterable<?>) value) {
+                query(name, item, encoded);
+            }
+            return;
+        }
+        if (value.getClass().isArray()) {
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                query(name, Array.get(value, i), encoded);
+            }
+            return;
+        }
+        if (queries == null) {
+            queries = new ArrayList<>();
+        }
+        queries.add(name);
+        queries.add(value.toString());
+        queries.add(encoded ? "1" : "0");
+    }
+
+    /**
+     * Add a header, the null value is skipped
+     */
+    public void header(@NonNull String name, @Nullable Object value) {
+        if (value != null) {
+            requestBuilder.addHeader(name, value.toString());
+        }
+    }
+
+    /**
+     * Add a field of the form, the null value is skipped, each item of an iterable is added
+     */
+    public void field(@NonNull String name, @Nullable Object value, boolean encoded) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Iterable) {
+            for (Object item : (Iterable<?>) value) {
+                field(name, item, encoded);
+            }
+            return;
+        }
+        if (encoded) {
+            formBuilder.addEncoded(name, value.toString());
+        } else {
+            formBuilder.add(name, value.toString());
+        }
+    }
+
+    /**
+     * Convert the body by the request body converter of the retrofit
+     */
+    public void body(@Nullable Object value) throws IOException {
+        if (value == null) {
+            throw new IllegalArgumentException("Body parameter value must not be null.");
+        }
+        body = method.bodyConverter().convert(value);
+    }
+
+    Request build() {
+        HttpUrl url = baseUrl.resolve(relativeUrl);
+        if (url == null) {
+            throw new IllegalArgumentException("Malformed URL. Base: " + baseUrl + ", Relative: " + relativeUrl);
+        }
+        if (queries != null) {
+            HttpUrl.Builder urlBuilder = url.newBuilder();
+            for (int i = 0; i < queries.size(); i += 3) {
+                if ("1".equals(queries.get(i + 2))) {
+                    urlBuilder.addEncodedQueryParameter(queries.get(i), queries.get(i + 1));
+                } else {
+                    urlBuilder.addQueryParameter(queries.get(i), queries.get(i + 1));
+                }
+            }
+            url = urlBuilder.build();
+        }
+        RequestBody requestBody = body;
+        if (requestBody == null && formBuilder != null) {
+            requestBody = formBuilder.build();
+        }
+        if (requestBody == null && method.hasBody) {
+            requestBody = RequestBody.create(null, new byte[0]);
+        }
+        return requestBuilder.url(url).method(method.httpMethod, requestBody).build();
+    }
+
+    /**
+     * Percent encode a path segment, keep the unreserved characters and the sub delimiters as Retrofit
+     */
+    private static String encodePathSegment(String value) {
+        StringBuilder builder = null;
+        byte[] bytes = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!isPathChar(c)) {
+                bytes = value.getBytes(UTF_8);
+                builder = new StringBuilder(bytes.length * 3);
+                break;
+            }
+        }
+        if (builder == null) {
+            return value;
+        }
+        for (byte b : bytes) {
+            char c = (char) (b & 0xff);
+            if (isPathChar(c)) {
+                builder.append(c);
+            } else {
+                builder.append('%').append(HEX_DIGITS[(b >> 4) & 0xf]).append(HEX_DIGITS[b & 0xf]);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isPathChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || "-._~!$&'()*+,;=:@/".indexOf(c) >= 0;
+    }
+}
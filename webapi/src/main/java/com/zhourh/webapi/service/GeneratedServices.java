@@ -0,0 +1,62 @@
+package com.zhourh.webapi.service;
+
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Constructor;
+
+import retrofit2.Retrofit;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Create the services by the implementations generated from {@linkplain WebApiService}
+ */
+public final class GeneratedServices {
+
+    /**
+     * The suffix of the generated class, such as {@code UkeeService_WebApiService}
+     */
+    public static final String SUFFIX = "_WebApiService";
+
+    private GeneratedServices() {
+    }
+
+    /**
+     * @param retrofit the retrofit of the adapters and converters
+     * @param serviceClass the interface of the service
+     * @param <T>
+     * @return the generated implementation if found, otherwise the Retrofit proxy
+     */
+    @NonNull
+    public static <T> T create(@NonNull Retrofit retrofit, @NonNull Class<T> serviceClass) {
+        checkNotNull(retrofit, "retrofit == null");
+        checkNotNull(serviceClass, "serviceClass == null");
+        Constructor<?> constructor = findConstructor(serviceClass);
+        if (constructor == null) {
+            return retrofit.create(serviceClass);
+        }
+        try {
+            return serviceClass.cast(constructor.newInstance(retrofit));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create " + constructor.getDeclaringClass().getName(), e);
+        }
+    }
+
+    /**
+     * @return whether an implementation is generated for the interface
+     */
+    public static boolean isGenerated(@NonNull Class<?> serviceClass) {
+        return findConstructor(serviceClass) != null;
+    }
+
+    private static Constructor<?> findConstructor(Class<?> serviceClass) {
+        try {
+            Class<?> generated = Class.forName(serviceClass.getName() + SUFFIX, true, serviceClass.getClassLoader());
+            return generated.getConstructor(Retrofit.class);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
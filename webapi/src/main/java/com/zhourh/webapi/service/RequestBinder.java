@@ -0,0 +1,17 @@
+package com.zhourh.webapi.service;
+
+import java.io.IOException;
+
+/**
+ * Implemented by the generated services, bind the arguments of a service method to the request
+ */
+public interface RequestBinder {
+
+    /**
+     * @param methodId the id of the service method in the generated service
+     * @param args the arguments of the call
+     * @param request the request to bind to
+     * @throws IOException if the body failed to convert
+     */
+    void bind(int methodId, Object[] args, GeneratedRequest request) throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.zhourh.webapi.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate an implementation of the service interface at compile time by the webapi-compiler,
+ * {@linkplain com.zhourh.webapi.core.WebApi} uses it instead of the Retrofit proxy, such as
+ * <pre>{@code
+ * @WebApiService
+ * public interface UkeeService {
+ *     @GET("help/questions")
+ *     Flowable<UApiResult<List<CommonQuestionDO>>> getQuestions();
+ * }
+ * }</pre>
+ * and add {@code annotationProcessor project(':webapi-compiler')} to the dependencies.
+ * The interface using the annotations not supported by the compiler is still served by the Retrofit proxy.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface WebApiService {
+}
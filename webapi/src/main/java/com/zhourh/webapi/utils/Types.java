@@ -0,0 +1,251 @@
+package com.zhourh.webapi.utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers for the generic types of the response models
+ */
+public final class Types {
+
+    private Types() {
+    }
+
+    /**
+     * @return the raw class of the type, null if the type is a type variable
+     */
+    public static Class<?> getRawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        if (type instanceof GenericArrayType) {
+            Class<?> componentType = getRawType(((GenericArrayType) type).getGenericComponentType());
+            return componentType == null ? null : Array.newInstance(componentType, 0).getClass();
+        }
+        if (type instanceof WildcardType) {
+            return getRawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return null;
+    }
+
+    /**
+     * Find the field declared in the class or its super classes
+     * @return null if not found
+     */
+    public static Field findField(Class<?> rawType, String name) {
+        for (Class<?> c = rawType; c != null && c != Object.class; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (NoSuchFieldException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the generic type of a field in the context of the owner type,
+     * such as the field {@code T data} of {@code UApiResult<List<CommonQuestionDO>>} is resolved to {@code List<CommonQuestionDO>}
+     * @param owner the type own the field
+     * @param field the field declared in the raw type of the owner or its super classes
+     * @return the resolved type, {@linkplain Object} if a type variable can not be resolved
+     */
+    public static Type resolveFieldType(Type owner, Field field) {
+        Map<TypeVariable<?>, Type> bindings = new HashMap<>();
+        Type current = owner;
+        while (current != null) {
+            Class<?> rawType = getRawType(current);
+            if (rawType == null || rawType == Object.class) {
+                break;
+            }
+            if (current instanceof ParameterizedType) {
+                TypeVariable<?>[] variables = rawType.getTypeParameters();
+                Type[] arguments = ((ParameterizedType) current).getActualTypeArguments();
+                for (int i = 0; i < variables.length && i < arguments.length; i++) {
+                    bindings.put(variables[i], resolve(arguments[i], bindings));
+                }
+            }
+            if (rawType == field.getDeclaringClass()) {
+                break;
+            }
+            current = rawType.getGenericSuperclass();
+        }
+        return resolve(field.getGenericType(), bindings);
+    }
+
+    /**
+     * @return a parameterized type, such as {@code List<CommonQuestionDO>}
+     */
+    public static ParameterizedType newParameterizedType(Class<?> rawType, Type... typeArguments) {
+        return new ParameterizedTypeImpl(rawType.getEnclosingClass(), rawType, typeArguments.clone());
+    }
+
+    /**
+     * @return the name of the type, such as {@code com.zhourh.rhwebapi.UApiResult<java.util.List<com.zhourh.rhwebapi.CommonQuestionDO>>},
+     * it is parsed back by {@linkplain #parseType(String, ClassLoader)}
+     * @throws IllegalArgumentException if the type contains a type variable or a wildcard
+     */
+    public static String typeName(Type type) {
+        StringBuilder name = new StringBuilder();
+        appendTypeName(name, type);
+        return name.toString();
+    }
+
+    /**
+     * @param name the name by {@linkplain #typeName(Type)}
+     * @param classLoader the class loader of the classes in the type
+     * @return the type
+     * @throws ClassNotFoundException if a class is not found, such as it is renamed
+     */
+    public static Type parseType(String name, ClassLoader classLoader) throws ClassNotFoundException {
+        int[] position = {0};
+        Type type = parseType(name, position, classLoader);
+        if (position[0] != name.length()) {
+            throw new IllegalArgumentException("Illegal type name: " + name);
+        }
+        return type;
+    }
+
+    private static void appendTypeName(StringBuilder name, Type type) {
+        if (type instanceof Class) {
+            name.append(((Class<?>) type).getName());
+            return;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            name.append(((Class<?>) parameterizedType.getRawType()).getName()).append('<');
+            Type[] arguments = parameterizedType.getActualTypeArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                if (i > 0) {
+                    name.append(',');
+                }
+                appendTypeName(name, arguments[i]);
+            }
+            name.append('>');
+            return;
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+
+    private static Type parseType(String name, int[] position, ClassLoader classLoader) throws ClassNotFoundException {
+        int start = position[0];
+        int end = start;
+        while (end < name.length() && "<,>".indexOf(name.charAt(end)) < 0) {
+            end++;
+        }
+        Class<?> rawType = Class.forName(name.substring(start, end), false, classLoader);
+        position[0] = end;
+        if (end == name.length() || name.charAt(end) != '<') {
+            return rawType;
+        }
+        List<Type> arguments = new ArrayList<>();
+        do {
+            // skip the '<' or ','
+            position[0]++;
+            arguments.add(parseType(name, position, classLoader));
+        } while (position[0] < name.length() && name.charAt(position[0]) == ',');
+        if (position[0] >= name.length() || name.charAt(position[0]) != '>') {
+            throw new IllegalArgumentException("Illegal type name: " + name);
+        }
+        position[0]++;
+        return newParameterizedType(rawType, arguments.toArray(new Type[arguments.size()]));
+    }
+
+    private static Type resolve(Type type, Map<TypeVariable<?>, Type> bindings) {
+        if (type instanceof TypeVariable) {
+            Type bound = bindings.get(type);
+            return bound == null ? Object.class : bound;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            Type[] arguments = parameterizedType.getActualTypeArguments().clone();
+            boolean changed = false;
+            for (int i = 0; i < arguments.length; i++) {
+                Type resolved = resolve(arguments[i], bindings);
+                if (resolved != arguments[i]) {
+                    arguments[i] = resolved;
+                    changed = true;
+                }
+            }
+            return changed ? new ParameterizedTypeImpl(parameterizedType.getOwnerType(),
+                    parameterizedType.getRawType(), arguments) : type;
+        }
+        return type;
+    }
+
+    private static final class ParameterizedTypeImpl implements ParameterizedType {
+
+        private final Type ownerType;
+
+        private final Type rawType;
+
+        private final Type[] typeArguments;
+
+        ParameterizedTypeImpl(Type ownerType, Type rawType, Type... typeArguments) {
+            this.ownerType = ownerType;
+            this.rawType = rawType;
+            this.typeArguments = typeArguments;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return typeArguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return ownerType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType that = (ParameterizedType) other;
+            return rawType.equals(that.getRawType())
+                    && Arrays.equals(typeArguments, that.getActualTypeArguments())
+                    && (ownerType == null ? that.getOwnerType() == null : ownerType.equals(that.getOwnerType()));
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(typeArguments) ^ rawType.hashCode()
+                    ^ (ownerType == null ? 0 : ownerType.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder(((Class<?>) rawType).getName());
+            if (typeArguments.length == 0) {
+                return result.toString();
+            }
+            result.append('<');
+            for (int i = 0; i < typeArguments.length; i++) {
+                if (i > 0) {
+                    result.append(", ");
+                }
+                Type argument = typeArguments[i];
+                result.append(argument instanceof Class ? ((Class<?>) argument).getName() : argument.toString());
+            }
+            return result.append('>').toString();
+        }
+    }
+}
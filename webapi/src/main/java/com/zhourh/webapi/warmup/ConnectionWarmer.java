@@ -0,0 +1,147 @@
+package com.zhourh.webapi.warmup;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static com.zhourh.webapi.utils.Utils.checkNotNull;
+
+/**
+ * Open the connections to the hosts in the background before the first request needs them,
+ * so the dns lookup, tcp connect and tls handshake are off the critical path of app launch.
+ * <p>
+ * A HEAD request is sent to every host with a client sharing the connection pool of the given client,
+ * the connection is kept alive in the pool and the tls session is cached by the ssl socket factory,
+ * the requests sent later reuse them. The interceptors of the client are not invoked by the warm up requests.
+ */
+public final class ConnectionWarmer {
+
+    private final OkHttpClient client;
+
+    private final Map<String, WarmUpResult> results = new LinkedHashMap<>();
+
+    /**
+     * @param client the client of the requests, the warm up requests share its pool, dns and ssl settings
+     */
+    public ConnectionWarmer(@NonNull OkHttpClient client) {
+        this.client = checkNotNull(client, "client == null");
+    }
+
+    /**
+     * Send the warm up requests asynchronously, a host is warmed up once
+     * @param urls the base urls of the hosts
+     */
+    public void warmUp(@NonNull List<HttpUrl> urls) {
+        checkNotNull(urls, "urls == null");
+        List<HttpUrl> hosts = new ArrayList<>();
+        synchronized (results) {
+            for (HttpUrl url : urls) {
+                String key = key(url);
+                if (!results.containsKey(key)) {
+                    results.put(key, null);
+                    hosts.add(url);
+                }
+            }
+        }
+        for (HttpUrl url : hosts) {
+            warmUp(url);
+        }
+    }
+
+    private void warmUp(final HttpUrl url) {
+        final SetupTimer setupTimer = new SetupTimer();
+        OkHttpClient.Builder builder = client.newBuilder().cache(null);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        OkHttpClient warmUpClient = builder.addNetworkInterceptor(setupTimer).build();
+        Request request = new Request.Builder().url(url).head().build();
+        warmUpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                finish(url, new WarmUpResult(url.host(), 0, setupTimer.elapsedMillis(), e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                response.close();
+                finish(url, new WarmUpResult(url.host(), setupTimer.setupMillis(), setupTimer.elapsedMillis(), null));
+            }
+        });
+    }
+
+    private void finish(HttpUrl url, WarmUpResult result) {
+        synchronized (results) {
+            results.put(key(url), result);
+        }
+    }
+
+    /**
+     * @return the results of the hosts warmed up so far
+     */
+    @NonNull
+    public List<WarmUpResult> getResults() {
+        List<WarmUpResult> finished = new ArrayList<>();
+        synchronized (results) {
+            for (WarmUpResult result : results.values()) {
+                if (result != null) {
+                    finished.add(result);
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * @return the total time of the connection setup taken off the first requests
+     */
+    public long getSavedMillis() {
+        long saved = 0;
+        for (WarmUpResult result : getResults()) {
+            saved += result.getSetupMillis();
+        }
+        return saved;
+    }
+
+    private static String key(HttpUrl url) {
+        return url.scheme() + "://" + url.host() + ':' + url.port();
+    }
+
+    /**
+     * The network interceptors are invoked after the connection is set up,
+     * so the time between the call started and the interceptor invoked is the setup
+     */
+    private static final class SetupTimer implements Interceptor {
+
+        private final long startNanos = System.nanoTime();
+
+        private volatile long setupNanos = -1;
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            if (setupNanos < 0) {
+                setupNanos = System.nanoTime() - startNanos;
+            }
+            return chain.proceed(chain.request());
+        }
+
+        long setupMillis() {
+            return setupNanos < 0 ? 0 : setupNanos / 1000000;
+        }
+
+        long elapsedMillis() {
+            return (System.nanoTime() - startNanos) / 1000000;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.zhourh.webapi.warmup;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The outcome of warming up a host
+ */
+public final class WarmUpResult {
+
+    private final String host;
+
+    private final long setupMillis;
+
+    private final long totalMillis;
+
+    private final Throwable error;
+
+    WarmUpResult(String host, long setupMillis, long totalMillis, Throwable error) {
+        this.host = host;
+        this.setupMillis = setupMillis;
+        this.totalMillis = totalMillis;
+        this.error = error;
+    }
+
+    @NonNull
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the time of dns, connect and tls handshake, the first request to the host doesn't pay it any more,
+     * 0 if failed, close to 0 if the connection already existed
+     */
+    public long getSetupMillis() {
+        return setupMillis;
+    }
+
+    /**
+     * @return the time of the whole warm up request
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * @return null if successful
+     */
+    @Nullable
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpResult[" + host + ",setup=" + setupMillis + "ms,total=" + totalMillis + "ms"
+                + (error == null ? "" : ",error=" + error) + ']';
+    }
+}
@@ -0,0 +1,53 @@
+package com.zhourh.webapi;
+
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * A call only has its request, for the layers reading the request of a call,
+ * the response comes from the upstream of the test
+ */
+public final class RequestCall implements Call<Object> {
+
+    private final Request request;
+
+    public RequestCall(Request request) {
+        this.request = request;
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    @Override
+    public Response<Object> execute() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void enqueue(Callback<Object> callback) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isExecuted() {
+        return false;
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return false;
+    }
+
+    @Override
+    public Call<Object> clone() {
+        return new RequestCall(request);
+    }
+}
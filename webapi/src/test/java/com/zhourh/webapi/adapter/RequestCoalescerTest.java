@@ -0,0 +1,152 @@
+package com.zhourh.webapi.adapter;
+
+import com.zhourh.webapi.RequestCall;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.Request;
+import org.reactivestreams.Publisher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    private final Upstream upstream = new Upstream();
+
+    @Test
+    public void identicalRequestsJoinOneUpstream() {
+        TestSubscriber<String> first = coalesce("alice").test();
+        TestSubscriber<String> second = coalesce("alice").test();
+        assertEquals(1, upstream.calls.size());
+        assertEquals(1, coalescer.inFlightCount());
+
+        upstream.reply(0, "result");
+        first.assertValue("result").assertComplete();
+        second.assertValue("result").assertComplete();
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    public void differentHeadersDoNotJoin() {
+        TestSubscriber<String> alice = coalesce("alice").test();
+        TestSubscriber<String> bob = coalesce("bob").test();
+        assertEquals(2, upstream.calls.size());
+
+        upstream.reply(0, "alice");
+        upstream.reply(1, "bob");
+        alice.assertValue("alice");
+        bob.assertValue("bob");
+    }
+
+    @Test
+    public void lateSubscriberStartsANewRequest() {
+        coalesce("alice").test();
+        upstream.reply(0, "first");
+
+        TestSubscriber<String> late = coalesce("alice").test();
+        assertEquals(2, upstream.calls.size());
+        upstream.reply(1, "second");
+        late.assertValue("second").assertComplete();
+    }
+
+    @Test
+    public void subscriberJoiningWhileTheValueIsEmittedGetsIt() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        for (int i = 0; i < 2000; i++) {
+            final AtomicInteger calls = new AtomicInteger();
+            final Flowable<String> upstream = Flowable.fromCallable(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return "result" + calls.incrementAndGet();
+                }
+            }).subscribeOn(Schedulers.io());
+            final CyclicBarrier start = new CyclicBarrier(2);
+            final Request request = new Request.Builder().url("http://localhost/questions").build();
+            Callable<TestSubscriber<String>> subscribe = new Callable<TestSubscriber<String>>() {
+                @Override
+                public TestSubscriber<String> call() throws Exception {
+                    start.await();
+                    return coalescer.coalesce(new RequestCall(request), String.class, upstream).test();
+                }
+            };
+            FutureTask<TestSubscriber<String>> other = new FutureTask<>(subscribe);
+            new Thread(other).start();
+            TestSubscriber<String> subscriber = subscribe.call();
+            for (TestSubscriber<String> s : Arrays.asList(subscriber, other.get())) {
+                assertTrue(s.awaitTerminalEvent(5, TimeUnit.SECONDS));
+                s.assertNoErrors().assertValueCount(1);
+            }
+        }
+    }
+
+    @Test
+    public void releasedOnError() {
+        TestSubscriber<String> failed = coalesce("alice").test();
+        upstream.calls.get(0).onError(new IOException());
+        failed.assertError(IOException.class);
+        assertEquals(0, coalescer.inFlightCount());
+
+        coalesce("alice").test();
+        assertEquals(2, upstream.calls.size());
+    }
+
+    @Test
+    public void upstreamCancelledByTheLastSubscriber() {
+        TestSubscriber<String> first = coalesce("alice").test();
+        TestSubscriber<String> second = coalesce("alice").test();
+        PublishProcessor<String> call = upstream.calls.get(0);
+
+        first.cancel();
+        assertTrue(call.hasSubscribers());
+        second.cancel();
+        assertFalse(call.hasSubscribers());
+        assertEquals(0, coalescer.inFlightCount());
+    }
+
+    private Flowable<String> coalesce(String authorization) {
+        Request request = new Request.Builder().url("http://localhost/questions")
+                .header("Authorization", authorization)
+                .build();
+        return coalescer.coalesce(new RequestCall(request), String.class, upstream.flowable);
+    }
+
+    /**
+     * Every subscription is a new call, replied by the test
+     */
+    private static final class Upstream {
+
+        final List<PublishProcessor<String>> calls = new ArrayList<>();
+
+        final Flowable<String> flowable = Flowable.defer(new Callable<Publisher<String>>() {
+            @Override
+            public Publisher<String> call() throws Exception {
+                PublishProcessor<String> call = PublishProcessor.create();
+                calls.add(call);
+                return call;
+            }
+        });
+
+        void reply(int index, String result) {
+            calls.get(index).onNext(result);
+            calls.get(index).onComplete();
+        }
+    }
+}
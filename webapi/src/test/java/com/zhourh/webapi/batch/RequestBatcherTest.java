@@ -0,0 +1,106 @@
+package com.zhourh.webapi.batch;
+
+import com.zhourh.webapi.RequestCall;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBatcherTest {
+
+    private final MockWebServer server = new MockWebServer();
+
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+    private final Call.Factory callFactory = new Call.Factory() {
+
+        private final OkHttpClient client = new OkHttpClient();
+
+        @Override
+        public Call newCall(Request request) {
+            Call call = client.newCall(request);
+            calls.add(call);
+            return call;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void callsAreSentInOneRequestInOrder() throws Exception {
+        RequestBatcher batcher = new RequestBatcher(callFactory, server.url("/batch"), 50, TimeUnit.MILLISECONDS, 10);
+        server.enqueue(new MockResponse().setBody("[1,2]"));
+        TestSubscriber<Integer> first = this.<Integer>enqueue(batcher, "/first").test();
+        TestSubscriber<Integer> second = this.<Integer>enqueue(batcher, "/second").test();
+
+        assertTrue(first.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        assertTrue(second.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        first.assertValue(1);
+        second.assertValue(2);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void windowFlushOfAFullBatchDoesNotSendTheNextBatchEarly() throws Exception {
+        RequestBatcher batcher = new RequestBatcher(callFactory, server.url("/batch"), 500, TimeUnit.MILLISECONDS, 2);
+        server.enqueue(new MockResponse().setBody("[1,2]"));
+        server.enqueue(new MockResponse().setBody("[3]"));
+        enqueue(batcher, "/first").test();
+        enqueue(batcher, "/second").test();
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+        Thread.sleep(300);
+        TestSubscriber<Integer> third = this.<Integer>enqueue(batcher, "/third").test();
+        // the window of the full batch ends 200ms later, the window of the third call 500ms later
+        assertNull(server.takeRequest(400, TimeUnit.MILLISECONDS));
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertTrue(third.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        third.assertValue(3);
+    }
+
+    @Test
+    public void batchRequestIsCancelledWhenAllTheCallsAreCancelled() throws Exception {
+        RequestBatcher batcher = new RequestBatcher(callFactory, server.url("/batch"), 10, TimeUnit.MILLISECONDS, 10);
+        // the reply is held until the socket is closed by the cancel
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        TestSubscriber<Integer> first = this.<Integer>enqueue(batcher, "/first").test();
+        TestSubscriber<Integer> second = this.<Integer>enqueue(batcher, "/second").test();
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+        first.cancel();
+        assertFalse(calls.get(0).isCanceled());
+        second.cancel();
+        assertTrue(calls.get(0).isCanceled());
+    }
+
+    private <T> Flowable<T> enqueue(RequestBatcher batcher, String path) {
+        return batcher.enqueue(new RequestCall(new Request.Builder().url(server.url(path)).build()), Integer.class);
+    }
+}
@@ -0,0 +1,40 @@
+package com.zhourh.webapi.benchmark;
+
+import com.zhourh.webapi.json.JsonModel;
+
+/**
+ * An item of the benchmark payloads, the same shape as the CommonQuestionDO of the app
+ */
+@JsonModel
+public class BenchmarkQuestion {
+
+    private long questionId;
+
+    private String question;
+
+    private String answer;
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(long questionId) {
+        this.questionId = questionId;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+}
@@ -0,0 +1,48 @@
+package com.zhourh.webapi.benchmark;
+
+import com.zhourh.webapi.json.JsonModel;
+import com.zhourh.webapi.response.ApiResult;
+
+/**
+ * The envelope of the benchmark payloads, the same shape as the UApiResult of the app
+ */
+@JsonModel
+public class BenchmarkResult<T> implements ApiResult<T> {
+
+    private boolean success;
+
+    private T data;
+
+    private String message;
+
+    @Override
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    @Override
+    public String getError() {
+        return message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public T getData() {
+        return data;
+    }
+
+    public void setData(T data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,16 @@
+package com.zhourh.webapi.benchmark;
+
+import com.zhourh.webapi.service.WebApiService;
+
+import java.util.List;
+
+import io.reactivex.Flowable;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+@WebApiService
+public interface BenchmarkService {
+
+    @GET("questions")
+    Flowable<BenchmarkResult<List<BenchmarkQuestion>>> getQuestions(@Query("size") int size);
+}
@@ -0,0 +1,119 @@
+package com.zhourh.webapi.benchmark;
+
+import com.zhourh.webapi.converter.JsonBinderConverterFactory;
+import com.zhourh.webapi.utils.Types;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.fastjson.FastJsonConverterFactory;
+
+/**
+ * Compare the generated json binders with the FastJsonConverterFactory installed by default,
+ * decoding a {@code BenchmarkResult<List<BenchmarkQuestion>>} of small and large payloads.
+ * <p>
+ * The steady state is measured in the average time, the first decode in a fresh jvm,
+ * including the ASM of fastjson, is measured in the single shot time. Run with
+ * {@code ./gradlew :webapi:jmh -Pjmh=JsonBinderBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JsonBinderBenchmark {
+
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private static final Type RESULT_TYPE = Types.newParameterizedType(BenchmarkResult.class,
+            Types.newParameterizedType(List.class, BenchmarkQuestion.class));
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private byte[] payload;
+
+    private Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> fastJson;
+
+    private Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> binder;
+
+    @Setup
+    public void setUp() {
+        payload = payload(size);
+        fastJson = converter(FastJsonConverterFactory.create());
+        binder = converter(JsonBinderConverterFactory.create());
+    }
+
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> fastJson() throws IOException {
+        return fastJson.convert(ResponseBody.create(JSON_TYPE, payload));
+    }
+
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> binder() throws IOException {
+        return binder.convert(ResponseBody.create(JSON_TYPE, payload));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public BenchmarkResult<List<BenchmarkQuestion>> fastJsonFirstUse() throws IOException {
+        return fastJson();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public BenchmarkResult<List<BenchmarkQuestion>> binderFirstUse() throws IOException {
+        return binder();
+    }
+
+    private static Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> converter(Converter.Factory factory) {
+        Retrofit retrofit = new Retrofit.Builder().baseUrl("http://localhost/")
+                .addConverterFactory(factory)
+                .build();
+        return retrofit.responseBodyConverter(RESULT_TYPE, new Annotation[0]);
+    }
+
+    /**
+     * Written by hand, so that fastjson is not warmed up by the serializer
+     */
+    static byte[] payload(int size) {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"message\":null,\"data\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"questionId\":").append(100000L + i)
+                    .append(",\"question\":\"How to book the court ").append(i).append("?\"")
+                    .append(",\"answer\":\"Open the app, choose the venue and the time, then pay the order ")
+                    .append(i).append(".\"}");
+        }
+        return json.append("]}").toString().getBytes(Charset.forName("UTF-8"));
+    }
+}
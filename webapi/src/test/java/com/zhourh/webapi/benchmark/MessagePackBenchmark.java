@@ -0,0 +1,216 @@
+package com.zhourh.webapi.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.zhourh.webapi.converter.JsonBinderConverterFactory;
+import com.zhourh.webapi.converter.MessagePackConverterFactory;
+import com.zhourh.webapi.utils.Types;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.fastjson.FastJsonConverterFactory;
+
+/**
+ * Compare decoding a {@code BenchmarkResult<List<BenchmarkQuestion>>} in MessagePack with the json of
+ * the FastJsonConverterFactory and the generated json binders, the same payloads of {@linkplain JsonBinderBenchmark}.
+ * <p>
+ * The bytes decoded are counted by {@linkplain Decoded} into the results, bytes / decodes is the size of the payload
+ * of each format. Run with {@code ./gradlew :webapi:jmh -Pjmh=MessagePackBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MessagePackBenchmark {
+
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private static final MediaType MESSAGE_PACK_TYPE = MediaType.parse("application/x-msgpack");
+
+    private static final Type RESULT_TYPE = Types.newParameterizedType(BenchmarkResult.class,
+            Types.newParameterizedType(List.class, BenchmarkQuestion.class));
+
+    /**
+     * The counters reported along with the time, reset by each iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Decoded {
+
+        public long bytes;
+
+        public long decodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            decodes = 0;
+        }
+
+        void add(byte[] payload) {
+            bytes += payload.length;
+            decodes++;
+        }
+    }
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private byte[] json;
+
+    private byte[] messagePack;
+
+    private Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> fastJson;
+
+    private Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> binder;
+
+    private Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> messagePackConverter;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = JsonBinderBenchmark.payload(size);
+        messagePack = messagePack(JSON.parse(new String(json, Charset.forName("UTF-8"))));
+        fastJson = converter(FastJsonConverterFactory.create());
+        binder = converter(JsonBinderConverterFactory.create(), FastJsonConverterFactory.create());
+        messagePackConverter = converter(MessagePackConverterFactory.create(), FastJsonConverterFactory.create());
+        // the decoders are compared only if they decode the same models
+        verify(fastJson.convert(ResponseBody.create(JSON_TYPE, json)));
+        verify(binder.convert(ResponseBody.create(JSON_TYPE, json)));
+        verify(messagePackConverter.convert(ResponseBody.create(MESSAGE_PACK_TYPE, messagePack)));
+        verify(messagePackConverter.convert(ResponseBody.create(JSON_TYPE, json)));
+    }
+
+    private void verify(BenchmarkResult<List<BenchmarkQuestion>> result) {
+        List<?> data = result.getData();
+        if (!result.isSuccess() || data.size() != size || !(data.get(0) instanceof BenchmarkQuestion)
+                || !(data.get(size - 1) instanceof BenchmarkQuestion)) {
+            throw new IllegalStateException("Not decoded into the models: " + data.get(0).getClass());
+        }
+    }
+
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> fastJson(Decoded decoded) throws IOException {
+        decoded.add(json);
+        return fastJson.convert(ResponseBody.create(JSON_TYPE, json));
+    }
+
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> binder(Decoded decoded) throws IOException {
+        decoded.add(json);
+        return binder.convert(ResponseBody.create(JSON_TYPE, json));
+    }
+
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> messagePack(Decoded decoded) throws IOException {
+        decoded.add(messagePack);
+        return messagePackConverter.convert(ResponseBody.create(MESSAGE_PACK_TYPE, messagePack));
+    }
+
+    /**
+     * The json reply of a server not supporting MessagePack, the cost of the negotiation over {@linkplain #fastJson(Decoded)}
+     */
+    @Benchmark
+    public BenchmarkResult<List<BenchmarkQuestion>> messagePackFallback(Decoded decoded) throws IOException {
+        decoded.add(json);
+        return messagePackConverter.convert(ResponseBody.create(JSON_TYPE, json));
+    }
+
+    private static Converter<ResponseBody, BenchmarkResult<List<BenchmarkQuestion>>> converter(Converter.Factory... factories) {
+        Retrofit.Builder builder = new Retrofit.Builder().baseUrl("http://localhost/");
+        for (Converter.Factory factory : factories) {
+            builder.addConverterFactory(factory);
+        }
+        return builder.build().responseBodyConverter(RESULT_TYPE, new Annotation[0]);
+    }
+
+    /**
+     * Encode the json tree, only the types of the payloads are written
+     */
+    static byte[] messagePack(Object tree) {
+        Buffer buffer = new Buffer();
+        write(buffer, tree);
+        return buffer.readByteArray();
+    }
+
+    private static void write(Buffer buffer, Object value) {
+        if (value == null) {
+            buffer.writeByte(0xc0);
+        } else if (value instanceof Boolean) {
+            buffer.writeByte((Boolean) value ? 0xc3 : 0xc2);
+        } else if (value instanceof Integer || value instanceof Long) {
+            long n = ((Number) value).longValue();
+            if (n >= 0 && n <= 0x7f) {
+                buffer.writeByte((int) n);
+            } else if (n >= Integer.MIN_VALUE && n <= Integer.MAX_VALUE) {
+                buffer.writeByte(0xd2).writeInt((int) n);
+            } else {
+                buffer.writeByte(0xd3).writeLong(n);
+            }
+        } else if (value instanceof String) {
+            byte[] utf8 = ((String) value).getBytes(Charset.forName("UTF-8"));
+            if (utf8.length <= 0x1f) {
+                buffer.writeByte(0xa0 | utf8.length);
+            } else if (utf8.length <= 0xff) {
+                buffer.writeByte(0xd9).writeByte(utf8.length);
+            } else {
+                buffer.writeByte(0xdb).writeInt(utf8.length);
+            }
+            buffer.write(utf8);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeHeader(buffer, map.size(), 0x80, 0xde);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(buffer, String.valueOf(entry.getKey()));
+                write(buffer, entry.getValue());
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            writeHeader(buffer, list.size(), 0x90, 0xdc);
+            for (Object item : list) {
+                write(buffer, item);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported: " + value.getClass());
+        }
+    }
+
+    /**
+     * @param fix the fixmap or fixarray format
+     * @param format16 the 16 bits format, the 32 bits one is next to it
+     */
+    private static void writeHeader(Buffer buffer, int size, int fix, int format16) {
+        if (size <= 0x0f) {
+            buffer.writeByte(fix | size);
+        } else if (size <= 0xffff) {
+            buffer.writeByte(format16).writeShort(size);
+        } else {
+            buffer.writeByte(format16 + 1).writeInt(size);
+        }
+    }
+}
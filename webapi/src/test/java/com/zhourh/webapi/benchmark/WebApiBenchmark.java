@@ -0,0 +1,227 @@
+package com.zhourh.webapi.benchmark;
+
+import android.app.Application;
+
+import com.zhourh.webapi.core.ApiSubscriber;
+import com.zhourh.webapi.core.WebApi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.logging.HttpLoggingInterceptor;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Drive {@linkplain WebApi#request} and {@linkplain WebApi#requestWithAllData} end to end against a local
+ * {@linkplain MockWebServer}, including the http client, the json decoding, the result check and the delivery.
+ * <p>
+ * An operation sends {@link #subscribers} requests at once and waits for all of them to be delivered,
+ * the throughput and the percentiles of the latency are measured, and the allocations by the gc profiler
+ * of the jmh task, divide the normalized allocation by the subscribers to get the allocation per request.
+ * The main thread of Android is replaced by a single thread, and the server runs in the same jvm,
+ * so compare the results of the same machine only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class WebApiBenchmark {
+
+    static {
+        final ExecutorService mainThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "main");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(new Function<Callable<Scheduler>, Scheduler>() {
+            @Override
+            public Scheduler apply(Callable<Scheduler> scheduler) throws Exception {
+                return Schedulers.from(mainThread);
+            }
+        });
+    }
+
+    private static final int SMALL_SIZE = 10;
+
+    private static final int LARGE_SIZE = 1000;
+
+    /**
+     * Hold the loggers, or the configuration is dropped with them
+     */
+    private static final Logger OK_HTTP_LOGGER = Logger.getLogger(OkHttpClient.class.getName());
+
+    private static final Logger SERVER_LOGGER = Logger.getLogger(MockWebServer.class.getName());
+
+    /**
+     * small for 10 items, large for 1000 items
+     */
+    @Param({"small", "large"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean memoryCache;
+
+    @Param({"NONE", "BODY"})
+    public HttpLoggingInterceptor.Level logLevel;
+
+    @Param({"1", "32"})
+    public int subscribers;
+
+    private MockWebServer server;
+
+    private WebApi webApi;
+
+    private BenchmarkService service;
+
+    private int size;
+
+    @Setup
+    public void setUp() throws IOException {
+        // the log lines are formatted as usual, but not printed into the results
+        OK_HTTP_LOGGER.setUseParentHandlers(false);
+        OK_HTTP_LOGGER.addHandler(new NullHandler());
+        SERVER_LOGGER.setLevel(Level.WARNING);
+
+        size = "large".equals(payload) ? LARGE_SIZE : SMALL_SIZE;
+        final Buffer small = new Buffer().write(JsonBinderBenchmark.payload(SMALL_SIZE));
+        final Buffer large = new Buffer().write(JsonBinderBenchmark.payload(LARGE_SIZE));
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                // mockwebserver 3.5 records the path only
+                HttpUrl url = HttpUrl.parse("http://localhost" + request.getPath());
+                Buffer body = url != null && String.valueOf(LARGE_SIZE).equals(url.queryParameter("size")) ? large : small;
+                return new MockResponse().setHeader("Content-Type", "application/json; charset=utf-8")
+                        .setBody(body.clone());
+            }
+        });
+        server.start();
+
+        WebApi.Builder builder = new WebApi.Builder().baseUrl(server.url("/").toString())
+                .logLevel(logLevel)
+                .addService(0, BenchmarkService.class);
+        if (memoryCache) {
+            builder.memoryCache(LARGE_SIZE * 10, 1, TimeUnit.MINUTES);
+        }
+        webApi = builder.build(new Application());
+        service = webApi.getService(BenchmarkService.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public void request() throws InterruptedException {
+        LatchSubscriber<List<BenchmarkQuestion>> subscriber = new LatchSubscriber<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            webApi.request(service.getQuestions(size), subscriber.child());
+        }
+        subscriber.await();
+    }
+
+    @Benchmark
+    public void requestWithAllData() throws InterruptedException {
+        LatchSubscriber<BenchmarkResult<List<BenchmarkQuestion>>> subscriber = new LatchSubscriber<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            webApi.<List<BenchmarkQuestion>, BenchmarkResult<List<BenchmarkQuestion>>>requestWithAllData(
+                    service.getQuestions(size), subscriber.child());
+        }
+        subscriber.await();
+    }
+
+    /**
+     * Count down when a request is delivered, the first error fails the benchmark
+     */
+    private static final class LatchSubscriber<T> {
+
+        private final CountDownLatch latch;
+
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+
+        LatchSubscriber(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        ApiSubscriber<T> child() {
+            return new ApiSubscriber<T>() {
+                @Override
+                public void onNext(T t) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    error.compareAndSet(null, e);
+                    latch.countDown();
+                }
+            };
+        }
+
+        void await() throws InterruptedException {
+            if (!latch.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("The requests are not delivered in 30 seconds");
+            }
+            Throwable e = error.get();
+            if (e != null) {
+                throw new IllegalStateException("The request failed", e);
+            }
+        }
+    }
+
+    private static final class NullHandler extends Handler {
+
+        @Override
+        public void publish(LogRecord record) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.zhourh.webapi.cache;
+
+import com.zhourh.webapi.RequestCall;
+import com.zhourh.webapi.response.ApiResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.fastjson.FastJsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CacheReaderTest {
+
+    private final MockWebServer server = new MockWebServer();
+
+    private MemoryCache memoryCache;
+
+    private CacheReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        Retrofit retrofit = new Retrofit.Builder().baseUrl(server.url("/"))
+                .addConverterFactory(FastJsonConverterFactory.create())
+                .build();
+        memoryCache = new MemoryCache(100, 1, TimeUnit.MINUTES, null);
+        reader = new CacheReader(retrofit, memoryCache, false);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void notModifiedReusesTheResultOfTheSameUserOnly() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"alice\"").setBody("{\"success\":true,\"data\":\"alice\"}"));
+        Result alice = read("alice");
+        assertEquals("alice", alice.getData());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+        server.enqueue(new MockResponse().setHeader("ETag", "\"bob\"").setBody("{\"success\":true,\"data\":\"bob\"}"));
+        assertEquals("bob", read("bob").getData());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+        server.enqueue(new MockResponse().setResponseCode(304));
+        assertSame(alice, read("alice"));
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"alice\"", revalidation.getHeader("If-None-Match"));
+        assertEquals(1, reader.notModifiedCount());
+    }
+
+    @Test
+    public void validatorLookupIsNotCountedByTheMemoryCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"alice\"").setBody("{\"success\":true,\"data\":\"alice\"}"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        read("alice");
+        read("alice");
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("\"alice\"", server.takeRequest().getHeader("If-None-Match"));
+        // the network reads the memory for the validators only
+        assertEquals(0, memoryCache.hitCount());
+        assertEquals(0, memoryCache.missCount());
+    }
+
+    private Result read(String authorization) {
+        Request request = new Request.Builder().url(server.url("/questions"))
+                .header("Authorization", authorization)
+                .build();
+        return reader.read(new RequestCall(request), Result.class, ReadPolicy.NETWORK_FIRST, Flowable.<Result>empty())
+                .blockingFirst();
+    }
+
+    public static class Result implements ApiResult<String> {
+
+        private boolean success;
+
+        private String data;
+
+        @Override
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        @Override
+        public String getError() {
+            return null;
+        }
+
+        @Override
+        public String getData() {
+            return data;
+        }
+
+        public void setData(String data) {
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.zhourh.webapi.cache;
+
+import com.zhourh.webapi.RequestCall;
+import com.zhourh.webapi.response.ApiResult;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import okhttp3.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryCacheTest {
+
+    @Test
+    public void resultIsNotSharedBetweenAuthorizations() {
+        MemoryCache cache = new MemoryCache(100, 1, TimeUnit.MINUTES, null);
+        Result alice = new Result("alice");
+        Result bob = new Result("bob");
+
+        assertSame(alice, request(cache, "alice", alice));
+        assertSame(alice, request(cache, "alice", new Result("other")));
+        assertSame(bob, request(cache, "bob", bob));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    public void jsonBytesWeigherMeasuresTheJson() {
+        Result small = new Result("a");
+        Result large = new Result(new String(new char[1000]).replace('\0', 'a'));
+        int smallWeight = MemoryCache.JSON_BYTES_WEIGHER.weigh(small);
+        int largeWeight = MemoryCache.JSON_BYTES_WEIGHER.weigh(large);
+        assertTrue(smallWeight > 0);
+        assertEquals(999, largeWeight - smallWeight);
+    }
+
+    @Test
+    public void evictsByWeight() {
+        MemoryCache cache = new MemoryCache(3, 1, TimeUnit.MINUTES, null);
+        request(cache, "a", new Result(Arrays.asList(1, 2)));
+        request(cache, "b", new Result(Arrays.asList(1, 2)));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+    }
+
+    private static Result request(MemoryCache cache, String authorization, Result result) {
+        Request request = new Request.Builder().url("http://localhost/questions")
+                .header("Authorization", authorization)
+                .build();
+        return cache.cache(new RequestCall(request), Result.class, Flowable.just(result)).blockingFirst();
+    }
+
+    public static final class Result implements ApiResult<Object> {
+
+        private final Object data;
+
+        Result(Object data) {
+            this.data = data;
+        }
+
+        @Override
+        public boolean isSuccess() {
+            return true;
+        }
+
+        @Override
+        public String getError() {
+            return null;
+        }
+
+        @Override
+        public Object getData() {
+            return data;
+        }
+    }
+}
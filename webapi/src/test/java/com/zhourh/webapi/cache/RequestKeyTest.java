@@ -0,0 +1,55 @@
+package com.zhourh.webapi.cache;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import okhttp3.Request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RequestKeyTest {
+
+    private static Request.Builder get() {
+        return new Request.Builder().url("http://localhost/questions");
+    }
+
+    @Test
+    public void differentHeadersHaveDifferentKeys() {
+        String alice = RequestKey.DEFAULT.of(get().header("Authorization", "alice").build(), String.class);
+        String bob = RequestKey.DEFAULT.of(get().header("Authorization", "bob").build(), String.class);
+        assertNotEquals(alice, bob);
+        assertNotEquals(alice, RequestKey.DEFAULT.of(get().build(), String.class));
+    }
+
+    @Test
+    public void headerOrderAndCaseDoNotMatter() {
+        Request first = get().header("Authorization", "alice").header("Accept-Language", "zh").build();
+        Request second = get().header("accept-language", "zh").header("authorization", "alice").build();
+        assertEquals(RequestKey.DEFAULT.of(first, String.class), RequestKey.DEFAULT.of(second, String.class));
+    }
+
+    @Test
+    public void responseTypeIsPartOfTheKey() {
+        Request request = get().build();
+        assertNotEquals(RequestKey.DEFAULT.of(request, String.class), RequestKey.DEFAULT.of(request, Integer.class));
+    }
+
+    @Test
+    public void scopeIsPartOfTheKey() {
+        final String[] user = {"alice"};
+        RequestKey key = RequestKey.create(new RequestKey.Scope() {
+            @Override
+            public String scope(@NonNull Request request) {
+                return user[0];
+            }
+        });
+        Request request = get().build();
+        String alice = key.of(request, String.class);
+        user[0] = "bob";
+        assertNotEquals(alice, key.of(request, String.class));
+        user[0] = null;
+        assertEquals(RequestKey.DEFAULT.of(request, String.class), key.of(request, String.class));
+    }
+}
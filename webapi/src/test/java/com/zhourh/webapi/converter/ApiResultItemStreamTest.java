@@ -0,0 +1,135 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.JSONException;
+import com.zhourh.webapi.exception.ApiException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Flowable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApiResultItemStreamTest {
+
+    private static final MediaType JSON_TYPE = MediaType.parse("application/json; charset=utf-8");
+
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(named("reader"));
+
+    private final ExecutorService consumer = Executors.newSingleThreadExecutor(named("consumer"));
+
+    @After
+    public void tearDown() {
+        reader.shutdownNow();
+        consumer.shutdownNow();
+    }
+
+    @Test
+    public void itemsAfterThePrefetchAreStillReadOnTheScheduler() throws Exception {
+        final Set<String> readThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        Flowable<Item> items = ApiResultItemStream.<Item>items(body(500), Item.class, ApiEnvelope.DEFAULT,
+                Schedulers.from(reader))
+                .doOnNext(new Consumer<Item>() {
+                    @Override
+                    public void accept(Item item) throws Exception {
+                        readThreads.add(Thread.currentThread().getName());
+                    }
+                })
+                // requests the items after the first 128 from the consumer thread, like the main thread
+                .observeOn(Schedulers.from(consumer));
+        TestSubscriber<Item> subscriber = items.test();
+        assertTrue(subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS));
+        subscriber.assertNoErrors().assertValueCount(500);
+        assertEquals(1, readThreads.size());
+        assertEquals("reader", readThreads.iterator().next());
+    }
+
+    @Test
+    public void unsuccessfulResultFailsBeforeTheItems() {
+        ResponseBody body = ResponseBody.create(JSON_TYPE,
+                "{\"success\":false,\"message\":\"denied\",\"data\":[{\"id\":1}]}");
+        ApiResultItemStream.<Item>items(body, Item.class, ApiEnvelope.DEFAULT).test()
+                .assertNoValues()
+                .assertError(ApiException.class);
+    }
+
+    @Test
+    public void nullDataIsNoItems() {
+        ResponseBody body = ResponseBody.create(JSON_TYPE, "{\"success\":true,\"data\":null,\"message\":\"ok\"}");
+        ApiResultItemStream.<Item>items(body, Item.class, ApiEnvelope.DEFAULT).test()
+                .assertNoErrors()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    @Test
+    public void bodyIsClosedWhenItIsNotAnObject() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        Buffer buffer = new Buffer().writeUtf8("[{\"id\":1}]");
+        BufferedSource source = Okio.buffer(new ForwardingSource(buffer) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        });
+        ResponseBody body = ResponseBody.create(JSON_TYPE, buffer.size(), source);
+        ApiResultItemStream.<Item>items(body, Item.class, ApiEnvelope.DEFAULT).test()
+                .assertNoValues()
+                .assertError(JSONException.class);
+        assertTrue(closed.get());
+    }
+
+    private static ResponseBody body(int size) {
+        StringBuilder json = new StringBuilder("{\"success\":true,\"data\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append('}');
+        }
+        return ResponseBody.create(JSON_TYPE, json.append("]}").toString());
+    }
+
+    private static ThreadFactory named(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, name);
+            }
+        };
+    }
+
+    public static class Item {
+
+        private int id;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.zhourh.webapi.converter;
+
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.zhourh.webapi.utils.Types;
+
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessagePackResponseConverterTest {
+
+    private static final MediaType MESSAGE_PACK = MediaType.parse("application/x-msgpack");
+
+    public static class Result<T> {
+
+        private boolean success;
+
+        private T data;
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public T getData() {
+            return data;
+        }
+
+        public void setData(T data) {
+            this.data = data;
+        }
+    }
+
+    public static class Page<T> {
+
+        @JSONField(name = "list")
+        private List<T> items;
+
+        private int total;
+
+        public List<T> getItems() {
+            return items;
+        }
+
+        public void setItems(List<T> items) {
+            this.items = items;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public void setTotal(int total) {
+            this.total = total;
+        }
+    }
+
+    public static class Question {
+
+        private int id;
+
+        private String title;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+
+    @Test
+    public void genericDataIsBoundToTheModels() throws IOException {
+        Type type = Types.newParameterizedType(Result.class, Types.newParameterizedType(List.class, Question.class));
+        Buffer buffer = new Buffer();
+        buffer.writeByte(0x82);
+        string(buffer, "success").writeByte(0xc3);
+        string(buffer, "data").writeByte(0x92);
+        question(buffer, 1, "first");
+        question(buffer, 2, "second");
+
+        Result<List<Question>> result = convert(type, buffer);
+        assertTrue(result.isSuccess());
+        assertEquals(2, result.getData().size());
+        assertTrue(result.getData().get(0) instanceof Question);
+        assertEquals(1, result.getData().get(0).getId());
+        assertEquals("second", result.getData().get(1).getTitle());
+    }
+
+    @Test
+    public void nestedGenericModelsAreBound() throws IOException {
+        Type type = Types.newParameterizedType(Result.class, Types.newParameterizedType(Page.class, Question.class));
+        Buffer buffer = new Buffer();
+        buffer.writeByte(0x82);
+        string(buffer, "success").writeByte(0xc3);
+        string(buffer, "data").writeByte(0x82);
+        string(buffer, "total").writeByte(7);
+        string(buffer, "list").writeByte(0x91);
+        question(buffer, 3, "third");
+
+        Result<Page<Question>> result = convert(type, buffer);
+        Page<Question> page = result.getData();
+        assertTrue(page instanceof Page);
+        assertEquals(7, page.getTotal());
+        assertTrue(page.getItems().get(0) instanceof Question);
+        assertEquals("third", page.getItems().get(0).getTitle());
+    }
+
+    @Test
+    public void missingGenericFieldStaysNull() throws IOException {
+        Type type = Types.newParameterizedType(Result.class, Question.class);
+        Buffer buffer = new Buffer();
+        buffer.writeByte(0x81);
+        string(buffer, "success").writeByte(0xc2);
+
+        Result<Question> result = convert(type, buffer);
+        assertFalse(result.isSuccess());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void forgedSizeIsNotAllocated() throws IOException {
+        // an array of 2^31 - 1 items in 5 bytes
+        Buffer buffer = new Buffer();
+        buffer.writeByte(0xdd).writeInt(Integer.MAX_VALUE);
+        try {
+            convert(Types.newParameterizedType(List.class, Question.class), buffer);
+            fail();
+        } catch (EOFException expected) {
+        }
+
+        buffer = new Buffer();
+        buffer.writeByte(0xdf).writeInt(Integer.MAX_VALUE);
+        try {
+            convert(Question.class, buffer);
+            fail();
+        } catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void illegalFormatIsJsonException() throws IOException {
+        Buffer buffer = new Buffer();
+        buffer.writeByte(0xc1);
+        try {
+            convert(Question.class, buffer);
+            fail();
+        } catch (JSONException expected) {
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R convert(Type type, Buffer buffer) throws IOException {
+        MessagePackResponseConverter<Object> converter =
+                new MessagePackResponseConverter<>(ParserConfig.getGlobalInstance(), type, null);
+        return (R) converter.convert(ResponseBody.create(MESSAGE_PACK, buffer.readByteArray()));
+    }
+
+    private static void question(Buffer buffer, int id, String title) {
+        buffer.writeByte(0x82);
+        string(buffer, "id").writeByte(id);
+        string(buffer, "title");
+        string(buffer, title);
+    }
+
+    private static Buffer string(Buffer buffer, String value) {
+        byte[] utf8 = value.getBytes(Charset.forName("UTF-8"));
+        return buffer.writeByte(0xa0 | utf8.length).write(utf8);
+    }
+}
@@ -0,0 +1,192 @@
+package com.zhourh.webapi.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RequestRegistryTest {
+
+    @Test
+    public void cancelDisposesAndRemoves() {
+        RequestRegistry registry = new RequestRegistry();
+        Disposable request = Disposables.empty();
+        int requestId = registry.register(request, null);
+        assertEquals(1, registry.inFlightCount());
+
+        assertTrue(registry.cancel(requestId));
+        assertTrue(request.isDisposed());
+        assertEquals(0, registry.inFlightCount());
+        assertFalse(registry.cancel(requestId));
+        assertFalse(registry.remove(requestId));
+    }
+
+    @Test
+    public void staleIdDoesNotCancelTheRequestReusingTheSlot() {
+        RequestRegistry registry = new RequestRegistry();
+        int staleId = registry.register(Disposables.empty(), null);
+        assertTrue(registry.remove(staleId));
+
+        // fill the other slots of the segment, so the next request wraps around to the freed slot
+        List<Disposable> others = new ArrayList<>();
+        for (int i = 0; i < 63; i++) {
+            Disposable other = Disposables.empty();
+            others.add(other);
+            registry.register(other, null);
+        }
+        Disposable request = Disposables.empty();
+        int requestId = registry.register(request, null);
+        assertEquals(staleId & 0xffff, requestId & 0xffff);
+        assertNotEquals(staleId, requestId);
+
+        assertFalse(registry.cancel(staleId));
+        assertFalse(registry.remove(staleId));
+        assertFalse(request.isDisposed());
+        assertEquals(64, registry.inFlightCount());
+        assertTrue(registry.remove(requestId));
+    }
+
+    @Test
+    public void segmentsAreAddedWhenTheSlotsAreTaken() {
+        RequestRegistry registry = new RequestRegistry();
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            assertTrue(ids.add(registry.register(Disposables.empty(), null)));
+        }
+        assertEquals(200, registry.inFlightCount());
+        for (int id : ids) {
+            assertTrue(registry.remove(id));
+        }
+        assertEquals(0, registry.inFlightCount());
+    }
+
+    @Test
+    public void cancelGroupCancelsOnlyItsRequests() {
+        RequestRegistry registry = new RequestRegistry();
+        Disposable first = Disposables.empty();
+        Disposable second = Disposables.empty();
+        Disposable other = Disposables.empty();
+        registry.register(first, "a");
+        int secondId = registry.register(second, "a");
+        registry.register(other, "b");
+        assertEquals(2, registry.inFlightCount("a"));
+
+        assertTrue(registry.remove(secondId));
+        assertEquals(1, registry.inFlightCount("a"));
+        registry.cancelGroup("a");
+        assertTrue(first.isDisposed());
+        assertFalse(second.isDisposed());
+        assertFalse(other.isDisposed());
+        assertEquals(0, registry.inFlightCount("a"));
+        assertEquals(1, registry.inFlightCount());
+
+        // a request of the tag after the cancel starts a new group
+        Disposable later = Disposables.empty();
+        registry.register(later, "a");
+        assertFalse(later.isDisposed());
+        assertEquals(1, registry.inFlightCount("a"));
+    }
+
+    @Test
+    public void concurrentRegisterAndRemove() throws Exception {
+        final RequestRegistry registry = new RequestRegistry();
+        final Set<Integer> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 20000; i++) {
+                        int id = registry.register(Disposables.empty(), i % 2 == 0 ? "group" : null);
+                        if (!inFlight.add(id)) {
+                            failure.compareAndSet(null, "The id " + id + " is taken twice");
+                        }
+                        inFlight.remove(id);
+                        if (!registry.remove(id)) {
+                            failure.compareAndSet(null, "The request " + id + " is removed already");
+                        }
+                        if (registry.remove(id) || registry.cancel(id)) {
+                            failure.compareAndSet(null, "The request " + id + " is found after removed");
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(0, registry.inFlightCount());
+        assertEquals(0, registry.inFlightCount("group"));
+    }
+
+    @Test
+    public void requestsRegisteredWhileTheGroupIsCancelledAreCancelled() throws Exception {
+        final RequestRegistry registry = new RequestRegistry();
+        final List<Disposable> requests = Collections.synchronizedList(new ArrayList<Disposable>());
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch registered = new CountDownLatch(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < 5000; i++) {
+                        Disposable request = Disposables.empty();
+                        requests.add(request);
+                        registry.register(request, "activity");
+                    }
+                    registered.countDown();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        while (registered.getCount() > 0) {
+            registry.cancelGroup("activity");
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        registry.cancelGroup("activity");
+
+        // every request is either cancelled with its group or joined a later group cancelled at last
+        for (Disposable request : requests) {
+            assertTrue(request.isDisposed());
+        }
+        assertEquals(20000, requests.size());
+        assertEquals(0, registry.inFlightCount());
+        assertEquals(0, registry.inFlightCount("activity"));
+    }
+}
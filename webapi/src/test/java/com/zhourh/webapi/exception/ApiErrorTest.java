@@ -0,0 +1,101 @@
+package com.zhourh.webapi.exception;
+
+import com.alibaba.fastjson.JSONException;
+import com.jakewharton.retrofit2.adapter.rxjava2.HttpException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.ProtocolException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ApiErrorTest {
+
+    private static class ExpiredTokenException extends ApiException {
+
+        private static final long serialVersionUID = 1L;
+
+        ExpiredTokenException() {
+            super("1001: token expired");
+        }
+    }
+
+    @Test
+    public void categoryOfTheClass() {
+        assertEquals(ApiError.Category.TIMEOUT, ApiError.from(new SocketTimeoutException()).getCategory());
+        assertEquals(ApiError.Category.CONNECTION, ApiError.from(new SocketException()).getCategory());
+        assertEquals(ApiError.Category.NETWORK, ApiError.from(new IOException()).getCategory());
+        assertEquals(ApiError.Category.PROTOCOL, ApiError.from(new ProtocolException()).getCategory());
+        assertEquals(ApiError.Category.HTTP, ApiError.from(http(404)).getCategory());
+        assertEquals(ApiError.Category.API, ApiError.from(new ApiException("failed")).getCategory());
+        assertEquals(ApiError.Category.CIRCUIT_OPEN, ApiError.from(new CircuitOpenException("host")).getCategory());
+        assertEquals(ApiError.Category.DROPPED, ApiError.from(new RequestDroppedException("dropped")).getCategory());
+        assertEquals(ApiError.Category.CACHE_MISS, ApiError.from(new CacheMissException("miss")).getCategory());
+        assertEquals(ApiError.Category.UNKNOWN, ApiError.from(new JSONException("syntax error")).getCategory());
+    }
+
+    @Test
+    public void subclassesTakeTheCategoryOfTheNearestSuperclass() {
+        assertEquals(ApiError.Category.CONNECTION, ApiError.from(new ConnectException()).getCategory());
+        assertEquals(ApiError.Category.NETWORK, ApiError.from(new UnknownHostException()).getCategory());
+        assertEquals(ApiError.Category.NETWORK, ApiError.from(new InterruptedIOException()).getCategory());
+        assertEquals(ApiError.Category.API, ApiError.from(new ExpiredTokenException()).getCategory());
+        // resolved once, and the same from the table
+        assertEquals(ApiError.Category.CONNECTION, ApiError.from(new ConnectException()).getCategory());
+        assertEquals(ApiError.Category.UNKNOWN, ApiError.from(new IllegalStateException()).getCategory());
+    }
+
+    @Test
+    public void retryability() {
+        assertTrue(ApiError.from(new SocketTimeoutException()).isRetryable());
+        assertTrue(ApiError.from(new ConnectException()).isRetryable());
+        assertTrue(ApiError.from(new UnknownHostException()).isRetryable());
+        assertTrue(ApiError.from(new RequestDroppedException("dropped")).isRetryable());
+        assertFalse(ApiError.from(new ProtocolException()).isRetryable());
+        assertFalse(ApiError.from(new ApiException("1001: token expired")).isRetryable());
+        assertFalse(ApiError.from(new CircuitOpenException("host")).isRetryable());
+        assertFalse(ApiError.from(new CacheMissException("miss")).isRetryable());
+        assertFalse(ApiError.from(new JSONException("syntax error")).isRetryable());
+        for (int status : new int[]{408, 429, 502, 503, 504}) {
+            assertTrue(String.valueOf(status), ApiError.from(http(status)).isRetryable());
+        }
+        for (int status : new int[]{400, 401, 404, 500, 501}) {
+            assertFalse(String.valueOf(status), ApiError.from(http(status)).isRetryable());
+        }
+    }
+
+    @Test
+    public void detailsOfTheCategory() {
+        HttpException httpException = http(503);
+        ApiError http = ApiError.from(httpException);
+        assertSame(httpException, http.getCause());
+        assertEquals(503, http.getHttpStatus());
+        assertNull(http.getServerCode());
+
+        ApiError api = ApiError.from(new ExpiredTokenException());
+        assertEquals(-1, api.getHttpStatus());
+        assertEquals("1001", api.getServerCode());
+        assertEquals("1001: token expired", api.getMessage());
+
+        assertNull(ApiError.from(new ApiException("Error: token expired")).getServerCode());
+        assertEquals(-1, ApiError.from(new IOException()).getHttpStatus());
+    }
+
+    private static HttpException http(int status) {
+        return new HttpException(Response.error(status, ResponseBody.create(MediaType.parse("text/plain"), "")));
+    }
+}
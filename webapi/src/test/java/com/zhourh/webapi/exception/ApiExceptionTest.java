@@ -0,0 +1,52 @@
+package com.zhourh.webapi.exception;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ApiExceptionTest {
+
+    @Test
+    public void codeAheadOfTheMessage() {
+        assertEquals("1001", ApiException.parseCode("1001: token expired"));
+        assertEquals("1001", ApiException.parseCode("  1001|token expired"));
+        assertEquals("1001", ApiException.parseCode("[1001] token expired"));
+        assertEquals("E1001", ApiException.parseCode("E1001: token expired"));
+        assertEquals("AUTH_401", ApiException.parseCode("[AUTH_401] token expired"));
+        assertEquals("user.4-2", ApiException.parseCode("user.4-2: not found"));
+    }
+
+    @Test
+    public void wholeErrorIsTheCodeIfItIsANumber() {
+        assertEquals("1001", ApiException.parseCode("1001"));
+        assertNull(ApiException.parseCode("E1001"));
+        assertNull(ApiException.parseCode("token expired"));
+    }
+
+    @Test
+    public void wordsAreNotCodes() {
+        assertNull(ApiException.parseCode("Error: token expired"));
+        assertNull(ApiException.parseCode("[Warning] token expired"));
+        assertNull(ApiException.parseCode("提示: 登录已过期"));
+        assertNull(ApiException.parseCode("[提示1] 登录已过期"));
+        assertNull(ApiException.parseCode("token expired: 1001"));
+    }
+
+    @Test
+    public void noCode() {
+        assertNull(ApiException.parseCode(null));
+        assertNull(ApiException.parseCode(""));
+        assertNull(ApiException.parseCode("   "));
+        assertNull(ApiException.parseCode(": token expired"));
+        assertNull(ApiException.parseCode("[] token expired"));
+        assertNull(ApiException.parseCode("[1001 token expired"));
+        assertNull(ApiException.parseCode("123456789012345678901234567890123456789: too long"));
+    }
+
+    @Test
+    public void codeOfTheException() {
+        assertEquals("1001", new ApiException("1001: token expired").getCode());
+        assertNull(new ApiException("Error: token expired").getCode());
+    }
+}
@@ -0,0 +1,80 @@
+package com.zhourh.webapi.json;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.parser.ParserConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JsonBinderTest {
+
+    public static class Model {
+        String name;
+        int count;
+    }
+
+    private ParserConfig config;
+
+    @Before
+    public void setUp() {
+        config = new ParserConfig();
+        config.putDeserializer(Model.class, new JsonBinder<Model>() {
+            @Override
+            protected Model newModel() {
+                return new Model();
+            }
+
+            @Override
+            protected boolean readField(Model model, String key, DefaultJSONParser parser, Type[] typeArguments) {
+                switch (key) {
+                    case "name":
+                        model.name = readString(parser);
+                        return true;
+                    case "count":
+                        model.count = readInt(parser);
+                        return true;
+                    default:
+                        return false;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void bindsTheFields() {
+        Model model = JSON.parseObject("{\"name\":\"a\",\"other\":[1,2],\"count\":3}", Model.class, config,
+                JSON.DEFAULT_PARSER_FEATURE);
+        assertEquals("a", model.name);
+        assertEquals(3, model.count);
+    }
+
+    @Test
+    public void truncatedObjectIsSyntaxError() {
+        assertSyntaxError("{\"name\":\"a\",", JSON.DEFAULT_PARSER_FEATURE);
+    }
+
+    @Test
+    public void leadingCommaIsSyntaxErrorUnlessAllowed() {
+        Model model = JSON.parseObject("{,\"name\":\"a\"}", Model.class, config, JSON.DEFAULT_PARSER_FEATURE);
+        assertEquals("a", model.name);
+
+        assertSyntaxError("{,\"name\":\"a\"}", JSON.DEFAULT_PARSER_FEATURE & ~Feature.AllowArbitraryCommas.mask);
+    }
+
+    private void assertSyntaxError(String json, int features) {
+        try {
+            JSON.parseObject(json, Model.class, config, features);
+            fail("Parsed " + json);
+        } catch (JSONException e) {
+            // expected, instead of a NullPointerException from the null key
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.zhourh.webapi.offline;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OfflineJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheWaitingRequestsInOrder() throws IOException {
+        File file = new File(folder.getRoot(), "requests.journal");
+        OfflineJournal journal = new OfflineJournal(file);
+        assertTrue(journal.load().isEmpty());
+        journal.add(request(1, "a"));
+        journal.add(request(2, "b"));
+        journal.add(request(3, "c"));
+        journal.done(2);
+        journal.close();
+
+        LinkedHashMap<Long, OfflineRequest> loaded = new OfflineJournal(file).load();
+        assertEquals(Arrays.asList(1L, 3L), new ArrayList<>(loaded.keySet()));
+        OfflineRequest request = loaded.get(3L);
+        assertEquals("POST", request.method);
+        assertEquals("http://localhost/c", request.url);
+        assertEquals("c", request.body.utf8());
+        assertEquals("text/plain; charset=utf-8", request.contentType);
+    }
+
+    @Test
+    public void tornLastLineIsIgnored() throws IOException {
+        File file = new File(folder.getRoot(), "requests.journal");
+        OfflineJournal journal = new OfflineJournal(file);
+        journal.load();
+        journal.add(request(1, "a"));
+        journal.add(request(2, "b"));
+        journal.close();
+        // the app is killed in the middle of a line
+        FileOutputStream output = new FileOutputStream(file, true);
+        output.write("ADD {\"id\":3,\"subscriberId\":\"pro".getBytes("UTF-8"));
+        output.close();
+
+        journal = new OfflineJournal(file);
+        assertEquals(Arrays.asList(1L, 2L), new ArrayList<>(journal.load().keySet()));
+        // the file is rewritten, so the next line is not appended to the torn one
+        journal.add(request(4, "d"));
+        journal.close();
+        assertEquals(Arrays.asList(1L, 2L, 4L), new ArrayList<>(new OfflineJournal(file).load().keySet()));
+    }
+
+    @Test
+    public void compactKeepsTheWaitingRequests() throws IOException {
+        File file = new File(folder.getRoot(), "requests.journal");
+        OfflineJournal journal = new OfflineJournal(file);
+        journal.load();
+        LinkedHashMap<Long, OfflineRequest> waiting = new LinkedHashMap<>();
+        for (long id = 1; id <= 100; id++) {
+            OfflineRequest request = request(id, "r" + id);
+            journal.add(request);
+            if (id % 10 == 0) {
+                waiting.put(id, request);
+            } else {
+                journal.done(id);
+            }
+        }
+        assertTrue(journal.needsCompact(waiting.size()));
+        journal.sync();
+        long length = file.length();
+        journal.compact(waiting.values());
+        journal.close();
+
+        assertTrue(file.length() < length);
+        assertEquals(new ArrayList<>(waiting.keySet()), new ArrayList<>(new OfflineJournal(file).load().keySet()));
+    }
+
+    private static OfflineRequest request(long id, String path) throws IOException {
+        Request request = new Request.Builder()
+                .url("http://localhost/" + path)
+                .post(RequestBody.create(MediaType.parse("text/plain; charset=utf-8"), path))
+                .build();
+        return OfflineRequest.create(id, "profile", null, request, "java.lang.String");
+    }
+}
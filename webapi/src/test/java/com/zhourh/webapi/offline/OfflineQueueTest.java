@@ -0,0 +1,110 @@
+package com.zhourh.webapi.offline;
+
+import android.app.Application;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class OfflineQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Retrofit retrofit = new Retrofit.Builder().baseUrl("http://localhost/").build();
+
+    @Test
+    public void dedupKeyReplacesTheWaitingRequest() throws Exception {
+        File directory = folder.newFolder();
+        OfflineQueue queue = new OfflineQueue(new Application(), directory, retrofit, 0, TimeUnit.MILLISECONDS);
+        // keep the requests waiting
+        queue.onConnectivityChanged(false);
+        queue.enqueue(request("nickname/a"), String.class, "profile", "profile/nickname");
+        queue.enqueue(request("avatar"), String.class, "profile", null);
+        queue.enqueue(request("nickname/b"), String.class, "profile", "profile/nickname");
+        queue.sync();
+
+        // the journal has the 3 requests added, and the replaced one done
+        File file = new File(directory, "requests.journal");
+        awaitLines(file, 4);
+        assertEquals(2, queue.size());
+        assertNull(queue.getLoadError());
+
+        // replay a copy, loading compacts the file
+        File copy = new File(folder.newFolder(), "requests.journal");
+        BufferedSink sink = Okio.buffer(Okio.sink(copy));
+        sink.writeAll(Okio.source(file));
+        sink.close();
+        LinkedHashMap<Long, OfflineRequest> loaded = new OfflineJournal(copy).load();
+        assertEquals(Arrays.asList(2L, 3L), new ArrayList<>(loaded.keySet()));
+        assertEquals("http://localhost/nickname/b", loaded.get(3L).url);
+        assertEquals("profile/nickname", loaded.get(3L).dedupKey);
+    }
+
+    @Test
+    public void requestsAreRefusedWhenTheJournalFailsToLoad() throws Exception {
+        // the journal can't be created under a file
+        File directory = folder.newFile();
+        OfflineQueue queue = new OfflineQueue(new Application(), directory, retrofit, 0, TimeUnit.MILLISECONDS);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.getLoadError() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(queue.getLoadError());
+        try {
+            queue.enqueue(request("avatar"), String.class, "profile", null);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, queue.size());
+    }
+
+    private static Request request(String path) {
+        return new Request.Builder()
+                .url("http://localhost/" + path)
+                .post(RequestBody.create(MediaType.parse("text/plain; charset=utf-8"), path))
+                .build();
+    }
+
+    private static void awaitLines(File file, int count) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        int lines = 0;
+        while (System.currentTimeMillis() < deadline) {
+            lines = 0;
+            if (file.exists()) {
+                BufferedSource source = Okio.buffer(Okio.source(file));
+                for (byte b : source.readByteArray()) {
+                    if (b == '\n') {
+                        lines++;
+                    }
+                }
+                source.close();
+            }
+            if (lines >= count) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("The journal has " + lines + " lines, expected " + count);
+    }
+}
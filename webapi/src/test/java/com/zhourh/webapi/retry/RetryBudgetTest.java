@@ -0,0 +1,34 @@
+package com.zhourh.webapi.retry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void retriesAreDeniedAfterHalfOfTheTokens() {
+        RetryBudget budget = new RetryBudget(10, 0.1f);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(budget.onFailure());
+        }
+        assertFalse(budget.onFailure());
+        assertEquals(6f, budget.tokens(), 0.001f);
+        assertEquals(1, budget.deniedCount());
+    }
+
+    @Test
+    public void deniedRetriesTakeNoToken() {
+        RetryBudget budget = new RetryBudget(10, 0.1f);
+        for (int i = 0; i < 100; i++) {
+            budget.onFailure();
+        }
+        assertEquals(6f, budget.tokens(), 0.001f);
+
+        // one success after the outage allows a retry again
+        budget.onSuccess();
+        assertTrue(budget.onFailure());
+    }
+}
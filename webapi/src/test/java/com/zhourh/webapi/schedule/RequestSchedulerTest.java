@@ -0,0 +1,66 @@
+package com.zhourh.webapi.schedule;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestSchedulerTest {
+
+    private final RequestScheduler scheduler = new RequestScheduler(1, 1, 10);
+
+    @Test
+    public void slotIsHeldUntilTheRequestTerminates() throws Exception {
+        // replies on another thread after the subscription returns
+        PublishProcessor<String> first = PublishProcessor.create();
+        TestSubscriber<String> firstSubscriber = scheduler.schedule(first, Priority.NORMAL, "host").test();
+        awaitSubscribers(first);
+        TestSubscriber<String> second = scheduler.schedule(Flowable.just("second"), Priority.NORMAL, "host").test();
+
+        Thread.sleep(100);
+        second.assertNoValues();
+        assertEquals(1, scheduler.runningCount());
+        assertEquals(1, scheduler.queuedCount());
+
+        first.onNext("first");
+        first.onComplete();
+        firstSubscriber.assertValue("first");
+        assertTrue(second.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        second.assertValue("second");
+        awaitRunning(0);
+    }
+
+    @Test
+    public void cancelledRequestReleasesTheSlot() throws Exception {
+        PublishProcessor<String> first = PublishProcessor.create();
+        TestSubscriber<String> firstSubscriber = scheduler.schedule(first, Priority.NORMAL, "host").test();
+        awaitSubscribers(first);
+        TestSubscriber<String> second = scheduler.schedule(Flowable.just("second"), Priority.NORMAL, "host").test();
+
+        firstSubscriber.cancel();
+        assertTrue(second.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        second.assertValue("second");
+        awaitRunning(0);
+        assertEquals(0, scheduler.queuedCount());
+    }
+
+    private static void awaitSubscribers(PublishProcessor<?> processor) throws InterruptedException {
+        for (int i = 0; i < 500 && !processor.hasSubscribers(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(processor.hasSubscribers());
+    }
+
+    private void awaitRunning(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.runningCount() != count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, scheduler.runningCount());
+    }
+}